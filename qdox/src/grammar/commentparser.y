@@ -83,6 +83,34 @@ public DefaultJavaCommentParser(Lexer lexer, Builder builder) {
     this.builder = builder;
 }
 
+/**
+ * Prepare this parser for another comment, so it can be reused. The lexer has to be reset by the caller.
+ *
+ * @param builder the builder for the new comment
+ */
+public void reset( Builder builder ) {
+    this.builder = builder;
+    textBuffer.setLength(0);
+    line = 0;
+    column = 0;
+}
+
+/**
+ * Parse a javadoc comment at once and pass its text and tags to the builder, for a builder which can't take the
+ * unparsed comment.
+ *
+ * @param comment the javadoc comment, including its delimiters
+ * @param line the line where the comment starts
+ * @param column the column where the comment starts
+ * @param builder the builder for the comment
+ */
+public static void parse( String comment, int line, int column, Builder builder ) {
+    DefaultJavaCommentLexer lexer = new DefaultJavaCommentLexer( new java.io.StringReader( comment ) );
+    lexer.setLineOffset( line );
+    lexer.setColumnOffset( column );
+    new DefaultJavaCommentParser( lexer, builder ).parse();
+}
+
 public void setDebugParser(boolean debug) {
     yydebug = debug;
 }
@@ -433,6 +433,9 @@ ExceptionTypeList: ClassOrInterfaceType /* =ExceptionType */
 MethodBody: CODEBLOCK 
             {
               $$ = lexer.getCodeBody();
+              if ($$ == null) {
+                mth.setBodyRange(getCodeBodyStart(), getCodeBodyEnd());
+              }
             } 
           | SEMI 
            {
@@ -455,6 +458,9 @@ StaticInitializer: Modifiers_opt CODEBLOCK
                      InitDef def = new InitDef();
                      def.setStatic(modifiers.contains("static"));modifiers.clear();
                      def.setBlockContent(lexer.getCodeBody());
+                     if (def.getBlockContent() == null) {
+                       def.setBlockRange(getCodeBodyStart(), getCodeBodyEnd());
+                     }
                      builder.addInitializer(def);
                    }
                  ;
@@ -487,6 +493,9 @@ ConstructorDeclaration: Modifiers_opt IDENTIFIER
                         PARENOPEN FormalParameterList_opt PARENCLOSE Throws_opt CODEBLOCK 
                         {
                           mth.setBody(lexer.getCodeBody());
+                          if (mth.getBody() == null) {
+                            mth.setBodyRange(getCodeBodyStart(), getCodeBodyEnd());
+                          }
                           builder.endConstructor(mth);
                           mth = new MethodDef(); 
                         }
@@ -1701,6 +1710,31 @@ public Parser( JavaLexer lexer, Builder builder )
     this.builder = builder;
 }
 
+/**
+ * Prepare this parser for another source, so it can be reused. The lexer has to be reset by the caller.
+ *
+ * @param builder the builder for the new source
+ */
+public void reset( Builder builder ) {
+    this.builder = builder;
+    textBuffer.setLength(0);
+    cls = new ClassDef();
+    mth = new MethodDef();
+    fd = null;
+    typeParams = new LinkedList<TypeVariableDef>();
+    annotationStack.clear();
+    annoValueListStack.clear();
+    annoValueList = null;
+    param = new FieldDef();
+    modifiers.clear();
+    fieldType = null;
+    typeVariable = null;
+    typeStack.clear();
+    typeList.clear();
+    line = 0;
+    column = 0;
+}
+
 public void setDebugParser(boolean debug) {
     yydebug = debug;
 }
@@ -1716,13 +1750,45 @@ public boolean parse() {
     return yyparse() == 0;
 }
 
+/**
+ * Tokens whose text is used by the grammar, the text of all other tokens is never materialized.
+ */
+private static final java.util.BitSet TEXT_TOKENS = tokens( IDENTIFIER, BOOLEAN_LITERAL, INTEGER_LITERAL,
+    FLOAT_LITERAL, CHAR_LITERAL, STRING_LITERAL, SUPER, EQUALS, STAREQUALS, SLASHEQUALS, PERCENTEQUALS, PLUSEQUALS,
+    MINUSEQUALS, LESSTHAN2EQUALS, GREATERTHAN2EQUALS, GREATERTHAN3EQUALS, AMPERSANDEQUALS, CIRCUMFLEXEQUALS,
+    VERTLINEEQUALS );
+
+/**
+ * Tokens which never start a rule. Their value can't become the value of a nonterminal, so it will never be
+ * written by an action and these tokens can all share the same value.
+ */
+private static final java.util.BitSet SHARED_VALUE_TOKENS = tokens( ANNOCHAR, ANNOINTERFACE, ANNOSTRING,
+    BRACECLOSE, CLASS, COLON, COMMA, DOT, DOTDOTDOT, ENUM, INTERFACE, PARENBLOCK, PARENCLOSE, SQUARECLOSE, VOID );
+
+private static java.util.BitSet tokens( int... tokens ) {
+    java.util.BitSet result = new java.util.BitSet();
+    for ( int token : tokens ) {
+        result.set( token );
+    }
+    return result;
+}
+
+private final Value sharedValue = new Value();
+
 private int yylex() {
     try {
         final int result = lexer.lex();
-        yylval = new Value();
-        yylval.sval = lexer.text();
+        if (SHARED_VALUE_TOKENS.get(result)) {
+            yylval = sharedValue;
+        }
+        else {
+            yylval = new Value();
+            if (TEXT_TOKENS.get(result)) {
+                yylval.sval = lexer.text();
+            }
+        }
         if (debugLexer) {
-            System.err.println("Token: " + yyname[result] + " \"" + yylval.sval + "\"");
+            System.err.println("Token: " + yyname[result] + " \"" + lexer.text() + "\"");
         }
         return result;
     }
@@ -1754,14 +1820,38 @@ private void makeField(TypeDef field, String body, boolean enumConstant) {
     fd.setDimensions(field.getDimensions());
     fd.setEnumConstant(enumConstant);
     fd.setBody(body);
+    if (body == null) {
+        fd.setBodyRange(getCodeBodyStart(), getCodeBodyEnd());
+    }
+}
+
+/**
+ * Only the JFlexLexer records the range of a code body it skipped, so the body can be read later.
+ */
+private int getCodeBodyStart() {
+    return ( lexer instanceof JFlexLexer ? ( (JFlexLexer) lexer ).getCodeBodyStart() : -1 );
+}
+
+private int getCodeBodyEnd() {
+    return ( lexer instanceof JFlexLexer ? ( (JFlexLexer) lexer ).getCodeBodyEnd() : -1 );
 }
 
 public void onComment( String comment, int line, int column ) {
-  DefaultJavaCommentLexer commentLexer  = new DefaultJavaCommentLexer( new java.io.StringReader( comment ) );
-  commentLexer.setLineOffset( line );
-  commentLexer.setColumnOffset( column );
-  DefaultJavaCommentParser commentParser = new DefaultJavaCommentParser( commentLexer, builder);
-  commentParser.setDebugLexer( this.debugLexer );
-  commentParser.setDebugParser( this.yydebug );
-  commentParser.parse();
+  if ( debugLexer || yydebug ) {
+    // parse immediately, so the tokens of the comment are part of the debug output
+    DefaultJavaCommentLexer commentLexer  = new DefaultJavaCommentLexer( new java.io.StringReader( comment ) );
+    commentLexer.setLineOffset( line );
+    commentLexer.setColumnOffset( column );
+    DefaultJavaCommentParser commentParser = new DefaultJavaCommentParser( commentLexer, builder);
+    commentParser.setDebugLexer( this.debugLexer );
+    commentParser.setDebugParser( this.yydebug );
+    commentParser.parse();
+  }
+  else if ( builder instanceof CommentHandler ) {
+    // the builder parses the comment once it is requested
+    ( (CommentHandler) builder ).onComment( comment, line, column );
+  }
+  else {
+    DefaultJavaCommentParser.parse( comment, line, column, builder );
+  }
 }
\ No newline at end of file
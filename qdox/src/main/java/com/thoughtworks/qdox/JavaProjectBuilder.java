@@ -27,12 +27,18 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Reader;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 import com.thoughtworks.qdox.directorywalker.DirectoryScanner;
 import com.thoughtworks.qdox.directorywalker.FileVisitor;
 import com.thoughtworks.qdox.directorywalker.SuffixFilter;
+import com.thoughtworks.qdox.library.AbstractClassLibraryBuilder;
 import com.thoughtworks.qdox.library.ClassLibraryBuilder;
 import com.thoughtworks.qdox.library.ErrorHandler;
 import com.thoughtworks.qdox.library.SortedClassLibraryBuilder;
@@ -80,6 +86,10 @@ public class JavaProjectBuilder
     /**
      * Custom constructor, so another resource loading strategy can be defined
      * 
+     * Methods like {@link #addClassPath(File)} and {@link #addSnapshot(File)} are only supported if the
+     * classLibraryBuilder extends {@link AbstractClassLibraryBuilder}, otherwise they throw an
+     * {@link UnsupportedOperationException}.
+     * 
      * @param classLibraryBuilder custom implementation of {@link ClassLibraryBuilder}
      */
     public JavaProjectBuilder( ClassLibraryBuilder classLibraryBuilder )
@@ -113,6 +123,34 @@ public class JavaProjectBuilder
         return this;
     }
 
+    /**
+     * Skip the content of method-, constructor- and initializer-bodies while parsing. Only the signatures will be
+     * available, {@link com.thoughtworks.qdox.model.JavaMethod#getSourceCode()} and
+     * {@link com.thoughtworks.qdox.model.JavaInitializer#getBlockContent()} will return <code>null</code>.
+     * 
+     * @param skipCodeBlocks <code>true</code> to skip the codeblocks, <code>false</code> to keep them
+     * @return this javaProjectBuilder itself
+     */
+    public JavaProjectBuilder setSkipCodeBlocks( boolean skipCodeBlocks )
+    {
+        getAbstractClassLibraryBuilder().setSkipCodeBlocks( skipCodeBlocks );
+        return this;
+    }
+
+    /**
+     * Only keep the offsets of method-, constructor- and initializer-bodies and field initializers while parsing, their
+     * content is read from the source once it is requested. Sources added by a {@link Reader} are kept in a compact
+     * form, all other sources will be read again from their URL, so these shouldn't change in the meantime.
+     * 
+     * @param lazyCodeBlocks <code>true</code> to read the codeblocks on demand, <code>false</code> to keep them
+     * @return this javaProjectBuilder itself
+     */
+    public JavaProjectBuilder setLazyCodeBlocks( boolean lazyCodeBlocks )
+    {
+        getAbstractClassLibraryBuilder().setLazyCodeBlocks( lazyCodeBlocks );
+        return this;
+    }
+
     /**
      * Sets the encoding when using Files or URL's to parse.
      * 
@@ -125,6 +163,20 @@ public class JavaProjectBuilder
         return this;
     }
 
+    /**
+     * Keep the structure of parsed files in a directory, so files which haven't changed since a previous run don't have
+     * to be parsed again. The files are stored by a hash of their content and the version of QDox.
+     * 
+     * @param cacheDirectory the directory, <code>null</code> to parse every file
+     * @return this javaProjectBuilder itself
+     * @since 2.0
+     */
+    public JavaProjectBuilder setCacheDirectory( File cacheDirectory )
+    {
+        getAbstractClassLibraryBuilder().setCacheDirectory( cacheDirectory );
+        return this;
+    }
+
     /**
      * Sets the errorHandler which will be triggered when a parse exception occurs.
      * 
@@ -150,6 +202,33 @@ public class JavaProjectBuilder
         return classLibraryBuilder.addSource( file );
     }
     
+    /**
+     * Replace a java source from a file which has been changed. The old classes of the file are removed, so it doesn't
+     * matter if the file was added before.
+     * 
+     * @param file a java file
+     * @return the {@link JavaSource} of the parsed file
+     * @throws IOException if file is a directory or can't be read
+     * @since 2.0
+     */
+    public JavaSource updateSource( File file )
+        throws IOException
+    {
+        return getAbstractClassLibraryBuilder().updateSource( file );
+    }
+
+    /**
+     * Remove a java source and its classes from this JavaProjectBuilder.
+     * 
+     * @param url the url of the source, for files use {@code file.toURI().toURL()}
+     * @return the removed {@link JavaSource}, otherwise <code>null</code>
+     * @since 2.0
+     */
+    public JavaSource removeSource( URL url )
+    {
+        return getAbstractClassLibraryBuilder().removeSource( url );
+    }
+
     /**
      * Add a java source from a URL to this JavaProjectBuilder
      * 
@@ -229,6 +308,127 @@ public class JavaProjectBuilder
         } );
     }
 
+    /**
+     * Parse all java files of the {@code directory} recursively and pass them one by one to the {@code visitor},
+     * without adding them to this JavaProjectBuilder. Once visited, the source and its classes are no longer referenced by
+     * this JavaProjectBuilder. What remains are the identifiers shared by the parser and a bounded cache of the type
+     * names which couldn't be resolved. Types are still resolved with the classloaders, sourcefolders and sources of
+     * this JavaProjectBuilder.
+     * 
+     * @param directory the directory from which all java files should be parsed.
+     * @param visitor the visitor for every parsed source
+     * @since 2.0
+     */
+    public void visitSourceTree( File directory, JavaSourceVisitor visitor )
+    {
+        FileVisitor errorHandler = new FileVisitor()
+        {
+            public void visitFile( File badFile )
+            {
+                throw new RuntimeException( "Cannot read file : " + badFile.getName() );
+            }
+        };
+        visitSourceTree( directory, visitor, errorHandler );
+    }
+
+    /**
+     * Parse all java files of the {@code directory} recursively and pass them one by one to the {@code visitor},
+     * without adding them to this JavaProjectBuilder.
+     * 
+     * @param directory the directory from which all java files should be parsed.
+     * @param visitor the visitor for every parsed source
+     * @param errorHandler a fileVisitor which will be triggered when an {@link IOException} occurs.
+     * @since 2.0
+     * @see #visitSourceTree(File, JavaSourceVisitor)
+     */
+    public void visitSourceTree( File directory, final JavaSourceVisitor visitor, final FileVisitor errorHandler )
+    {
+        DirectoryScanner scanner = new DirectoryScanner( directory );
+        scanner.addFilter( new SuffixFilter( ".java" ) );
+        scanner.scan( new FileVisitor()
+        {
+            public void visitFile( File currentFile )
+            {
+                JavaSource source;
+                try
+                {
+                    source = getAbstractClassLibraryBuilder().parseSource( currentFile );
+                }
+                catch ( IOException e )
+                {
+                    errorHandler.visitFile( currentFile );
+                    return;
+                }
+                // if an error is handled by the errorHandler the source will be null
+                if ( source != null )
+                {
+                    visitor.visitSource( source );
+                }
+            }
+        } );
+    }
+
+    /**
+     * Add all java files of the {@code directory} recursively. The files are parsed concurrently by the
+     * {@code executor}, but added in the order of their paths, so the order of the classes is always the same.
+     * 
+     * @param directory the directory from which all java files should be parsed.
+     * @param executor the executor to parse the files with, it won't be shut down
+     * @since 2.0
+     */
+    public void addSourceTree( File directory, ExecutorService executor )
+    {
+        FileVisitor visitor = new FileVisitor()
+        {
+            public void visitFile( File badFile )
+            {
+                throw new RuntimeException( "Cannot read file : " + badFile.getName() );
+            }
+        };
+        addSourceTree( directory, visitor, executor );
+    }
+
+    /**
+     * Add all java files of the {@code directory} recursively. The files are parsed concurrently by the
+     * {@code executor}, but added in the order of their paths, so the order of the classes is always the same.
+     * 
+     * @param directory the directory from which all java files should be parsed.
+     * @param errorHandler a fileVisitor which will be triggered when an {@link IOException} occurs.
+     * @param executor the executor to parse the files with, it won't be shut down
+     * @since 2.0
+     */
+    public void addSourceTree( File directory, FileVisitor errorHandler, ExecutorService executor )
+    {
+        DirectoryScanner scanner = new DirectoryScanner( directory );
+        scanner.addFilter( new SuffixFilter( ".java" ) );
+        List<File> files = new ArrayList<File>( scanner.scan() );
+        Collections.sort( files, new Comparator<File>()
+        {
+            public int compare( File o1, File o2 )
+            {
+                return o1.getPath().compareTo( o2.getPath() );
+            }
+        } );
+        if ( classLibraryBuilder instanceof AbstractClassLibraryBuilder )
+        {
+            ( (AbstractClassLibraryBuilder) classLibraryBuilder ).addSources( files, executor, errorHandler );
+        }
+        else
+        {
+            for ( File file : files )
+            {
+                try
+                {
+                    classLibraryBuilder.addSource( file );
+                }
+                catch ( IOException e )
+                {
+                    errorHandler.visitFile( file );
+                }
+            }
+        }
+    }
+
     /**
      * Add the {@link java.lang.ClassLoader} to this JavaProjectBuilder
      * 
@@ -239,6 +439,48 @@ public class JavaProjectBuilder
         classLibraryBuilder.appendClassLoader( classLoader );
     }
 
+    /**
+     * Add a jar or a directory with class files to this JavaProjectBuilder. The classes are read from their class
+     * files, they are never loaded.
+     *
+     * @param classPathEntry the jar or directory to add
+     */
+    public void addClassPath( File classPathEntry )
+    {
+        getAbstractClassLibraryBuilder().appendClassPath( classPathEntry );
+    }
+
+    /**
+     * Close the files which are kept opened, like the jars added by {@link #addClassPath(File)}. This
+     * JavaProjectBuilder can still be used, the files are opened again once they are needed.
+     * 
+     * @since 2.0
+     */
+    public void close()
+    {
+        if ( classLibraryBuilder instanceof AbstractClassLibraryBuilder )
+        {
+            ( (AbstractClassLibraryBuilder) classLibraryBuilder ).close();
+        }
+    }
+
+    /**
+     * The methods which aren't part of the {@link ClassLibraryBuilder} interface are only supported by an
+     * {@link AbstractClassLibraryBuilder}.
+     * 
+     * @return the classLibraryBuilder
+     * @throws UnsupportedOperationException if the classLibraryBuilder is a custom implementation of the interface
+     */
+    private AbstractClassLibraryBuilder getAbstractClassLibraryBuilder()
+    {
+        if ( !( classLibraryBuilder instanceof AbstractClassLibraryBuilder ) )
+        {
+            throw new UnsupportedOperationException( classLibraryBuilder.getClass().getName()
+                + " doesn't extend " + AbstractClassLibraryBuilder.class.getName() );
+        }
+        return (AbstractClassLibraryBuilder) classLibraryBuilder;
+    }
+
     // Java Object Model -getters
 
     /**
@@ -343,6 +585,34 @@ public class JavaProjectBuilder
         }
     }
 
+    /**
+     * Write all sources as a compact snapshot. Unlike {@link #save(File)} the snapshot doesn't have to be read in full
+     * before the first class can be requested, see {@link #addSnapshot(File)}.
+     * 
+     * @param file the file to write to
+     * @throws IOException if a source or the file can't be read or written
+     * @since 2.0
+     */
+    public void saveSnapshot( File file )
+        throws IOException
+    {
+        getAbstractClassLibraryBuilder().saveSnapshot( file );
+    }
+
+    /**
+     * Add the sources of a snapshot written by {@link #saveSnapshot(File)}. The file is read into memory and the classes
+     * of a package are only built once the package or one of its classes is requested.
+     * 
+     * @param file the snapshot
+     * @throws IOException if the file can't be read or isn't a snapshot
+     * @since 2.0
+     */
+    public void addSnapshot( File file )
+        throws IOException
+    {
+        getAbstractClassLibraryBuilder().appendSnapshot( file );
+    }
+
     /**
      * Note that after loading JavaDocBuilder classloaders need to be re-added.
      */
@@ -0,0 +1,41 @@
+package com.thoughtworks.qdox;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import com.thoughtworks.qdox.model.JavaSource;
+
+/**
+ * A callback for sources which are parsed one by one without being added to the JavaProjectBuilder.
+ * 
+ * @author Robert Scholte
+ * @since 2.0
+ * @see JavaProjectBuilder#visitSourceTree(java.io.File, JavaSourceVisitor)
+ */
+public interface JavaSourceVisitor
+{
+
+    /**
+     * Visit the source. Once this method returns, the source isn't referenced anymore by the JavaProjectBuilder.
+     * 
+     * @param source the parsed source, never <code>null</code>
+     */
+    void visitSource( JavaSource source );
+
+}
@@ -0,0 +1,43 @@
+package com.thoughtworks.qdox;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.List;
+
+import com.thoughtworks.qdox.model.JavaSource;
+
+/**
+ * Receives the changes a {@link SourceTreeWatcher} has applied to a JavaProjectBuilder.
+ * 
+ * @author Robert Scholte
+ * @since 2.0
+ */
+public interface ModelChangeListener
+{
+
+    /**
+     * Called once per batch of changed files, after all of them have been applied.
+     * 
+     * @param updatedSources the sources of created and modified files, never <code>null</code>
+     * @param removedSources the sources of deleted files, never <code>null</code>
+     */
+    void modelChanged( List<JavaSource> updatedSources, List<JavaSource> removedSources );
+
+}
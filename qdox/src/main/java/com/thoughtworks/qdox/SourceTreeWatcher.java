@@ -0,0 +1,197 @@
+package com.thoughtworks.qdox;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.thoughtworks.qdox.directorywalker.ChangeListener;
+import com.thoughtworks.qdox.directorywalker.DirectoryWatcher;
+import com.thoughtworks.qdox.directorywalker.FileVisitor;
+import com.thoughtworks.qdox.directorywalker.SuffixFilter;
+import com.thoughtworks.qdox.model.JavaSource;
+
+/**
+ * Keeps a JavaProjectBuilder up to date with the java files of source trees. Every {@link #poll()} applies the files
+ * which have been created, modified or deleted since the previous poll as a single batch, by replacing only these
+ * sources, and notifies the listeners. Polls can be scheduled by the caller, for instance with a
+ * {@link java.util.concurrent.ScheduledExecutorService}. The JavaProjectBuilder shouldn't be used by other threads
+ * while a poll is running. Every poll reads the timestamp of every java file, see {@link DirectoryWatcher} for the
+ * cost and the minimum interval between two polls.
+ * 
+ * @author Robert Scholte
+ * @since 2.0
+ */
+public class SourceTreeWatcher
+{
+    private final JavaProjectBuilder builder;
+
+    private final FileVisitor errorHandler;
+
+    private final List<DirectoryWatcher> watchers = new ArrayList<DirectoryWatcher>();
+
+    private final List<ModelChangeListener> listeners = new CopyOnWriteArrayList<ModelChangeListener>();
+
+    private long minPollInterval = DirectoryWatcher.DEFAULT_MIN_POLL_INTERVAL;
+
+    /**
+     * @param builder the builder to update
+     */
+    public SourceTreeWatcher( JavaProjectBuilder builder )
+    {
+        this( builder, new FileVisitor()
+        {
+            public void visitFile( File badFile )
+            {
+                throw new RuntimeException( "Cannot read file : " + badFile.getName() );
+            }
+        } );
+    }
+
+    /**
+     * @param builder the builder to update
+     * @param errorHandler a fileVisitor which will be triggered when an {@link IOException} occurs.
+     */
+    public SourceTreeWatcher( JavaProjectBuilder builder, FileVisitor errorHandler )
+    {
+        this.builder = builder;
+        this.errorHandler = errorHandler;
+    }
+
+    /**
+     * Add all java files of the {@code directory} to the builder and watch it for changes.
+     * 
+     * @param directory the directory from which all java files should be parsed.
+     */
+    public synchronized void addSourceTree( File directory )
+    {
+        DirectoryWatcher watcher = new DirectoryWatcher( directory );
+        watcher.addFilter( new SuffixFilter( ".java" ) );
+        watcher.setMinPollInterval( minPollInterval );
+        // record the state first, so changes during the parsing are detected by the next poll
+        watcher.poll( null );
+        builder.addSourceTree( directory, errorHandler );
+        watchers.add( watcher );
+    }
+
+    /**
+     * Set the minimum time between two polls which check the source trees, a poll within this interval after the
+     * previous one is skipped. The default is {@link DirectoryWatcher#DEFAULT_MIN_POLL_INTERVAL}.
+     * 
+     * @param minPollInterval the interval in milliseconds, <code>0</code> to check the source trees on every poll
+     */
+    public synchronized void setMinPollInterval( long minPollInterval )
+    {
+        this.minPollInterval = minPollInterval;
+        for ( DirectoryWatcher watcher : watchers )
+        {
+            watcher.setMinPollInterval( minPollInterval );
+        }
+    }
+
+    /**
+     * @param listener the listener to notify after changes have been applied
+     */
+    public void addModelChangeListener( ModelChangeListener listener )
+    {
+        listeners.add( listener );
+    }
+
+    /**
+     * @param listener the listener to remove
+     */
+    public void removeModelChangeListener( ModelChangeListener listener )
+    {
+        listeners.remove( listener );
+    }
+
+    /**
+     * Apply all changes of the watched source trees since the previous poll.
+     */
+    public synchronized void poll()
+    {
+        final List<JavaSource> updatedSources = new ArrayList<JavaSource>();
+        final List<JavaSource> removedSources = new ArrayList<JavaSource>();
+        ChangeListener changeListener = new ChangeListener()
+        {
+            public void filesChanged( List<File> created, List<File> modified, List<File> deleted )
+            {
+                for ( File file : deleted )
+                {
+                    JavaSource source = builder.removeSource( toURL( file ) );
+                    if ( source != null )
+                    {
+                        removedSources.add( source );
+                    }
+                }
+                update( created, updatedSources );
+                update( modified, updatedSources );
+            }
+        };
+        for ( DirectoryWatcher watcher : watchers )
+        {
+            watcher.poll( changeListener );
+        }
+        if ( !updatedSources.isEmpty() || !removedSources.isEmpty() )
+        {
+            for ( ModelChangeListener listener : listeners )
+            {
+                listener.modelChanged( updatedSources, removedSources );
+            }
+        }
+    }
+
+    private void update( List<File> files, List<JavaSource> updatedSources )
+    {
+        for ( File file : files )
+        {
+            try
+            {
+                JavaSource source = builder.updateSource( file );
+                // null for package-info files or if an error is handled by the errorHandler
+                if ( source != null )
+                {
+                    updatedSources.add( source );
+                }
+            }
+            catch ( IOException e )
+            {
+                errorHandler.visitFile( file );
+            }
+        }
+    }
+
+    private static URL toURL( File file )
+    {
+        try
+        {
+            return file.toURI().toURL();
+        }
+        catch ( MalformedURLException e )
+        {
+            throw new RuntimeException( "Cannot create URL for file : " + file.getName(), e );
+        }
+    }
+}
@@ -19,6 +19,8 @@ package com.thoughtworks.qdox.builder.impl;
  * under the License.
  */
 
+import java.io.Reader;
+import java.io.StringReader;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.LinkedList;
@@ -28,6 +30,7 @@ import java.util.Set;
 import com.thoughtworks.qdox.builder.Builder;
 import com.thoughtworks.qdox.builder.TypeAssembler;
 import com.thoughtworks.qdox.library.ClassLibrary;
+import com.thoughtworks.qdox.library.ErrorHandler;
 import com.thoughtworks.qdox.model.DocletTag;
 import com.thoughtworks.qdox.model.DocletTagFactory;
 import com.thoughtworks.qdox.model.JavaAnnotatedElement;
@@ -42,6 +45,7 @@ import com.thoughtworks.qdox.model.JavaType;
 import com.thoughtworks.qdox.model.JavaTypeVariable;
 import com.thoughtworks.qdox.model.expression.Expression;
 import com.thoughtworks.qdox.model.impl.AbstractBaseJavaEntity;
+import com.thoughtworks.qdox.model.impl.DeferredJavaDoc;
 import com.thoughtworks.qdox.model.impl.DefaultJavaClass;
 import com.thoughtworks.qdox.model.impl.DefaultJavaConstructor;
 import com.thoughtworks.qdox.model.impl.DefaultJavaField;
@@ -52,7 +56,11 @@ import com.thoughtworks.qdox.model.impl.DefaultJavaParameter;
 import com.thoughtworks.qdox.model.impl.DefaultJavaSource;
 import com.thoughtworks.qdox.model.impl.DefaultJavaType;
 import com.thoughtworks.qdox.model.impl.DefaultJavaTypeVariable;
+import com.thoughtworks.qdox.parser.CommentHandler;
+import com.thoughtworks.qdox.parser.ParseException;
 import com.thoughtworks.qdox.parser.expression.ExpressionDef;
+import com.thoughtworks.qdox.parser.impl.DefaultJavaCommentLexer;
+import com.thoughtworks.qdox.parser.impl.DefaultJavaCommentParser;
 import com.thoughtworks.qdox.parser.structs.AnnoDef;
 import com.thoughtworks.qdox.parser.structs.ClassDef;
 import com.thoughtworks.qdox.parser.structs.FieldDef;
@@ -68,7 +76,7 @@ import com.thoughtworks.qdox.writer.ModelWriterFactory;
  * @author <a href="mailto:joew@thoughtworks.com">Joe Walnes</a>
  * @author Robert Scholte
  */
-public class ModelBuilder implements Builder {
+public class ModelBuilder implements Builder, CommentHandler {
 
     private final DefaultJavaSource source;
 
@@ -90,10 +98,16 @@ public class ModelBuilder implements Builder {
 
     private List<TagDef> lastTagSet = new LinkedList<TagDef>();
 
+    private RawJavaDoc lastRawJavaDoc;
+
     private DocletTagFactory docletTagFactory;
 
     private ModelWriterFactory modelWriterFactory;
 
+    private CharSequence sourceContent;
+
+    private ErrorHandler errorHandler;
+
     public ModelBuilder( ClassLibrary classLibrary, DocletTagFactory docletTagFactory )
     {
         this.docletTagFactory = docletTagFactory;
@@ -109,6 +123,19 @@ public class ModelBuilder implements Builder {
         source.setModelWriterFactory( modelWriterFactory );
     }
 
+    /**
+     * The javadoc is only parsed once the comment or tags of an entity are requested. A malformed javadoc is then
+     * passed to this errorHandler and the entity gets no comment and tags. Without an errorHandler the
+     * {@link ParseException} is thrown by the method requesting the comment or tags.
+     * 
+     * @param errorHandler the errorHandler, might be <code>null</code>
+     * @since 2.0
+     */
+    public void setErrorHandler( ErrorHandler errorHandler )
+    {
+        this.errorHandler = errorHandler;
+    }
+
     /** {@inheritDoc} */
     public void addPackage( PackageDef packageDef )
     {
@@ -139,6 +166,23 @@ public class ModelBuilder implements Builder {
         lastTagSet.add( tagDef );
     }
 
+    /**
+     * Add an unparsed javadoc comment, which will only be parsed once the comment or tags of the next entity are
+     * requested.
+     * 
+     * @param comment the javadoc comment, including its delimiters
+     * @param line the line where the comment starts
+     * @param column the column where the comment starts
+     */
+    public void onComment( String comment, int line, int column )
+    {
+        if ( lastRawJavaDoc == null )
+        {
+            lastRawJavaDoc = new RawJavaDoc( docletTagFactory, source, errorHandler );
+        }
+        lastRawJavaDoc.add( comment, line, column );
+    }
+
     /** {@inheritDoc} */
     public void beginClass(ClassDef def)
     {
@@ -247,17 +291,34 @@ public class ModelBuilder implements Builder {
 
     private void addJavaDoc( AbstractBaseJavaEntity entity )
     {
-        entity.setComment( lastComment );
+        if ( lastRawJavaDoc != null && lastComment == null && lastTagSet.isEmpty() )
+        {
+            entity.setDeferredJavaDoc( lastRawJavaDoc );
+        }
+        else
+        {
+            if ( lastRawJavaDoc != null )
+            {
+                lastRawJavaDoc.parse( this );
+            }
+            entity.setComment( lastComment );
+            entity.setTags( createDocletTags( entity ) );
+        }
+
+        lastRawJavaDoc = null;
+        lastTagSet.clear();
+        lastComment = null;
+    }
+
+    private List<DocletTag> createDocletTags( AbstractBaseJavaEntity entity )
+    {
         List<DocletTag> tagList = new LinkedList<DocletTag>();
         for ( TagDef tagDef : lastTagSet )
         {
             tagList.add( docletTagFactory.createDocletTag( tagDef.getName(), tagDef.getText(),
                                                            (JavaAnnotatedElement) entity, tagDef.getLineNumber() ) );
         }
-        entity.setTags( tagList );
-
-        lastTagSet.clear();
-        lastComment = null;
+        return tagList;
     }
     
     public void addInitializer( InitDef def )
@@ -265,7 +326,7 @@ public class ModelBuilder implements Builder {
         DefaultJavaInitializer initializer = new DefaultJavaInitializer();
         initializer.setLineNumber( def.getLineNumber() );
 
-        initializer.setBlock( def.getBlockContent() );
+        initializer.setBlock( getCodeBlock( def.getBlockContent(), def.getBlockStart(), def.getBlockEnd() ) );
         initializer.setStatic( def.isStatic() );
         
         classStack.getFirst().addInitializer( initializer );
@@ -324,7 +385,7 @@ public class ModelBuilder implements Builder {
             parameterList.clear();
         }
 
-        currentConstructor.setSourceCode( def.getBody() );
+        currentConstructor.setSourceCode( getCodeBlock( def.getBody(), def.getBodyStart(), def.getBodyEnd() ) );
     }
 
     /** {@inheritDoc} */
@@ -381,7 +442,20 @@ public class ModelBuilder implements Builder {
             parameterList.clear();
         }
 
-        currentMethod.setSourceCode( def.getBody() );
+        currentMethod.setSourceCode( getCodeBlock( def.getBody(), def.getBodyStart(), def.getBodyEnd() ) );
+    }
+
+    /**
+     * Codeblocks which weren't collected by the lexer are resolved by their offsets within the sourceContent, if
+     * available.
+     */
+    private CharSequence getCodeBlock( String codeBlock, int start, int end )
+    {
+        if ( codeBlock == null && sourceContent != null && start >= 0 && end >= start )
+        {
+            return sourceContent.subSequence( start, end );
+        }
+        return codeBlock;
     }
 
     private <G extends JavaGenericDeclaration> DefaultJavaTypeVariable<G> createTypeVariable( TypeVariableDef typeVariableDef, G genericDeclaration)
@@ -423,7 +497,7 @@ public class ModelBuilder implements Builder {
         }
 
         // code body
-        currentField.setInitializationExpression( def.getBody() );
+        currentField.setInitializationExpression( getCodeBlock( def.getBody(), def.getBodyStart(), def.getBodyEnd() ) );
 
         // javadoc
         addJavaDoc( currentField );
@@ -511,4 +585,127 @@ public class ModelBuilder implements Builder {
     {
         source.setURL( url );
     }
+
+    /**
+     * Set the content of the source, used to resolve codeblocks which were only passed by their offsets.
+     * 
+     * @param sourceContent the content of the source, may be <code>null</code>
+     * @since 2.0
+     */
+    public void setSourceContent( CharSequence sourceContent )
+    {
+        this.sourceContent = sourceContent;
+    }
+
+    /**
+     * A comment lexer and parser kept per thread, so they don't have to be created for every comment.
+     */
+    private static class CommentParser
+    {
+        private static final ThreadLocal<CommentParser> IDLE = new ThreadLocal<CommentParser>();
+
+        private final DefaultJavaCommentLexer lexer = new DefaultJavaCommentLexer( (Reader) null );
+
+        private final DefaultJavaCommentParser parser = new DefaultJavaCommentParser( lexer, null );
+    }
+
+    /**
+     * The javadoc comments preceding an entity, which are only parsed once the comment or tags are requested.
+     */
+    private static class RawJavaDoc
+        implements DeferredJavaDoc
+    {
+        private final DocletTagFactory docletTagFactory;
+
+        private final List<String> comments = new ArrayList<String>( 1 );
+
+        private final List<int[]> positions = new ArrayList<int[]>( 1 );
+
+        private final JavaSource source;
+
+        private final transient ErrorHandler errorHandler;
+
+        private transient ModelBuilder result;
+
+        RawJavaDoc( DocletTagFactory docletTagFactory, JavaSource source, ErrorHandler errorHandler )
+        {
+            this.docletTagFactory = docletTagFactory;
+            this.source = source;
+            this.errorHandler = errorHandler;
+        }
+
+        void add( String comment, int line, int column )
+        {
+            comments.add( comment );
+            positions.add( new int[] { line, column } );
+        }
+
+        void parse( Builder builder )
+        {
+            CommentParser commentParser = CommentParser.IDLE.get();
+            if ( commentParser == null )
+            {
+                commentParser = new CommentParser();
+            }
+            else
+            {
+                CommentParser.IDLE.set( null );
+            }
+            try
+            {
+                for ( int i = 0; i < comments.size(); i++ )
+                {
+                    commentParser.lexer.reset( new StringReader( comments.get( i ) ) );
+                    commentParser.parser.reset( builder );
+                    commentParser.lexer.setLineOffset( positions.get( i )[0] );
+                    commentParser.lexer.setColumnOffset( positions.get( i )[1] );
+                    commentParser.parser.parse();
+                }
+            }
+            finally
+            {
+                commentParser.lexer.reset( null );
+                commentParser.parser.reset( null );
+                CommentParser.IDLE.set( commentParser );
+            }
+        }
+
+        private ModelBuilder getResult()
+        {
+            if ( result == null )
+            {
+                ModelBuilder builder = new ModelBuilder( null, docletTagFactory );
+                try
+                {
+                    parse( builder );
+                }
+                catch ( ParseException pe )
+                {
+                    if ( source.getURL() != null )
+                    {
+                        pe.setSourceInfo( source.getURL().toExternalForm() );
+                    }
+                    if ( errorHandler == null )
+                    {
+                        throw pe;
+                    }
+                    errorHandler.handle( pe );
+                    // a handled error leaves the entity without javadoc
+                    builder = new ModelBuilder( null, docletTagFactory );
+                }
+                result = builder;
+            }
+            return result;
+        }
+
+        public String getComment()
+        {
+            return getResult().lastComment;
+        }
+
+        public List<DocletTag> getTags( AbstractBaseJavaEntity entity )
+        {
+            return getResult().createDocletTags( entity );
+        }
+    }
 }
\ No newline at end of file
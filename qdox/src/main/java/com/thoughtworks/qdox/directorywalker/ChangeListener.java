@@ -0,0 +1,40 @@
+package com.thoughtworks.qdox.directorywalker;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Receives the changes detected by a {@link DirectoryWatcher} during a single poll.
+ */
+public interface ChangeListener
+{
+
+    /**
+     * All lists are sorted by path.
+     * 
+     * @param created the files which have been created since the previous poll, never <code>null</code>
+     * @param modified the files which have been modified since the previous poll, never <code>null</code>
+     * @param deleted the files which have been deleted since the previous poll, never <code>null</code>
+     */
+    void filesChanged( List<File> created, List<File> modified, List<File> deleted );
+
+}
@@ -0,0 +1,231 @@
+package com.thoughtworks.qdox.directorywalker;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Detects files which have been created, modified or deleted in a directory since the previous poll. The content of a
+ * directory is only listed again when its timestamp has changed, which happens when entries are added or removed.
+ * Directories which were modified shortly before they were listed are listed again by the next poll, since entries
+ * added within the resolution of their timestamp wouldn't change it.
+ * <p>
+ * Changing the content of a file doesn't change the timestamp of its directory, so every poll still walks the whole
+ * tree and reads the timestamp and length of every matching file. The cost of a poll grows with the size of the tree,
+ * not with the number of changes. To bound this cost a poll within {@link #setMinPollInterval(long) the minimum
+ * interval} after the previous one is skipped, its changes are reported by a later poll.
+ */
+public class DirectoryWatcher
+{
+    private static final Comparator<File> PATH_ORDER = new Comparator<File>()
+    {
+        public int compare( File o1, File o2 )
+        {
+            return o1.getPath().compareTo( o2.getPath() );
+        }
+    };
+
+    /**
+     * Timestamps within this interval before the listing are not trusted, it covers the resolution of most filesystems.
+     */
+    private static final long RACY_INTERVAL = 2000L;
+
+    /**
+     * The default minimum time in milliseconds between two polls which walk the tree.
+     */
+    public static final long DEFAULT_MIN_POLL_INTERVAL = 1000L;
+
+    private File directory;
+
+    private Collection<Filter> filters = new HashSet<Filter>();
+
+    private Map<File, DirectoryState> directories = new HashMap<File, DirectoryState>();
+
+    // the signature of every file, based on its timestamp and length
+    private Map<File, Long> files = new HashMap<File, Long>();
+
+    private long minPollInterval = DEFAULT_MIN_POLL_INTERVAL;
+
+    // the time the tree has been walked for the last time
+    private long lastPoll;
+
+    /**
+     * 
+     * @param directory the directory to watch
+     */
+    public DirectoryWatcher( File directory )
+    {
+        this.directory = directory;
+    }
+
+    /**
+     * Add a filter to this watcher. Filters should be added before the first poll.
+     * 
+     * @param filter the filter
+     */
+    public void addFilter( Filter filter )
+    {
+        this.filters.add( filter );
+    }
+
+    /**
+     * Set the minimum time between two polls which walk the tree. A poll within this interval after the previous one
+     * returns without checking anything. The default is {@link #DEFAULT_MIN_POLL_INTERVAL}.
+     * 
+     * @param minPollInterval the interval in milliseconds, <code>0</code> to walk the tree on every poll
+     */
+    public synchronized void setMinPollInterval( long minPollInterval )
+    {
+        this.minPollInterval = minPollInterval;
+    }
+
+    /**
+     * Check the directory for changes. The first poll only records the current state, all later polls pass the
+     * changes since the previous poll to the {@code listener}, unless nothing has changed or the poll is within the
+     * minimum interval after the previous one.
+     * 
+     * @param listener the listener for the changes
+     */
+    public synchronized void poll( ChangeListener listener )
+    {
+        boolean initial = directories.isEmpty();
+        long now = System.currentTimeMillis();
+        // a clock which has been set back doesn't postpone the next poll
+        if ( !initial && now >= lastPoll && now - lastPoll < minPollInterval )
+        {
+            return;
+        }
+        lastPoll = now;
+        Map<File, DirectoryState> currentDirectories = new HashMap<File, DirectoryState>();
+        Map<File, Long> currentFiles = new HashMap<File, Long>();
+        walk( directory, currentDirectories, currentFiles );
+
+        List<File> created = new ArrayList<File>();
+        List<File> modified = new ArrayList<File>();
+        for ( Map.Entry<File, Long> entry : currentFiles.entrySet() )
+        {
+            Long previous = files.get( entry.getKey() );
+            if ( previous == null )
+            {
+                created.add( entry.getKey() );
+            }
+            else if ( !previous.equals( entry.getValue() ) )
+            {
+                modified.add( entry.getKey() );
+            }
+        }
+        List<File> deleted = new ArrayList<File>();
+        for ( File file : files.keySet() )
+        {
+            if ( !currentFiles.containsKey( file ) )
+            {
+                deleted.add( file );
+            }
+        }
+        directories = currentDirectories;
+        files = currentFiles;
+
+        if ( !initial && !( created.isEmpty() && modified.isEmpty() && deleted.isEmpty() ) )
+        {
+            Collections.sort( created, PATH_ORDER );
+            Collections.sort( modified, PATH_ORDER );
+            Collections.sort( deleted, PATH_ORDER );
+            listener.filesChanged( created, modified, deleted );
+        }
+    }
+
+    private void walk( File current, Map<File, DirectoryState> currentDirectories, Map<File, Long> currentFiles )
+    {
+        long lastModified = current.lastModified();
+        DirectoryState state = directories.get( current );
+        if ( state == null || state.lastModified != lastModified
+            || lastModified >= state.listed - RACY_INTERVAL )
+        {
+            state = new DirectoryState( lastModified, System.currentTimeMillis() );
+            File[] children = current.listFiles();
+            if ( children != null )
+            {
+                for ( File child : children )
+                {
+                    if ( child.isDirectory() )
+                    {
+                        state.directories.add( child );
+                    }
+                    else if ( accept( child ) )
+                    {
+                        state.files.add( child );
+                    }
+                }
+            }
+        }
+        currentDirectories.put( current, state );
+        for ( File file : state.files )
+        {
+            long fileModified = file.lastModified();
+            // 0 means the file has been removed without changing the timestamp of the directory yet
+            if ( fileModified != 0L )
+            {
+                // include the length, timestamps might not change when a file is saved twice within their resolution
+                currentFiles.put( file, Long.valueOf( fileModified * 31 + file.length() ) );
+            }
+        }
+        for ( File dir : state.directories )
+        {
+            walk( dir, currentDirectories, currentFiles );
+        }
+    }
+
+    private boolean accept( File file )
+    {
+        for ( Filter filter : filters )
+        {
+            if ( !filter.filter( file ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static class DirectoryState
+    {
+        private final long lastModified;
+
+        private final long listed;
+
+        private final List<File> directories = new ArrayList<File>();
+
+        private final List<File> files = new ArrayList<File>();
+
+        DirectoryState( long lastModified, long listed )
+        {
+            this.lastModified = lastModified;
+            this.listed = listed;
+        }
+    }
+}
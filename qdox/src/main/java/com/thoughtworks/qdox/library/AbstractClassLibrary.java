@@ -22,8 +22,12 @@ package com.thoughtworks.qdox.library;
 import java.net.URL;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import com.thoughtworks.qdox.builder.Builder;
 import com.thoughtworks.qdox.builder.ModelBuilderFactory;
@@ -33,6 +37,7 @@ import com.thoughtworks.qdox.model.JavaPackage;
 import com.thoughtworks.qdox.model.JavaSource;
 import com.thoughtworks.qdox.model.impl.DefaultDocletTagFactory;
 import com.thoughtworks.qdox.model.impl.DefaultJavaPackage;
+import com.thoughtworks.qdox.parser.impl.SymbolTable;
 import com.thoughtworks.qdox.parser.structs.ClassDef;
 import com.thoughtworks.qdox.writer.ModelWriterFactory;
 
@@ -56,6 +61,20 @@ public abstract class AbstractClassLibrary
     
     private JavaClassContext context = new JavaClassContext();
 
+    private transient SymbolTable symbolTable;
+
+    private transient TypeHierarchy typeHierarchy;
+
+    private transient Map<String, Set<String>> typeNames;
+
+    private transient long typeNamesModificationCount;
+
+    private volatile long modificationCount;
+
+    private final MissingClassCache unresolvedClasses = new MissingClassCache();
+
+    private final MissingClassCache unreferencedClasses = new MissingClassCache();
+
     /**
      * constructor for root ClassLibrary
      */
@@ -71,6 +90,235 @@ public abstract class AbstractClassLibrary
         this.parentClassLibrary = parent;
     }
 
+    /**
+     * The symboltable is shared by all libraries of the chain, so every identifier is kept only once, no matter which
+     * library parsed it.
+     * 
+     * @return the symboltable of the root library, never <code>null</code>
+     */
+    protected final SymbolTable getSymbolTable()
+    {
+        if ( parentClassLibrary != null )
+        {
+            return parentClassLibrary.getSymbolTable();
+        }
+        synchronized ( this )
+        {
+            if ( symbolTable == null )
+            {
+                symbolTable = new SymbolTable();
+            }
+            return symbolTable;
+        }
+    }
+
+    /**
+     * The type hierarchy of the classes of this library, used to check if a class extends or implements another one
+     * and to find the derived classes of a class.
+     * 
+     * @return the type hierarchy, never <code>null</code>
+     */
+    public final synchronized TypeHierarchy getTypeHierarchy()
+    {
+        if ( typeHierarchy == null )
+        {
+            typeHierarchy = new TypeHierarchy( this );
+        }
+        return typeHierarchy;
+    }
+
+    /**
+     * The names of the top level types of a package, so a type-import-on-demand can be skipped without looking for a
+     * class which doesn't exist. Not every library can list its types, for instance a classloader without index or the
+     * bootstrap classes on Java 9 and later, in which case every import has to be tried.
+     * 
+     * @param packageName the name of the package
+     * @return the simple names of the top level types of the package, <code>null</code> if not all libraries of the
+     *         chain can list them
+     */
+    public final synchronized Set<String> getTypeNames( String packageName )
+    {
+        long currentModificationCount = getModificationCount();
+        if ( typeNames == null || typeNamesModificationCount != currentModificationCount )
+        {
+            typeNames = new HashMap<String, Set<String>>();
+            typeNamesModificationCount = currentModificationCount;
+        }
+        if ( typeNames.containsKey( packageName ) )
+        {
+            return typeNames.get( packageName );
+        }
+        Set<String> result = new HashSet<String>();
+        for ( AbstractClassLibrary library = this; library != null; library = library.parentClassLibrary )
+        {
+            if ( !library.addTypeNames( packageName, result ) )
+            {
+                result = null;
+                break;
+            }
+        }
+        if ( result != null )
+        {
+            result = Collections.unmodifiableSet( result );
+        }
+        typeNames.put( packageName, result );
+        return result;
+    }
+
+    /**
+     * Add the simple names of the top level types of the package this library can resolve. Names of types which don't
+     * exist are allowed, but a type this library can resolve must never be missing. The names are kept until
+     * {@link #modified()} is called.
+     * 
+     * @param packageName the name of the package
+     * @param typeNames the names to add to
+     * @return <code>false</code> if this library can't list the types of a package
+     */
+    protected boolean addTypeNames( String packageName, Set<String> typeNames )
+    {
+        return false;
+    }
+
+    /**
+     * Every time classes are added to or removed from the library, the modification count changes. Caches based on
+     * the content of this library should be cleared once it differs from the count they were filled with. The count is
+     * shared by all libraries of the chain, so caches based on any of them can detect that classes have been added or
+     * removed.
+     * 
+     * @return the number of modifications of the chain of libraries
+     */
+    public final long getModificationCount()
+    {
+        if ( parentClassLibrary != null )
+        {
+            return parentClassLibrary.getModificationCount();
+        }
+        return modificationCount;
+    }
+
+    /**
+     * Subclasses must call this method when classes, or the locations to find them, are added or removed, so caches
+     * based on the library will be invalidated. This includes the names of the classes this library couldn't find.
+     */
+    protected final void modified()
+    {
+        incrementModificationCount();
+    }
+
+    /**
+     * Like {@link #modified()}, but the type hierarchies of the chain only forget the supertypes of the classes which
+     * might refer to the added or removed classes instead of everything.
+     * 
+     * @param classes the classes which have been added or removed
+     */
+    protected final void modified( Collection<JavaClass> classes )
+    {
+        long currentModificationCount = incrementModificationCount();
+        for ( AbstractClassLibrary library = this; library != null; library = library.parentClassLibrary )
+        {
+            TypeHierarchy hierarchy;
+            synchronized ( library )
+            {
+                hierarchy = library.typeHierarchy;
+            }
+            if ( hierarchy != null )
+            {
+                hierarchy.update( classes, currentModificationCount );
+            }
+        }
+    }
+
+    private long incrementModificationCount()
+    {
+        if ( parentClassLibrary != null )
+        {
+            return parentClassLibrary.incrementModificationCount();
+        }
+        synchronized ( this )
+        {
+            return ++modificationCount;
+        }
+    }
+
+    /**
+     * Close the files this library and its ancestors keep opened. The library can still be used, the files are opened
+     * again once they are needed.
+     * 
+     * @since 2.0
+     */
+    public void close()
+    {
+        if ( parentClassLibrary != null )
+        {
+            parentClassLibrary.close();
+        }
+    }
+
+    /**
+     * @param javaClass the class
+     * @return <code>true</code> if this class is registered in the context of this library or one of its ancestors
+     */
+    final boolean isRegistered( JavaClass javaClass )
+    {
+        for ( AbstractClassLibrary library = this; library != null; library = library.parentClassLibrary )
+        {
+            if ( library.getRegisteredJavaClass( javaClass.getFullyQualifiedName() ) == javaClass )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Contrary to {@link #getJavaClass(String)} the class is never resolved. Subclasses with a context of their own
+     * should check it too.
+     * 
+     * @param name the fully qualified name of the class
+     * @return the class registered in the context of this library, otherwise <code>null</code>
+     */
+    protected JavaClass getRegisteredJavaClass( String name )
+    {
+        return context.getClassByName( name );
+    }
+
+    /**
+     * The version of the contexts of this library and its ancestors, which changes whenever any of them gets or loses a
+     * class, package or source. Subclasses with a context of their own should include its version.
+     * 
+     * @return the version of the contexts of the chain
+     */
+    protected long getContextVersion()
+    {
+        long result = context.getVersion();
+        if ( parentClassLibrary != null )
+        {
+            result += parentClassLibrary.getContextVersion();
+        }
+        return result;
+    }
+
+    /**
+     * Remove the source with this url and its classes from the context of this library and all its ancestors. The
+     * caller is responsible for calling {@link #modified()}.
+     * 
+     * @param url the url of the source
+     * @return the removed source, otherwise <code>null</code>
+     */
+    protected JavaSource removeJavaSource( URL url )
+    {
+        JavaSource result = context.removeSource( url );
+        if ( parentClassLibrary != null )
+        {
+            JavaSource parentResult = parentClassLibrary.removeJavaSource( url );
+            if ( result == null )
+            {
+                result = parentResult;
+            }
+        }
+        return result;
+    }
+
     /**
      * First checks if there's a JavaClass available in the private context by this name. Otherwise try to resolve it by
      * the concrete class. If there's still no JavaClass, ask the parent (if available) to resolve it.
@@ -84,11 +332,17 @@ public abstract class AbstractClassLibrary
     
     public final JavaClass getJavaClass( String name, boolean createStub ) {
         JavaClass result = context.getClassByName( name );
-        if ( result == null )
+        // speculative names of the type resolution are often missing, don't look for them over and over again
+        long currentModificationCount = getModificationCount();
+        if ( result == null && !unresolvedClasses.contains( name, currentModificationCount ) )
         {
             result = resolveJavaClass( name );
 
-            if ( result != null )  
+            if ( result == null )
+            {
+                unresolvedClasses.add( name, currentModificationCount );
+            }
+            else
             {
                 context.add( result );
                 context.add( result.getSource() );
@@ -261,8 +515,12 @@ public abstract class AbstractClassLibrary
     public boolean hasClassReference( String name )
     {
         boolean result = context.getClassByName( name ) != null;
-        if ( !result ) {
+        long currentModificationCount = getModificationCount();
+        if ( !result && !unreferencedClasses.contains( name, currentModificationCount ) ) {
             result = containsClassReference( name );
+            if ( !result ) {
+                unreferencedClasses.add( name, currentModificationCount );
+            }
         }
         if ( !result && parentClassLibrary != null ) {
             result = parentClassLibrary.hasClassReference( name );
@@ -327,8 +585,18 @@ public abstract class AbstractClassLibrary
             result = new ModelBuilder( this, new DefaultDocletTagFactory() );
         }
         result.setModelWriterFactory( modelWriterFactory );
+        result.setErrorHandler( getErrorHandler() );
         return result;
     }
+
+    /**
+     * @return the errorHandler for the javadoc which is parsed once it is requested, <code>null</code> to throw the
+     *         {@link com.thoughtworks.qdox.parser.ParseException} instead
+     */
+    protected ErrorHandler getErrorHandler()
+    {
+        return null;
+    }
     
     protected Builder getModelBuilder( URL url )
     {
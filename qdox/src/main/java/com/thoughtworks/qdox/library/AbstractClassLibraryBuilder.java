@@ -0,0 +1,136 @@
+package com.thoughtworks.qdox.library;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import com.thoughtworks.qdox.directorywalker.FileVisitor;
+import com.thoughtworks.qdox.model.JavaSource;
+
+/**
+ * The base for the ClassLibraryBuilders of QDox, which next to the {@link ClassLibraryBuilder} methods support class
+ * paths, snapshots, changing sources and parse options.
+ * These methods aren't part of the interface, so existing implementations of {@link ClassLibraryBuilder} keep working.
+ *
+ * @author Robert Scholte
+ * @since 2.0
+ */
+public abstract class AbstractClassLibraryBuilder
+    implements ClassLibraryBuilder
+{
+    /**
+     * Append a jar or a directory with class files, of which the classes are read without loading them.
+     *
+     * @param classPathEntry the jar or directory to add
+     * @return this ClassLibraryBuilder instance
+     */
+    public abstract ClassLibraryBuilder appendClassPath( File classPathEntry );
+
+    /**
+     * Add a snapshot, of which the classes are only built once they are requested.
+     *
+     * @param file the snapshot written by {@link #saveSnapshot(File)}
+     * @return this ClassLibraryBuilder instance
+     * @throws IOException if the file can't be read or isn't a snapshot
+     */
+    public abstract ClassLibraryBuilder appendSnapshot( File file ) throws IOException;
+
+    /**
+     * Write the sources as a snapshot, which can be added without parsing the sources again.
+     *
+     * @param file the file to write to
+     * @throws IOException if a source or the file can't be read or written
+     */
+    public abstract void saveSnapshot( File file ) throws IOException;
+
+    /**
+     * Replace the source of the file with its current content.
+     *
+     * @param file the changed file
+     * @return the created JavaSource
+     * @throws IOException if the file can't be read
+     */
+    public abstract JavaSource updateSource( File file ) throws IOException;
+
+    /**
+     * Remove the source with this url and its classes.
+     *
+     * @param url the url of the source
+     * @return the removed JavaSource, otherwise <code>null</code>
+     */
+    public abstract JavaSource removeSource( URL url );
+
+    /**
+     * Parse the file with the configuration of the library, without adding it. The source still resolves its types
+     * with the library, but the library doesn't keep a reference to it.
+     *
+     * @param file the file to parse
+     * @return the parsed JavaSource, <code>null</code> if a parse error was handled by the errorHandler
+     * @throws IOException if the file can't be read
+     */
+    public abstract JavaSource parseSource( File file ) throws IOException;
+
+    /**
+     * Parse the files concurrently and add them in the order of the list.
+     *
+     * @param files the files to add
+     * @param executor the executor used to parse the files, it won't be shut down
+     * @param errorHandler called for every file which can't be read
+     * @return the created JavaSources, in the order of the files
+     */
+    public abstract List<JavaSource> addSources( List<File> files, ExecutorService executor, FileVisitor errorHandler );
+
+    /**
+     * Skip the content of method-, constructor- and initializer-bodies while parsing.
+     * Use this if you're only interested in the signatures, it will speed up the parsing of large codebases.
+     *
+     * @param skipCodeBlocks
+     * @return this ClassLibraryBuilder instance
+     */
+    public abstract ClassLibraryBuilder setSkipCodeBlocks( boolean skipCodeBlocks );
+
+    /**
+     * Only keep the offsets of method-, constructor- and initializer-bodies and field initializers while parsing
+     * sources, their content is read once it is requested.
+     * Use this if you only need the content of some of them, it will reduce the memory of large codebases.
+     *
+     * @param lazyCodeBlocks
+     * @return this ClassLibraryBuilder instance
+     */
+    public abstract ClassLibraryBuilder setLazyCodeBlocks( boolean lazyCodeBlocks );
+
+    /**
+     * Keep the structure of parsed files in a directory, so unchanged files don't have to be parsed again.
+     *
+     * @param cacheDirectory the directory, <code>null</code> to parse every file
+     * @return this ClassLibraryBuilder instance
+     */
+    public abstract ClassLibraryBuilder setCacheDirectory( File cacheDirectory );
+
+    /**
+     * Close the files the libraries keep opened, like the jars of the class path. The libraries can still be used,
+     * the files are opened again once they are needed.
+     */
+    public abstract void close();
+}
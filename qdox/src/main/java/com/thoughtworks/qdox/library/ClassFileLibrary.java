@@ -0,0 +1,284 @@
+package com.thoughtworks.qdox.library;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import com.thoughtworks.qdox.builder.Builder;
+import com.thoughtworks.qdox.model.JavaClass;
+import com.thoughtworks.qdox.model.JavaPackage;
+import com.thoughtworks.qdox.model.impl.DefaultJavaPackage;
+import com.thoughtworks.qdox.parser.impl.ClassFileParser;
+
+/**
+ * A library which reads the class files of jars and directories. Contrary to the {@link ClassLoaderLibrary} the
+ * classes are never loaded, so the dependencies of a class don't have to be available and the JVM isn't affected by
+ * the classes it resolves.
+ *
+ * @author Robert Scholte
+ * @since 2.0
+ */
+public class ClassFileLibrary
+    extends AbstractClassLibrary
+{
+    private List<File> classPath = new LinkedList<File>();
+
+    private transient Map<File, ZipFile> jars;
+
+    private transient ClassPathIndex index;
+
+    public ClassFileLibrary( AbstractClassLibrary parent )
+    {
+        super( parent );
+    }
+
+    /**
+     * The jars are indexed once a class is requested, including the jars of the <code>Class-Path</code> of their
+     * manifest. A directory is checked for every class which hasn't been resolved yet.
+     * 
+     * @param classPathEntry a jar or a directory with class files
+     */
+    public synchronized void addClassPath( File classPathEntry )
+    {
+        classPath.add( classPathEntry );
+        index = null;
+        modified();
+    }
+
+    /**
+     * @return the index of all classes of the classpath
+     */
+    private synchronized ClassPathIndex getIndex()
+    {
+        if ( index == null )
+        {
+            index = new ClassPathIndex();
+            for ( File classPathEntry : classPath )
+            {
+                index.add( classPathEntry );
+            }
+        }
+        return index;
+    }
+
+    @Override
+    protected JavaClass resolveJavaClass( String name )
+    {
+        JavaClass result = null;
+        if ( !getIndex().containsClass( name ) )
+        {
+            return null;
+        }
+        // the jars of the manifests are part of the index as well
+        for ( final File classPathEntry : getIndex().getEntries() )
+        {
+            byte[] classFile = readClassFile( classPathEntry, name );
+            if ( classFile == null )
+            {
+                continue;
+            }
+            // member classes are added by their declaring class
+            String declaringClassName = new ClassFileParser( classFile, null ).getDeclaringClassName();
+            while ( declaringClassName != null )
+            {
+                byte[] declaringClassFile = readClassFile( classPathEntry, declaringClassName );
+                if ( declaringClassFile == null )
+                {
+                    break;
+                }
+                classFile = declaringClassFile;
+                declaringClassName = new ClassFileParser( classFile, null ).getDeclaringClassName();
+            }
+
+            Builder builder = getModelBuilder();
+            ClassFileParser parser = new ClassFileParser( classFile, builder )
+            {
+                @Override
+                protected byte[] readNestedClass( String nestedClassName )
+                {
+                    return readClassFile( classPathEntry, nestedClassName );
+                }
+            };
+            if ( parser.parse() )
+            {
+                result = builder.getSource().getClassByName( name );
+                if ( result != null )
+                {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    protected JavaPackage resolveJavaPackage( String name )
+    {
+        DefaultJavaPackage result = null;
+        if ( getIndex().containsPackage( name ) )
+        {
+            result = new DefaultJavaPackage( name );
+            result.setClassLibrary( this );
+        }
+        return result;
+    }
+
+    @Override
+    protected boolean containsClassReference( String name )
+    {
+        return getIndex().containsClass( name );
+    }
+
+    @Override
+    protected boolean addTypeNames( String packageName, Set<String> typeNames )
+    {
+        getIndex().addTypeNames( packageName, typeNames );
+        return true;
+    }
+
+    /**
+     * @param classPathEntry the jar or directory
+     * @param name the binary name of the class
+     * @return the content of the class file, <code>null</code> if it doesn't exist or can't be read
+     */
+    private byte[] readClassFile( File classPathEntry, String name )
+    {
+        String path = name.replace( '.', '/' ) + ".class";
+        try
+        {
+            if ( classPathEntry.isDirectory() )
+            {
+                File file = new File( classPathEntry, path );
+                return file.isFile() ? readFully( new FileInputStream( file ), (int) file.length() ) : null;
+            }
+            ZipFile jar = getJar( classPathEntry );
+            ZipEntry entry = ( jar != null ? jar.getEntry( path ) : null );
+            return entry != null ? readFully( jar.getInputStream( entry ), (int) entry.getSize() ) : null;
+        }
+        catch ( IOException e )
+        {
+            return null;
+        }
+    }
+
+    private static byte[] readFully( InputStream stream, int size )
+        throws IOException
+    {
+        try
+        {
+            byte[] result = new byte[size >= 0 ? size : 8192];
+            int length = 0;
+            int read;
+            while ( ( read = stream.read( result, length, result.length - length ) ) != -1 )
+            {
+                length += read;
+                if ( length == result.length )
+                {
+                    // the size is unknown or wrong, check for more
+                    int next = stream.read();
+                    if ( next == -1 )
+                    {
+                        break;
+                    }
+                    byte[] larger = new byte[result.length * 2 + 1];
+                    System.arraycopy( result, 0, larger, 0, length );
+                    larger[length++] = (byte) next;
+                    result = larger;
+                }
+            }
+            if ( length < result.length )
+            {
+                byte[] exact = new byte[length];
+                System.arraycopy( result, 0, exact, 0, length );
+                result = exact;
+            }
+            return result;
+        }
+        finally
+        {
+            stream.close();
+        }
+    }
+
+    /**
+     * Close the jars of the class path.
+     */
+    @Override
+    public void close()
+    {
+        synchronized ( this )
+        {
+            if ( jars != null )
+            {
+                for ( ZipFile jar : jars.values() )
+                {
+                    try
+                    {
+                        jar.close();
+                    }
+                    catch ( IOException e )
+                    {
+                        // nothing is read from it anymore
+                    }
+                }
+                jars = null;
+            }
+        }
+        super.close();
+    }
+
+    /**
+     * The jars stay opened until {@link #close()} is called, so their central directories are only read once.
+     *
+     * @param jarFile the jar
+     * @return the opened jar, <code>null</code> if it can't be opened
+     */
+    private synchronized ZipFile getJar( File jarFile )
+    {
+        if ( jars == null )
+        {
+            jars = new HashMap<File, ZipFile>();
+        }
+        ZipFile result = jars.get( jarFile );
+        if ( result == null && jarFile.isFile() )
+        {
+            try
+            {
+                result = new ZipFile( jarFile );
+                jars.put( jarFile, result );
+            }
+            catch ( IOException e )
+            {
+                // not a jar, no classes can be read from it
+            }
+        }
+        return result;
+    }
+}
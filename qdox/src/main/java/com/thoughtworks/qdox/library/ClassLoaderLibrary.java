@@ -19,22 +19,30 @@ package com.thoughtworks.qdox.library;
  * under the License.
  */
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.ObjectInputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringTokenizer;
+import java.util.WeakHashMap;
 
 import com.thoughtworks.qdox.builder.Builder;
 import com.thoughtworks.qdox.builder.impl.ModelBuilder;
 import com.thoughtworks.qdox.model.JavaClass;
 import com.thoughtworks.qdox.model.JavaPackage;
 import com.thoughtworks.qdox.model.impl.DefaultJavaPackage;
-import com.thoughtworks.qdox.parser.JavaLexer;
 import com.thoughtworks.qdox.parser.ParseException;
 import com.thoughtworks.qdox.parser.impl.BinaryClassParser;
-import com.thoughtworks.qdox.parser.impl.JFlexLexer;
 import com.thoughtworks.qdox.parser.impl.Parser;
 
 /**
@@ -61,6 +69,24 @@ import com.thoughtworks.qdox.parser.impl.Parser;
 public class ClassLoaderLibrary
     extends AbstractClassLibrary
 {
+    /**
+     * The classloaders which only define the classes of their urls, so their classes can be indexed. Since Java 9 the
+     * application classloader is no URLClassLoader anymore, so it can't be indexed and its classes are loaded instead.
+     */
+    private static final Set<String> INDEXED_CLASSLOADERS = new HashSet<String>(
+        Arrays.asList( "java.net.URLClassLoader", "sun.misc.Launcher$AppClassLoader",
+                       "sun.misc.Launcher$ExtClassLoader" ) );
+
+    private static final Map<ClassLoader, ClassPathIndex> CLASSLOADER_INDICES =
+        new WeakHashMap<ClassLoader, ClassPathIndex>();
+
+    private static ClassPathIndex bootstrapIndex;
+
+    /**
+     * Finds the class files of the bootstrap classes if they can't be indexed
+     */
+    private static final ClassLoader BOOTSTRAP_RESOURCES = new URLClassLoader( new URL[0], null );
+
     private transient List<ClassLoader> classLoaders = new LinkedList<ClassLoader>();
 
     private boolean defaultClassLoadersAdded = false;
@@ -68,6 +94,8 @@ public class ClassLoaderLibrary
     private boolean debugLexer;
 
     private boolean debugParser;
+
+    private boolean skipCodeBlocks;
     
     private ErrorHandler errorHandler;
     
@@ -85,6 +113,7 @@ public class ClassLoaderLibrary
     public void addClassLoader( ClassLoader classLoader )
     {
         classLoaders.add( classLoader );
+        modified();
     }
 
     public void addDefaultLoader()
@@ -93,6 +122,7 @@ public class ClassLoaderLibrary
         {
             classLoaders.add( getClass().getClassLoader() );
             classLoaders.add( Thread.currentThread().getContextClassLoader() );
+            modified();
         }
         defaultClassLoadersAdded = true;
     }
@@ -113,8 +143,11 @@ public class ClassLoaderLibrary
             if ( sourceStream != null )
             {
                 Builder builder = getModelBuilder();
-                JavaLexer lexer = new JFlexLexer( sourceStream );
-                Parser parser = new Parser( lexer, builder );
+                PooledParser pooledParser = PooledParser.acquire( new InputStreamReader( sourceStream ), builder );
+                pooledParser.getLexer().setSkipCodeBlocks( skipCodeBlocks );
+                pooledParser.getLexer().setSkipAssignments( false );
+                pooledParser.getLexer().setSymbolTable( getSymbolTable() );
+                Parser parser = pooledParser.getParser();
                 parser.setDebugLexer( debugLexer );
                 parser.setDebugParser( debugParser );
                 try
@@ -137,8 +170,13 @@ public class ClassLoaderLibrary
                         throw pe;
                     }
                 }
+                finally
+                {
+                    pooledParser.release();
+                }
             }
-            if ( result == null )
+            // skip the ClassNotFoundException if the index already knows the class doesn't exist
+            if ( result == null && !Boolean.FALSE.equals( findIndexedClass( classLoader, name ) ) )
             {
                 try
                 {
@@ -186,6 +224,11 @@ public class ClassLoaderLibrary
         }
     }
     
+    /**
+     * The classes of the classloaders are indexed where possible, so a class which doesn't exist is detected without
+     * loading it. Only classloaders which can't be indexed have to be asked to load the class. On Java 9 and later this
+     * applies to the application classloader, so there this speedup only works for URLClassLoaders.
+     */
     @Override
     protected boolean containsClassReference( String name )
     {
@@ -193,6 +236,12 @@ public class ClassLoaderLibrary
         for(Iterator<ClassLoader> iter = classLoaders.iterator();!result && iter.hasNext(); )
         {
             ClassLoader classLoader = (ClassLoader) iter.next();
+            Boolean indexed = findIndexedClass( classLoader, name );
+            if ( indexed != null )
+            {
+                result = indexed.booleanValue();
+                continue;
+            }
             try
             {
                 Class<?> clazz = classLoader.loadClass( name );
@@ -204,6 +253,119 @@ public class ClassLoaderLibrary
         }
         return result;
     }
+
+    /**
+     * Only if all classloaders and their parents and the bootstrap classes can be indexed the types of a package can be
+     * listed, which requires Java 8 or earlier.
+     */
+    @Override
+    protected boolean addTypeNames( String packageName, Set<String> typeNames )
+    {
+        for ( ClassLoader classLoader : classLoaders )
+        {
+            for ( ClassLoader current = classLoader; current != null; current = current.getParent() )
+            {
+                ClassPathIndex index = getIndex( current );
+                if ( index == null )
+                {
+                    return false;
+                }
+                index.addTypeNames( packageName, typeNames );
+            }
+        }
+        if ( !classLoaders.isEmpty() )
+        {
+            ClassPathIndex index = getBootstrapIndex();
+            if ( index == null )
+            {
+                return false;
+            }
+            index.addTypeNames( packageName, typeNames );
+        }
+        return true;
+    }
+
+    /**
+     * @param classLoader the classloader
+     * @param name the binary name of the class
+     * @return whether the classloader or one of its parents has a class file for the class, <code>null</code> if
+     *         not all of them can be indexed
+     */
+    private static Boolean findIndexedClass( ClassLoader classLoader, String name )
+    {
+        for ( ClassLoader current = classLoader; current != null; current = current.getParent() )
+        {
+            ClassPathIndex index = getIndex( current );
+            if ( index == null )
+            {
+                return null;
+            }
+            if ( index.containsClass( name ) )
+            {
+                return Boolean.TRUE;
+            }
+        }
+        ClassPathIndex index = getBootstrapIndex();
+        if ( index != null )
+        {
+            return Boolean.valueOf( index.containsClass( name ) );
+        }
+        return Boolean.valueOf( BOOTSTRAP_RESOURCES.getResource( name.replace( '.', '/' ) + ".class" ) != null );
+    }
+
+    /**
+     * The index only contains the classes of this classloader, not those of its parents. Indices are shared by all
+     * libraries, since the jars of a classloader never change. Its directories are checked for every class.
+     * 
+     * @param classLoader the classloader
+     * @return the index, <code>null</code> if the classloader can't be indexed
+     */
+    private static ClassPathIndex getIndex( ClassLoader classLoader )
+    {
+        if ( !INDEXED_CLASSLOADERS.contains( classLoader.getClass().getName() ) )
+        {
+            return null;
+        }
+        synchronized ( CLASSLOADER_INDICES )
+        {
+            if ( CLASSLOADER_INDICES.containsKey( classLoader ) )
+            {
+                return CLASSLOADER_INDICES.get( classLoader );
+            }
+            ClassPathIndex result = new ClassPathIndex();
+            for ( URL url : ( (URLClassLoader) classLoader ).getURLs() )
+            {
+                if ( !result.add( url ) )
+                {
+                    result = null;
+                    break;
+                }
+            }
+            CLASSLOADER_INDICES.put( classLoader, result );
+            return result;
+        }
+    }
+
+    /**
+     * Since Java 9 the bootstrap classes are part of the runtime image, which isn't indexed. The class files are looked
+     * up with {@link #BOOTSTRAP_RESOURCES} instead.
+     * 
+     * @return the index of the bootstrap classes, <code>null</code> if the JVM doesn't expose the bootstrap classpath
+     */
+    private static synchronized ClassPathIndex getBootstrapIndex()
+    {
+        String bootClassPath = System.getProperty( "sun.boot.class.path" );
+        if ( bootstrapIndex == null && bootClassPath != null )
+        {
+            bootstrapIndex = new ClassPathIndex();
+            for ( StringTokenizer tokens = new StringTokenizer( bootClassPath, File.pathSeparator ); tokens
+                .hasMoreTokens(); )
+            {
+                bootstrapIndex.add( new File( tokens.nextToken() ) );
+            }
+        }
+        return bootstrapIndex;
+    }
     
     /**
      * Use the Lexer in debug mode
@@ -225,8 +387,24 @@ public class ClassLoaderLibrary
         this.debugParser = debugParser;
     }
     
+    /**
+     * Skip the content of method-, constructor- and initializer-bodies when parsing sources
+     * 
+     * @param skipCodeBlocks
+     */
+    public void setSkipCodeBlocks( boolean skipCodeBlocks )
+    {
+        this.skipCodeBlocks = skipCodeBlocks;
+    }
+    
     public void setErrorHandler( ErrorHandler errorHandler )
     {
         this.errorHandler = errorHandler;
     }
+
+    @Override
+    protected ErrorHandler getErrorHandler()
+    {
+        return errorHandler;
+    }
 }
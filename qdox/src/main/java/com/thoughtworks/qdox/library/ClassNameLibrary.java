@@ -19,6 +19,8 @@ package com.thoughtworks.qdox.library;
  * under the License.
  */
 
+import java.util.Set;
+
 import com.thoughtworks.qdox.builder.Builder;
 import com.thoughtworks.qdox.model.JavaClass;
 import com.thoughtworks.qdox.model.JavaPackage;
@@ -56,4 +58,9 @@ public class ClassNameLibrary
         return false;
     }
 
+    @Override
+    protected boolean addTypeNames( String packageName, Set<String> typeNames )
+    {
+        return true;
+    }
 }
@@ -0,0 +1,297 @@
+package com.thoughtworks.qdox.library;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringTokenizer;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+/**
+ * The names of the classes of jars and directories. The central directory of a jar is read once, after that the
+ * existence of a class in a jar is a lookup without touching the filesystem. Directories are checked for every
+ * request instead, since their class files are often compiled after the index has been created. Just like a
+ * classloader, the <code>Class-Path</code> of the manifest of a jar is followed.
+ *
+ * @author Robert Scholte
+ * @since 2.0
+ */
+final class ClassPathIndex
+{
+    private final Set<File> entries = new LinkedHashSet<File>();
+
+    private final List<File> directories = new ArrayList<File>();
+
+    private final Set<String> classNames = new HashSet<String>();
+
+    private final Map<String, List<String>> packages = new HashMap<String, List<String>>();
+
+    /**
+     * @param entry a jar or a directory with class files, a directory doesn't have to exist yet
+     */
+    void add( File entry )
+    {
+        if ( !entries.add( entry.getAbsoluteFile() ) )
+        {
+            return;
+        }
+        if ( entry.isFile() )
+        {
+            addJar( entry );
+        }
+        else
+        {
+            directories.add( entry );
+        }
+    }
+
+    /**
+     * @return the jars and directories of this index in classpath order, including those of the manifests of the jars
+     */
+    List<File> getEntries()
+    {
+        return new ArrayList<File>( entries );
+    }
+
+    /**
+     * @param url the url of a jar or a directory
+     * @return <code>false</code> if this isn't a file url, so it can't be indexed
+     */
+    boolean add( URL url )
+    {
+        if ( !"file".equals( url.getProtocol() ) )
+        {
+            return false;
+        }
+        try
+        {
+            add( new File( url.toURI() ) );
+        }
+        catch ( URISyntaxException e )
+        {
+            add( new File( url.getPath() ) );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            // e.g. a url with a query or fragment
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param className the binary name of a class
+     * @return <code>true</code> if there's a class file for this class
+     */
+    boolean containsClass( String className )
+    {
+        if ( classNames.contains( className ) )
+        {
+            return true;
+        }
+        String path = className.replace( '.', '/' ) + ".class";
+        for ( File directory : directories )
+        {
+            if ( new File( directory, path ).isFile() )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param packageName the name of a package
+     * @return <code>true</code> if there's a class file in this package
+     */
+    boolean containsPackage( String packageName )
+    {
+        if ( packages.containsKey( packageName ) )
+        {
+            return true;
+        }
+        for ( File directory : directories )
+        {
+            if ( !listClassFiles( directory, packageName ).isEmpty() )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param packageName the name of a package
+     * @return the binary names of the classes of the package, never <code>null</code>
+     */
+    List<String> getClassNames( String packageName )
+    {
+        List<String> result = packages.get( packageName );
+        if ( directories.isEmpty() )
+        {
+            return result != null ? Collections.unmodifiableList( result ) : Collections.<String>emptyList();
+        }
+        Set<String> classes = new LinkedHashSet<String>();
+        if ( result != null )
+        {
+            classes.addAll( result );
+        }
+        for ( File directory : directories )
+        {
+            for ( String simpleName : listClassFiles( directory, packageName ) )
+            {
+                classes.add( packageName.length() > 0 ? packageName + '.' + simpleName : simpleName );
+            }
+        }
+        return new ArrayList<String>( classes );
+    }
+
+    /**
+     * @param packageName the name of a package
+     * @param typeNames the simple names of the top level classes of the package are added to it
+     */
+    void addTypeNames( String packageName, Set<String> typeNames )
+    {
+        for ( String className : getClassNames( packageName ) )
+        {
+            typeNames.add( getTopLevelName( packageName, className ) );
+        }
+    }
+
+    /**
+     * @param packageName the name of a package
+     * @param className the name of a class, either with a <code>$</code> or a dot as separator of nested classes
+     * @return the simple name of the top level class, <code>null</code> if the class isn't in the package
+     */
+    static String getTopLevelName( String packageName, String className )
+    {
+        int start = 0;
+        if ( packageName.length() > 0 )
+        {
+            start = packageName.length() + 1;
+            if ( className.length() <= start || className.charAt( packageName.length() ) != '.'
+                || !className.startsWith( packageName ) )
+            {
+                return null;
+            }
+        }
+        int end = start + 1;
+        while ( end < className.length() && className.charAt( end ) != '.' && className.charAt( end ) != '$' )
+        {
+            end++;
+        }
+        return className.substring( start, Math.min( end, className.length() ) );
+    }
+
+    /**
+     * @param directory the root of the class files
+     * @param packageName the name of a package
+     * @return the simple binary names of the class files of the package in this directory, never <code>null</code>
+     */
+    private static List<String> listClassFiles( File directory, String packageName )
+    {
+        List<String> result = new ArrayList<String>();
+        String[] names = new File( directory, packageName.replace( '.', '/' ) ).list();
+        if ( names != null )
+        {
+            for ( String name : names )
+            {
+                if ( name.endsWith( ".class" ) )
+                {
+                    result.add( name.substring( 0, name.length() - 6 ) );
+                }
+            }
+        }
+        return result;
+    }
+
+    private void addJar( File jar )
+    {
+        try
+        {
+            JarFile jarFile = new JarFile( jar );
+            try
+            {
+                for ( Enumeration<JarEntry> jarEntries = jarFile.entries(); jarEntries.hasMoreElements(); )
+                {
+                    String name = jarEntries.nextElement().getName();
+                    if ( name.endsWith( ".class" ) && !name.startsWith( "META-INF/" ) )
+                    {
+                        int lastSlash = name.lastIndexOf( '/' );
+                        String packageName = lastSlash > 0 ? name.substring( 0, lastSlash ).replace( '/', '.' ) : "";
+                        addClass( packageName, name.substring( lastSlash + 1, name.length() - 6 ) );
+                    }
+                }
+                addManifestClassPath( jar, jarFile.getManifest() );
+            }
+            finally
+            {
+                jarFile.close();
+            }
+        }
+        catch ( IOException e )
+        {
+            // not a jar, it contains no classes
+        }
+    }
+
+    private void addManifestClassPath( File jar, Manifest manifest )
+        throws IOException
+    {
+        String classPath = manifest != null ? manifest.getMainAttributes().getValue( Attributes.Name.CLASS_PATH ) : null;
+        if ( classPath != null )
+        {
+            URL base = jar.toURI().toURL();
+            for ( StringTokenizer tokens = new StringTokenizer( classPath ); tokens.hasMoreTokens(); )
+            {
+                add( new URL( base, tokens.nextToken() ) );
+            }
+        }
+    }
+
+    private void addClass( String packageName, String simpleName )
+    {
+        String className = packageName.length() > 0 ? packageName + '.' + simpleName : simpleName;
+        if ( classNames.add( className ) )
+        {
+            List<String> packageClasses = packages.get( packageName );
+            if ( packageClasses == null )
+            {
+                packageClasses = new ArrayList<String>();
+                packages.put( packageName, packageClasses );
+            }
+            packageClasses.add( className );
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.thoughtworks.qdox.library;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * Keeps the content of a source which can't be read again, like a {@link java.io.Reader}. If all characters fit in a
+ * single byte, only one byte per character is retained.
+ *
+ * @author Robert Scholte
+ * @since 2.0
+ */
+public class CompactSourceContent
+    extends SourceContent
+{
+    private final byte[] bytes;
+
+    private final char[] chars;
+
+    /**
+     * @param content the characters of the source, which will be copied
+     */
+    public CompactSourceContent( char[] content )
+    {
+        if ( isLatin1( content ) )
+        {
+            bytes = new byte[content.length];
+            for ( int i = 0; i < content.length; i++ )
+            {
+                bytes[i] = (byte) content[i];
+            }
+            chars = null;
+        }
+        else
+        {
+            bytes = null;
+            chars = new char[content.length];
+            System.arraycopy( content, 0, chars, 0, content.length );
+        }
+    }
+
+    private static boolean isLatin1( char[] content )
+    {
+        for ( char c : content )
+        {
+            if ( c > 0xFF )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int length()
+    {
+        return bytes != null ? bytes.length : chars.length;
+    }
+
+    public char charAt( int index )
+    {
+        return bytes != null ? (char) ( bytes[index] & 0xFF ) : chars[index];
+    }
+
+    @Override
+    protected String substring( int start, int end )
+    {
+        if ( chars != null )
+        {
+            return new String( chars, start, end - start );
+        }
+        char[] result = new char[end - start];
+        for ( int i = 0; i < result.length; i++ )
+        {
+            result[i] = (char) ( bytes[start + i] & 0xFF );
+        }
+        return new String( result );
+    }
+}
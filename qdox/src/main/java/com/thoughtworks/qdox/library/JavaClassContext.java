@@ -20,10 +20,13 @@ package com.thoughtworks.qdox.library;
  */
 
 import java.io.Serializable;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -46,6 +49,12 @@ public class JavaClassContext implements Serializable {
 	private Map<String, JavaClass> classMap = new LinkedHashMap<String, JavaClass>();
 	private Map<String, JavaPackage> packageMap = new LinkedHashMap<String, JavaPackage>();  
 	private Set<JavaSource> sourceSet = new LinkedHashSet<JavaSource>(); 
+
+	// read-only copies, shared until the context changes
+	private transient List<JavaClass> classes;
+	private transient List<JavaPackage> packages;
+	private transient List<JavaSource> sources;
+	private transient long version;
 	
 	public JavaClassContext(){
 	}
@@ -69,16 +78,28 @@ public class JavaClassContext implements Serializable {
 	 */
 	public JavaClass removeClassByName(String name) 
 	{
-	    return classMap.remove( name );
+	    JavaClass result = classMap.remove( name );
+	    if ( result != null )
+	    {
+	        classesChanged();
+	    }
+	    return result;
 	}
 	
 	/**
-	 * Return all stored JavaClasses
+	 * Return all stored JavaClasses. The list is shared by all callers until a class is added or removed, so calling
+	 * this method repeatedly doesn't copy the classes over and over again.
 	 * 
-	 * @return a list of JavaClasses, never <code>null</code>
+	 * @return a read-only list of JavaClasses, never <code>null</code>
 	 */
 	public List<JavaClass> getClasses() {
-		return Collections.unmodifiableList( new LinkedList<JavaClass>(classMap.values()) );
+	    List<JavaClass> result = classes;
+	    if ( result == null )
+	    {
+	        result = Collections.unmodifiableList( new ArrayList<JavaClass>( classMap.values() ) );
+	        classes = result;
+	    }
+	    return result;
 	}
 	
 	/**
@@ -88,6 +109,7 @@ public class JavaClassContext implements Serializable {
 	 */
 	public void add(JavaClass javaClass) {
 	    classMap.put(javaClass.getFullyQualifiedName(), javaClass);
+	    classesChanged();
 	}
 	
 	/**
@@ -109,7 +131,12 @@ public class JavaClassContext implements Serializable {
      */
     public JavaPackage removePackageByName( String name )
     {
-        return packageMap.remove( name );
+        JavaPackage result = packageMap.remove( name );
+        if ( result != null )
+        {
+            packagesChanged();
+        }
+        return result;
     }
 
     /**
@@ -121,18 +148,24 @@ public class JavaClassContext implements Serializable {
     {
         if(jPackage != null) {
             packageMap.put( jPackage.getName(), jPackage );
+            packagesChanged();
         }
     }
 
     /**
-     * Return all stored JavaPackages
+     * Return all stored JavaPackages. The list is shared by all callers until a package is added or removed.
      * 
-     * @return a list of JavaPackages, never <code>null</code>
+     * @return a read-only list of JavaPackages, never <code>null</code>
      */
     public List<JavaPackage> getPackages()
     {
-        return Collections.unmodifiableList( new LinkedList<JavaPackage>(packageMap.values()) );
-        
+        List<JavaPackage> result = packages;
+        if ( result == null )
+        {
+            result = Collections.unmodifiableList( new ArrayList<JavaPackage>( packageMap.values() ) );
+            packages = result;
+        }
+        return result;
     }
 
     /**
@@ -142,16 +175,111 @@ public class JavaClassContext implements Serializable {
      */
     public void add( JavaSource source )
     {
-        sourceSet.add( source );
+        if ( sourceSet.add( source ) )
+        {
+            sourcesChanged();
+        }
     }
 
     /**
-     * Return all stored JavaSources
+     * Return all stored JavaSources. The list is shared by all callers until a source is added or removed.
      * 
-     * @return a list of JavaSources, never <code>null</code>
+     * @return a read-only list of JavaSources, never <code>null</code>
      */
     public List<JavaSource> getSources()
     {
-        return Collections.unmodifiableList( new LinkedList<JavaSource>(sourceSet) );
+        List<JavaSource> result = sources;
+        if ( result == null )
+        {
+            result = Collections.unmodifiableList( new ArrayList<JavaSource>( sourceSet ) );
+            sources = result;
+        }
+        return result;
+    }
+
+    /**
+     * The version changes whenever a class, package or source is added or removed, so views based on this context
+     * know when they have to be rebuilt.
+     * 
+     * @return the version of this context
+     * @since 2.0
+     */
+    public long getVersion()
+    {
+        return version;
+    }
+
+    /**
+     * Remove the {@link JavaSource} with this {@code url} together with its classes. Packages without classes are
+     * removed as well.
+     * 
+     * @param url the url of the source
+     * @return the removed JavaSource, otherwise <code>null</code>
+     */
+    public JavaSource removeSource( URL url )
+    {
+        String location = url.toExternalForm();
+        JavaSource result = null;
+        for ( Iterator<JavaSource> iter = sourceSet.iterator(); result == null && iter.hasNext(); )
+        {
+            JavaSource source = iter.next();
+            // don't use URL.equals(), which resolves the host
+            if ( source.getURL() != null && location.equals( source.getURL().toExternalForm() ) )
+            {
+                iter.remove();
+                sourcesChanged();
+                result = source;
+            }
+        }
+        if ( result != null )
+        {
+            for ( JavaClass cls : result.getClasses() )
+            {
+                removeClass( cls );
+            }
+        }
+        return result;
+    }
+
+    private void removeClass( JavaClass cls )
+    {
+        for ( JavaClass nestedCls : cls.getNestedClasses() )
+        {
+            removeClass( nestedCls );
+        }
+        if ( classMap.get( cls.getFullyQualifiedName() ) == cls )
+        {
+            classMap.remove( cls.getFullyQualifiedName() );
+            classesChanged();
+        }
+        JavaPackage pckg = packageMap.get( cls.getPackageName() );
+        if ( pckg != null )
+        {
+            Collection<JavaClass> packageClasses = pckg.getClasses();
+            packageClasses.remove( cls );
+            if ( packageClasses.isEmpty() )
+            {
+                packageMap.remove( cls.getPackageName() );
+                packagesChanged();
+            }
+        }
+    }
+
+    private void classesChanged()
+    {
+        classes = null;
+        version++;
+    }
+
+    private void packagesChanged()
+    {
+        packages = null;
+        version++;
+    }
+
+    private void sourcesChanged()
+    {
+        sources = null;
+        version++;
     }
 }
@@ -0,0 +1,77 @@
+package com.thoughtworks.qdox.library;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The names of the classes a library couldn't find. Every name is recorded with the modification count of the library,
+ * once classes have been added or removed all names are forgotten, since any of them might exist by now. The cache
+ * is bounded, otherwise visiting a large tree of sources would keep every unresolvable name of it.
+ *
+ * @author Robert Scholte
+ * @since 2.0
+ */
+final class MissingClassCache
+    implements Serializable
+{
+    static final int MAX_SIZE = 10000;
+
+    private final Map<String, Boolean> names = new ConcurrentHashMap<String, Boolean>();
+
+    private volatile long modificationCount;
+
+    /**
+     * @param name the name of the class
+     * @param currentModificationCount the current modification count of the library
+     * @return <code>true</code> if the class was missing when the library had this modification count
+     */
+    boolean contains( String name, long currentModificationCount )
+    {
+        return modificationCount == currentModificationCount && names.containsKey( name );
+    }
+
+    /**
+     * A name recorded with an older modification count than the cache already has is ignored, it might exist by now.
+     * Once the cache is full it starts over, but keeps the newest modification count it has seen.
+     * 
+     * @param name the name of the class
+     * @param currentModificationCount the modification count of the library before looking for the class
+     */
+    synchronized void add( String name, long currentModificationCount )
+    {
+        if ( currentModificationCount > modificationCount )
+        {
+            names.clear();
+            modificationCount = currentModificationCount;
+        }
+        else if ( names.size() >= MAX_SIZE )
+        {
+            // the caller might be late, so its count could be older than the one of the names
+            names.clear();
+        }
+        if ( currentModificationCount == modificationCount )
+        {
+            names.put( name, Boolean.TRUE );
+        }
+    }
+}
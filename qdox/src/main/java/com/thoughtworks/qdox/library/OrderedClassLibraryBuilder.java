@@ -24,8 +24,11 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
 import java.net.URL;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 import com.thoughtworks.qdox.builder.ModelBuilderFactory;
+import com.thoughtworks.qdox.directorywalker.FileVisitor;
 import com.thoughtworks.qdox.model.JavaSource;
 import com.thoughtworks.qdox.writer.ModelWriterFactory;
 
@@ -35,7 +38,7 @@ import com.thoughtworks.qdox.writer.ModelWriterFactory;
  * @author Robert Scholte
  * @since 2.0
  */
-public class OrderedClassLibraryBuilder implements ClassLibraryBuilder
+public class OrderedClassLibraryBuilder extends AbstractClassLibraryBuilder
 {
 
     private AbstractClassLibrary classLibrary;
@@ -44,7 +47,13 @@ public class OrderedClassLibraryBuilder implements ClassLibraryBuilder
 
     private boolean debugParser;
     
+    private boolean skipCodeBlocks;
+    
+    private boolean lazyCodeBlocks;
+    
     private String encoding;
+
+    private File cacheDirectory;
     
     private ErrorHandler errorHandler;
     
@@ -89,6 +98,7 @@ public class OrderedClassLibraryBuilder implements ClassLibraryBuilder
         classLoaderLibrary.setModelWriterFactory( modelWriterFactory );
         classLoaderLibrary.setDebugLexer( debugLexer );
         classLoaderLibrary.setDebugParser( debugParser );
+        classLoaderLibrary.setSkipCodeBlocks( skipCodeBlocks );
         classLoaderLibrary.setErrorHandler( errorHandler );
         return this;
     }
@@ -110,6 +120,23 @@ public class OrderedClassLibraryBuilder implements ClassLibraryBuilder
         return this;
     }
 
+    /*
+     * (non-Javadoc)
+     * @see com.thoughtworks.qdox.library.AbstractClassLibraryBuilder#appendClassPath(java.io.File)
+     */
+    public ClassLibraryBuilder appendClassPath( File classPathEntry )
+    {
+        if ( !( classLibrary instanceof ClassFileLibrary ) )
+        {
+            classLibrary = newClassFileLibrary( classLibrary );
+        }
+        ClassFileLibrary classFileLibrary = (ClassFileLibrary) classLibrary;
+        classFileLibrary.addClassPath( classPathEntry );
+        classFileLibrary.setModelBuilderFactory( modelBuilderFactory );
+        classFileLibrary.setModelWriterFactory( modelWriterFactory );
+        return this;
+    }
+
     /* (non-Javadoc)
      * @see com.thoughtworks.qdox.library.ClassLibraryBuilder#addSourceFolder(java.io.File)
      */
@@ -163,6 +190,26 @@ public class OrderedClassLibraryBuilder implements ClassLibraryBuilder
         return this;
     }
     
+    /*
+     * (non-Javadoc)
+     * @see com.thoughtworks.qdox.library.AbstractClassLibraryBuilder#setSkipCodeBlocks(boolean)
+     */
+    public ClassLibraryBuilder setSkipCodeBlocks( boolean skipCodeBlocks )
+    {
+        this.skipCodeBlocks = skipCodeBlocks;
+        return this;
+    }
+    
+    /*
+     * (non-Javadoc)
+     * @see com.thoughtworks.qdox.library.AbstractClassLibraryBuilder#setLazyCodeBlocks(boolean)
+     */
+    public ClassLibraryBuilder setLazyCodeBlocks( boolean lazyCodeBlocks )
+    {
+        this.lazyCodeBlocks = lazyCodeBlocks;
+        return this;
+    }
+    
     /*
      * (non-Javadoc)
      * @see com.thoughtworks.qdox.library.ClassLibraryBuilder#setEncoding(java.lang.String)
@@ -173,6 +220,16 @@ public class OrderedClassLibraryBuilder implements ClassLibraryBuilder
         return this;
     }
     
+    /*
+     * (non-Javadoc)
+     * @see com.thoughtworks.qdox.library.AbstractClassLibraryBuilder#setCacheDirectory(java.io.File)
+     */
+    public ClassLibraryBuilder setCacheDirectory( File cacheDirectory )
+    {
+        this.cacheDirectory = cacheDirectory;
+        return this;
+    }
+
     /*
      * (non-Javadoc)
      * @see com.thoughtworks.qdox.library.ClassLibraryBuilder#setErrorHander(com.thoughtworks.qdox.library.ErrorHandler)
@@ -203,6 +260,18 @@ public class OrderedClassLibraryBuilder implements ClassLibraryBuilder
         return this;
     }
 
+    /*
+     * (non-Javadoc)
+     * @see com.thoughtworks.qdox.library.AbstractClassLibraryBuilder#close()
+     */
+    public void close()
+    {
+        if ( classLibrary != null )
+        {
+            classLibrary.close();
+        }
+    }
+
     /* (non-Javadoc)
      * @see com.thoughtworks.qdox.library.ClassLibraryBuilder#getClassLibrary()
      */
@@ -234,6 +303,29 @@ public class OrderedClassLibraryBuilder implements ClassLibraryBuilder
         return this;
     }
 
+    /*
+     * (non-Javadoc)
+     * @see com.thoughtworks.qdox.library.AbstractClassLibraryBuilder#appendSnapshot(java.io.File)
+     */
+    public ClassLibraryBuilder appendSnapshot( File file )
+        throws IOException
+    {
+        SourceLibrary sourceLibrary = getSourceLibrary();
+        sourceLibrary.addSnapshot( file );
+        return this;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.thoughtworks.qdox.library.AbstractClassLibraryBuilder#saveSnapshot(java.io.File)
+     */
+    public void saveSnapshot( File file )
+        throws IOException
+    {
+        SourceLibrary sourceLibrary = getSourceLibrary();
+        sourceLibrary.saveSnapshot( file );
+    }
+
     /*
      * (non-Javadoc)
      * @see com.thoughtworks.qdox.library.ClassLibraryBuilder#addSource(java.io.InputStream)
@@ -274,13 +366,58 @@ public class OrderedClassLibraryBuilder implements ClassLibraryBuilder
         SourceLibrary sourceLibrary = getSourceLibrary();
         return sourceLibrary.addSource( file );
     }
+
+    /*
+     * (non-Javadoc)
+     * @see com.thoughtworks.qdox.library.AbstractClassLibraryBuilder#updateSource(java.io.File)
+     */
+    public JavaSource updateSource( File file )
+        throws IOException
+    {
+        SourceLibrary sourceLibrary = getSourceLibrary();
+        return sourceLibrary.updateSource( file );
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.thoughtworks.qdox.library.AbstractClassLibraryBuilder#removeSource(java.net.URL)
+     */
+    public JavaSource removeSource( URL url )
+    {
+        SourceLibrary sourceLibrary = getSourceLibrary();
+        return sourceLibrary.removeSource( url );
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.thoughtworks.qdox.library.AbstractClassLibraryBuilder#parseSource(java.io.File)
+     */
+    public JavaSource parseSource( File file )
+        throws IOException
+    {
+        SourceLibrary sourceLibrary = getSourceLibrary();
+        return sourceLibrary.parseSource( file );
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.thoughtworks.qdox.library.AbstractClassLibraryBuilder#addSources(java.util.List, java.util.concurrent.ExecutorService, com.thoughtworks.qdox.directorywalker.FileVisitor)
+     */
+    public List<JavaSource> addSources( List<File> files, ExecutorService executor, FileVisitor errorHandler )
+    {
+        SourceLibrary sourceLibrary = getSourceLibrary();
+        return sourceLibrary.addSources( files, executor, errorHandler );
+    }
     
     private void prepareSourceLibrary( SourceLibrary sourceLibrary ) {
         sourceLibrary.setModelBuilderFactory( modelBuilderFactory );
         sourceLibrary.setModelWriterFactory( modelWriterFactory );
         sourceLibrary.setDebugLexer( debugLexer );
         sourceLibrary.setDebugParser( debugParser );
+        sourceLibrary.setSkipCodeBlocks( skipCodeBlocks );
+        sourceLibrary.setLazyCodeBlocks( lazyCodeBlocks );
         sourceLibrary.setEncoding( encoding );
+        sourceLibrary.setCacheDirectory( cacheDirectory );
         sourceLibrary.setErrorHandler( errorHandler );
     }
     
@@ -306,6 +443,18 @@ public class OrderedClassLibraryBuilder implements ClassLibraryBuilder
         return new ClassLoaderLibrary( parentLibrary );
     }
 
+    /**
+     * Ability to override the implementation of ClassFileLibrary
+     * 
+     * @param parentLibrary the parent library
+     * @return a new ClassFileLibrary instance
+     * @since 2.0
+     */
+    protected ClassFileLibrary newClassFileLibrary( AbstractClassLibrary parentLibrary )
+    {
+        return new ClassFileLibrary( parentLibrary );
+    }
+
     /**
      * Ability to override the implementation of SourceLibrary
      * 
@@ -0,0 +1,245 @@
+package com.thoughtworks.qdox.library;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Properties;
+import java.util.Random;
+
+import com.thoughtworks.qdox.builder.Builder;
+
+/**
+ * A directory with the record of every parsed source, so an unchanged source can be built without parsing it. The
+ * records are stored by a hash of the content of the source, the build of QDox and the options which change the
+ * record. The build is written to <code>parsecache.properties</code> by Maven, when QDox runs without this resource
+ * being filtered, like from an IDE, records are only shared within the same JVM. A cached file contains a header, the
+ * record and the {@link StringTable} of the record.
+ *
+ * @author Robert Scholte
+ * @since 2.0
+ */
+final class ParseCache
+    implements Serializable
+{
+    private static final int MAGIC = 0x51445843;
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int HEADER_SIZE = 12;
+
+    private static final String QDOX_BUILD = readBuild();
+
+    private final File directory;
+
+    /**
+     * @param directory the directory, will be created if it doesn't exist
+     */
+    ParseCache( File directory )
+    {
+        this.directory = directory;
+    }
+
+    File getDirectory()
+    {
+        return directory;
+    }
+
+    /**
+     * @param content the content of the source
+     * @param skipCodeBlocks <code>true</code> if codeblocks are skipped
+     * @param lazy <code>true</code> if only the ranges of codeblocks are recorded
+     * @return the key of the record
+     */
+    String key( char[] content, boolean skipCodeBlocks, boolean lazy )
+    {
+        MessageDigest digest;
+        try
+        {
+            digest = MessageDigest.getInstance( "SHA-1" );
+        }
+        catch ( NoSuchAlgorithmException e )
+        {
+            // every Java platform is required to support SHA-1
+            throw new IllegalStateException( e.getMessage() );
+        }
+        ByteBuffer bytes = ByteBuffer.allocate( content.length * 2 );
+        bytes.asCharBuffer().put( content );
+        digest.update( bytes.array() );
+        String options = FORMAT_VERSION + ":" + QDOX_BUILD + ":" + skipCodeBlocks + ":" + lazy;
+        for ( int i = 0; i < options.length(); i++ )
+        {
+            digest.update( (byte) options.charAt( i ) );
+        }
+        StringBuilder result = new StringBuilder();
+        for ( byte b : digest.digest() )
+        {
+            result.append( Character.forDigit( ( b >> 4 ) & 0xF, 16 ) ).append( Character.forDigit( b & 0xF, 16 ) );
+        }
+        return result.toString();
+    }
+
+    private static String readBuild()
+    {
+        Properties properties = new Properties();
+        try
+        {
+            InputStream stream = ParseCache.class.getResourceAsStream( "parsecache.properties" );
+            if ( stream != null )
+            {
+                try
+                {
+                    properties.load( stream );
+                }
+                finally
+                {
+                    stream.close();
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            // handled as a missing resource
+        }
+        String version = properties.getProperty( "version" );
+        String timestamp = properties.getProperty( "timestamp" );
+        if ( version == null || timestamp == null || version.startsWith( "${" ) || timestamp.startsWith( "${" ) )
+        {
+            // the build is unknown, so records of another build can't be told apart
+            return "unknown-" + Long.toHexString( new Random().nextLong() );
+        }
+        return version + "@" + timestamp;
+    }
+
+    /**
+     * Calls the builder with the cached record.
+     *
+     * @param key the key of the record
+     * @param builder the builder to call
+     * @return <code>true</code> if the builder has been called, <code>false</code> if there's no valid record for this
+     *         key
+     */
+    boolean replay( String key, Builder builder )
+    {
+        File file = new File( directory, key );
+        if ( !file.isFile() )
+        {
+            return false;
+        }
+        try
+        {
+            ByteBuffer buffer = read( file );
+            if ( buffer.capacity() < HEADER_SIZE || buffer.getInt( 0 ) != MAGIC || buffer.getInt( 4 ) != FORMAT_VERSION )
+            {
+                return false;
+            }
+            int stringsStart = buffer.getInt( 8 );
+            RecordReplayer.replay( buffer, HEADER_SIZE, stringsStart, new StringTable( buffer, stringsStart ), builder );
+            return true;
+        }
+        catch ( IOException e )
+        {
+            return false;
+        }
+        catch ( RuntimeException e )
+        {
+            // a corrupt record, the caller will parse the source again
+            return false;
+        }
+    }
+
+    private static ByteBuffer read( File file )
+        throws IOException
+    {
+        FileInputStream stream = new FileInputStream( file );
+        try
+        {
+            FileChannel channel = stream.getChannel();
+            ByteBuffer result = ByteBuffer.allocate( (int) channel.size() );
+            while ( result.hasRemaining() && channel.read( result ) != -1 )
+            {
+                // keep reading until the buffer is full
+            }
+            return result;
+        }
+        finally
+        {
+            stream.close();
+        }
+    }
+
+    /**
+     * Stores the record, a failure is ignored since the source can always be parsed again.
+     *
+     * @param key the key of the record
+     * @param record the record
+     * @param strings the pool of the record
+     */
+    void store( String key, RecordingBuilder record, StringPool strings )
+    {
+        directory.mkdirs();
+        File file = new File( directory, key );
+        File tempFile = null;
+        try
+        {
+            // another thread or process might store the same record, so the record only appears once it's complete
+            tempFile = File.createTempFile( key + ".", ".tmp", directory );
+            byte[] bytes = record.toByteArray();
+            ByteArrayOutputStream out = new ByteArrayOutputStream( HEADER_SIZE + bytes.length );
+            DataOutputStream header = new DataOutputStream( out );
+            header.writeInt( MAGIC );
+            header.writeInt( FORMAT_VERSION );
+            header.writeInt( HEADER_SIZE + bytes.length );
+            out.write( bytes );
+            strings.writeTo( out );
+
+            FileOutputStream stream = new FileOutputStream( tempFile );
+            try
+            {
+                out.writeTo( stream );
+            }
+            finally
+            {
+                stream.close();
+            }
+            if ( !tempFile.renameTo( file ) )
+            {
+                tempFile.delete();
+            }
+        }
+        catch ( IOException e )
+        {
+            if ( tempFile != null )
+            {
+                tempFile.delete();
+            }
+        }
+    }
+}
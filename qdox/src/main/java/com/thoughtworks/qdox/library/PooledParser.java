@@ -0,0 +1,92 @@
+package com.thoughtworks.qdox.library;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.Reader;
+
+import com.thoughtworks.qdox.builder.Builder;
+import com.thoughtworks.qdox.parser.impl.JFlexLexer;
+import com.thoughtworks.qdox.parser.impl.Parser;
+
+/**
+ * A lexer and parser which are kept per thread, so they don't have to be created for every source. If a source is
+ * parsed while another one is being parsed by the same thread, a new instance is used.
+ *
+ * @author Robert Scholte
+ * @since 2.0
+ */
+final class PooledParser
+{
+    private static final ThreadLocal<PooledParser> IDLE = new ThreadLocal<PooledParser>();
+
+    private final JFlexLexer lexer;
+
+    private final Parser parser;
+
+    private PooledParser()
+    {
+        lexer = new JFlexLexer( (Reader) null );
+        parser = new Parser( lexer, null );
+    }
+
+    /**
+     * Take the idle instance of the current thread or create a new one. Call {@link #release()} once done.
+     *
+     * @param reader the source to parse
+     * @param builder the builder for the source
+     * @return the parser, ready to parse the reader
+     */
+    static PooledParser acquire( Reader reader, Builder builder )
+    {
+        PooledParser result = IDLE.get();
+        if ( result == null )
+        {
+            result = new PooledParser();
+        }
+        else
+        {
+            IDLE.set( null );
+        }
+        result.lexer.reset( reader );
+        result.parser.reset( builder );
+        return result;
+    }
+
+    /**
+     * Make this instance available for the next source parsed by the current thread.
+     */
+    void release()
+    {
+        lexer.reset( null );
+        parser.reset( null );
+        lexer.setSymbolTable( null );
+        IDLE.set( this );
+    }
+
+    JFlexLexer getLexer()
+    {
+        return lexer;
+    }
+
+    Parser getParser()
+    {
+        return parser;
+    }
+}
@@ -0,0 +1,527 @@
+package com.thoughtworks.qdox.library;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+import com.thoughtworks.qdox.builder.Builder;
+import com.thoughtworks.qdox.parser.CommentHandler;
+import com.thoughtworks.qdox.parser.expression.AddDef;
+import com.thoughtworks.qdox.parser.expression.AndDef;
+import com.thoughtworks.qdox.parser.expression.AssignmentDef;
+import com.thoughtworks.qdox.parser.expression.CastDef;
+import com.thoughtworks.qdox.parser.expression.ConstantDef;
+import com.thoughtworks.qdox.parser.expression.CreatorDef;
+import com.thoughtworks.qdox.parser.expression.DivideDef;
+import com.thoughtworks.qdox.parser.expression.ElemValueDef;
+import com.thoughtworks.qdox.parser.expression.ElemValueListDef;
+import com.thoughtworks.qdox.parser.expression.EqualsDef;
+import com.thoughtworks.qdox.parser.expression.ExclusiveOrDef;
+import com.thoughtworks.qdox.parser.expression.ExpressionDef;
+import com.thoughtworks.qdox.parser.expression.FieldRefDef;
+import com.thoughtworks.qdox.parser.expression.GreaterEqualsDef;
+import com.thoughtworks.qdox.parser.expression.GreaterThanDef;
+import com.thoughtworks.qdox.parser.expression.LessEqualsDef;
+import com.thoughtworks.qdox.parser.expression.LessThanDef;
+import com.thoughtworks.qdox.parser.expression.LogicalAndDef;
+import com.thoughtworks.qdox.parser.expression.LogicalNotDef;
+import com.thoughtworks.qdox.parser.expression.LogicalOrDef;
+import com.thoughtworks.qdox.parser.expression.MethodInvocationDef;
+import com.thoughtworks.qdox.parser.expression.MinusSignDef;
+import com.thoughtworks.qdox.parser.expression.MultiplyDef;
+import com.thoughtworks.qdox.parser.expression.NotDef;
+import com.thoughtworks.qdox.parser.expression.NotEqualsDef;
+import com.thoughtworks.qdox.parser.expression.OrDef;
+import com.thoughtworks.qdox.parser.expression.ParenExpressionDef;
+import com.thoughtworks.qdox.parser.expression.PlusSignDef;
+import com.thoughtworks.qdox.parser.expression.PostDecrementDef;
+import com.thoughtworks.qdox.parser.expression.PostIncrementDef;
+import com.thoughtworks.qdox.parser.expression.PreDecrementDef;
+import com.thoughtworks.qdox.parser.expression.PreIncrementDef;
+import com.thoughtworks.qdox.parser.expression.QueryDef;
+import com.thoughtworks.qdox.parser.expression.RemainderDef;
+import com.thoughtworks.qdox.parser.expression.ShiftLeftDef;
+import com.thoughtworks.qdox.parser.expression.ShiftRightDef;
+import com.thoughtworks.qdox.parser.expression.SubtractDef;
+import com.thoughtworks.qdox.parser.expression.TypeRefDef;
+import com.thoughtworks.qdox.parser.expression.UnsignedShiftRightDef;
+import com.thoughtworks.qdox.parser.impl.DefaultJavaCommentParser;
+import com.thoughtworks.qdox.parser.structs.AnnoDef;
+import com.thoughtworks.qdox.parser.structs.ClassDef;
+import com.thoughtworks.qdox.parser.structs.FieldDef;
+import com.thoughtworks.qdox.parser.structs.InitDef;
+import com.thoughtworks.qdox.parser.structs.LocatedDef;
+import com.thoughtworks.qdox.parser.structs.MethodDef;
+import com.thoughtworks.qdox.parser.structs.PackageDef;
+import com.thoughtworks.qdox.parser.structs.TagDef;
+import com.thoughtworks.qdox.parser.structs.TypeDef;
+import com.thoughtworks.qdox.parser.structs.TypeVariableDef;
+import com.thoughtworks.qdox.parser.structs.WildcardTypeDef;
+
+/**
+ * Calls a {@link Builder} with the calls written by a {@link RecordingBuilder}, which gives the same result as parsing
+ * the source again.
+ *
+ * @author Robert Scholte
+ * @since 2.0
+ */
+final class RecordReplayer
+{
+    private final ByteBuffer buffer;
+
+    private final StringTable strings;
+
+    private final int[] position;
+
+    /**
+     * @param buffer the buffer containing the record, its position won't be changed
+     * @param start the absolute position of the record
+     * @param strings the table of the StringPool used by the RecordingBuilder
+     */
+    private RecordReplayer( ByteBuffer buffer, int start, StringTable strings )
+    {
+        this.buffer = buffer;
+        this.position = new int[] { start };
+        this.strings = strings;
+    }
+
+    /**
+     * @param buffer the buffer containing the record, its position won't be changed
+     * @param start the absolute position of the record
+     * @param end the absolute position after the record
+     * @param strings the table of the StringPool used by the RecordingBuilder
+     * @param builder the builder to call
+     */
+    static void replay( ByteBuffer buffer, int start, int end, StringTable strings, Builder builder )
+    {
+        RecordReplayer replayer = new RecordReplayer( buffer, start, strings );
+        while ( replayer.position[0] < end )
+        {
+            replayer.replayCall( builder );
+        }
+    }
+
+    private void replayCall( Builder builder )
+    {
+        int call = readVarInt();
+        switch ( call )
+        {
+            case RecordingBuilder.PACKAGE:
+            {
+                int line = readSigned();
+                int column = readSigned();
+                PackageDef packageDef = new PackageDef( readString(), line );
+                packageDef.setColumnNumber( column );
+                builder.addPackage( packageDef );
+                break;
+            }
+            case RecordingBuilder.IMPORT:
+                builder.addImport( readString() );
+                break;
+            case RecordingBuilder.JAVADOC:
+                builder.addJavaDoc( readString() );
+                break;
+            case RecordingBuilder.JAVADOC_TAG:
+            {
+                int line = readSigned();
+                int column = readSigned();
+                TagDef tagDef = new TagDef( readString(), readString(), line );
+                tagDef.setColumnNumber( column );
+                builder.addJavaDocTag( tagDef );
+                break;
+            }
+            case RecordingBuilder.JAVADOC_COMMENT:
+            {
+                String comment = readString();
+                int line = readSigned();
+                int column = readSigned();
+                if ( builder instanceof CommentHandler )
+                {
+                    ( (CommentHandler) builder ).onComment( comment, line, column );
+                }
+                else
+                {
+                    DefaultJavaCommentParser.parse( comment, line, column, builder );
+                }
+                break;
+            }
+            case RecordingBuilder.BEGIN_CLASS:
+            {
+                ClassDef def = new ClassDef();
+                readLocation( def );
+                def.setName( readString() );
+                def.setType( readString() );
+                def.setModifiers( readStrings() );
+                def.setTypeParameters( readTypeVariables() );
+                def.setExtends( readTypeSet() );
+                def.setImplements( readTypeSet() );
+                builder.beginClass( def );
+                break;
+            }
+            case RecordingBuilder.END_CLASS:
+                builder.endClass();
+                break;
+            case RecordingBuilder.INITIALIZER:
+            {
+                InitDef def = new InitDef();
+                readLocation( def );
+                def.setStatic( readBoolean() );
+                def.setBlockContent( readString() );
+                int blockStart = readSigned();
+                def.setBlockRange( blockStart, readSigned() );
+                builder.addInitializer( def );
+                break;
+            }
+            case RecordingBuilder.BEGIN_CONSTRUCTOR:
+                builder.beginConstructor();
+                break;
+            case RecordingBuilder.END_CONSTRUCTOR:
+                builder.endConstructor( readMethod() );
+                break;
+            case RecordingBuilder.BEGIN_METHOD:
+                builder.beginMethod();
+                break;
+            case RecordingBuilder.END_METHOD:
+                builder.endMethod( readMethod() );
+                break;
+            case RecordingBuilder.BEGIN_FIELD:
+                builder.beginField( readField() );
+                break;
+            case RecordingBuilder.END_FIELD:
+                builder.endField();
+                break;
+            case RecordingBuilder.PARAMETER:
+                builder.addParameter( readField() );
+                break;
+            case RecordingBuilder.ANNOTATION:
+                builder.addAnnotation( (AnnoDef) readExpression() );
+                break;
+            case RecordingBuilder.ARGUMENT:
+                builder.addArgument( (ExpressionDef) readExpression() );
+                break;
+            default:
+                throw new IllegalStateException( "Corrupt record, unknown call " + call + " at " + ( position[0] - 1 ) );
+        }
+    }
+
+    private MethodDef readMethod()
+    {
+        MethodDef def = new MethodDef();
+        readLocation( def );
+        def.setName( readString() );
+        def.setConstructor( readBoolean() );
+        def.setModifiers( readStrings() );
+        def.setTypeParams( readTypeVariables() );
+        def.setReturnType( readType() );
+        def.setDimensions( readVarInt() );
+        def.setExceptions( readTypeSet() );
+        def.setBody( readString() );
+        int bodyStart = readSigned();
+        def.setBodyRange( bodyStart, readSigned() );
+        return def;
+    }
+
+    private FieldDef readField()
+    {
+        FieldDef def = new FieldDef();
+        readLocation( def );
+        def.setName( readString() );
+        def.setType( readType() );
+        def.setModifiers( readStrings() );
+        def.setDimensions( readVarInt() );
+        def.setVarArgs( readBoolean() );
+        def.setEnumConstant( readBoolean() );
+        def.setBody( readString() );
+        int bodyStart = readSigned();
+        def.setBodyRange( bodyStart, readSigned() );
+        return def;
+    }
+
+    private void readLocation( LocatedDef def )
+    {
+        def.setLineNumber( readSigned() );
+        def.setColumnNumber( readSigned() );
+    }
+
+    private List<TypeVariableDef> readTypeVariables()
+    {
+        int size = readVarInt();
+        if ( size == 0 )
+        {
+            return null;
+        }
+        List<TypeVariableDef> result = new LinkedList<TypeVariableDef>();
+        for ( int i = 1; i < size; i++ )
+        {
+            String name = readString();
+            result.add( new TypeVariableDef( name, readTypeList() ) );
+        }
+        return result;
+    }
+
+    private Set<TypeDef> readTypeSet()
+    {
+        List<TypeDef> types = readTypeList();
+        return types == null ? null : new LinkedHashSet<TypeDef>( types );
+    }
+
+    private List<TypeDef> readTypeList()
+    {
+        int size = readVarInt();
+        if ( size == 0 )
+        {
+            return null;
+        }
+        List<TypeDef> result = new ArrayList<TypeDef>( size - 1 );
+        for ( int i = 1; i < size; i++ )
+        {
+            result.add( readType() );
+        }
+        return result;
+    }
+
+    private TypeDef readType()
+    {
+        TypeDef result;
+        int kind = readVarInt();
+        switch ( kind )
+        {
+            case 0:
+                return null;
+            case RecordingBuilder.TYPE:
+            {
+                String name = readString();
+                result = new TypeDef( name, readVarInt() );
+                break;
+            }
+            case RecordingBuilder.WILDCARD:
+                result = new WildcardTypeDef();
+                break;
+            case RecordingBuilder.BOUNDED_WILDCARD:
+            {
+                String wildcardExpressionType = readString();
+                result = new WildcardTypeDef( readType(), wildcardExpressionType );
+                break;
+            }
+            default:
+                throw new IllegalStateException( "Corrupt record, unknown type " + kind + " at " + ( position[0] - 1 ) );
+        }
+        result.setActualArgumentTypes( readTypeList() );
+        return result;
+    }
+
+    private ElemValueDef readExpression()
+    {
+        int kind = readVarInt();
+        switch ( kind )
+        {
+            case 0:
+                return null;
+            case RecordingBuilder.ANNO:
+            {
+                int line = readSigned();
+                int column = readSigned();
+                AnnoDef result = new AnnoDef( readType() );
+                result.setLineNumber( line );
+                result.setColumnNumber( column );
+                int args = readVarInt();
+                for ( int i = 0; i < args; i++ )
+                {
+                    String name = readString();
+                    result.getArgs().put( name, readExpression() );
+                }
+                return result;
+            }
+            case RecordingBuilder.ADD:
+                return new AddDef( readExpression(), readExpression() );
+            case RecordingBuilder.AND:
+                return new AndDef( readExpression(), readExpression() );
+            case RecordingBuilder.DIVIDE:
+                return new DivideDef( readExpression(), readExpression() );
+            case RecordingBuilder.EQUALS:
+                return new EqualsDef( readExpression(), readExpression() );
+            case RecordingBuilder.EXCLUSIVE_OR:
+                return new ExclusiveOrDef( readExpression(), readExpression() );
+            case RecordingBuilder.GREATER_EQUALS:
+                return new GreaterEqualsDef( readExpression(), readExpression() );
+            case RecordingBuilder.GREATER_THAN:
+                return new GreaterThanDef( readExpression(), readExpression() );
+            case RecordingBuilder.LESS_EQUALS:
+                return new LessEqualsDef( readExpression(), readExpression() );
+            case RecordingBuilder.LESS_THAN:
+                return new LessThanDef( readExpression(), readExpression() );
+            case RecordingBuilder.LOGICAL_AND:
+                return new LogicalAndDef( readExpression(), readExpression() );
+            case RecordingBuilder.LOGICAL_OR:
+                return new LogicalOrDef( readExpression(), readExpression() );
+            case RecordingBuilder.MULTIPLY:
+                return new MultiplyDef( readExpression(), readExpression() );
+            case RecordingBuilder.NOT_EQUALS:
+                return new NotEqualsDef( readExpression(), readExpression() );
+            case RecordingBuilder.OR:
+                return new OrDef( readExpression(), readExpression() );
+            case RecordingBuilder.REMAINDER:
+                return new RemainderDef( readExpression(), readExpression() );
+            case RecordingBuilder.SHIFT_LEFT:
+                return new ShiftLeftDef( readExpression(), readExpression() );
+            case RecordingBuilder.SHIFT_RIGHT:
+                return new ShiftRightDef( readExpression(), readExpression() );
+            case RecordingBuilder.SUBTRACT:
+                return new SubtractDef( readExpression(), readExpression() );
+            case RecordingBuilder.UNSIGNED_SHIFT_RIGHT:
+                return new UnsignedShiftRightDef( readExpression(), readExpression() );
+            case RecordingBuilder.CAST:
+            {
+                TypeDef type = readType();
+                return new CastDef( type, readExpression() );
+            }
+            case RecordingBuilder.CONSTANT:
+            {
+                String value = readString();
+                int type = readVarInt();
+                return new ConstantDef( value, type == 0 ? null : RecordingBuilder.CONSTANT_TYPES[type - 1] );
+            }
+            case RecordingBuilder.FIELD_REF:
+                return new FieldRefDef( readString() );
+            case RecordingBuilder.LOGICAL_NOT:
+                return new LogicalNotDef( readExpression() );
+            case RecordingBuilder.MINUS_SIGN:
+                return new MinusSignDef( readExpression() );
+            case RecordingBuilder.NOT:
+                return new NotDef( readExpression() );
+            case RecordingBuilder.PAREN_EXPRESSION:
+                return new ParenExpressionDef( readExpression() );
+            case RecordingBuilder.PLUS_SIGN:
+                return new PlusSignDef( readExpression() );
+            case RecordingBuilder.QUERY:
+                return new QueryDef( readExpression(), readExpression(), readExpression() );
+            case RecordingBuilder.TYPE_REF:
+                return new TypeRefDef( readType() );
+            case RecordingBuilder.ELEM_VALUE_LIST:
+                return new ElemValueListDef( readExpressions() );
+            case RecordingBuilder.ASSIGNMENT:
+            {
+                ElemValueDef leftHandSide = readExpression();
+                String operator = readString();
+                return new AssignmentDef( leftHandSide, operator, readExpression() );
+            }
+            case RecordingBuilder.POST_INCREMENT:
+                return new PostIncrementDef( readExpression() );
+            case RecordingBuilder.POST_DECREMENT:
+                return new PostDecrementDef( readExpression() );
+            case RecordingBuilder.PRE_DECREMENT:
+                return new PreDecrementDef( readExpression() );
+            case RecordingBuilder.PRE_INCREMENT:
+                return new PreIncrementDef( readExpression() );
+            case RecordingBuilder.METHOD_INVOCATION:
+            {
+                String methodName = readString();
+                return new MethodInvocationDef( methodName, this.<ExpressionDef>readExpressions() );
+            }
+            case RecordingBuilder.CREATOR:
+            {
+                CreatorDef result = new CreatorDef();
+                result.setCreatedName( readString() );
+                result.setArguments( this.<ExpressionDef>readExpressions() );
+                result.setClassBody( readString() );
+                return result;
+            }
+            default:
+                throw new IllegalStateException( "Corrupt record, unknown expression " + kind + " at "
+                    + ( position[0] - 1 ) );
+        }
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private <T extends ElemValueDef> List<T> readExpressions()
+    {
+        int size = readVarInt();
+        if ( size == 0 )
+        {
+            return null;
+        }
+        List<T> result = new ArrayList<T>( size - 1 );
+        for ( int i = 1; i < size; i++ )
+        {
+            result.add( (T) readExpression() );
+        }
+        return result;
+    }
+
+    private Set<String> readStrings()
+    {
+        int size = readVarInt();
+        if ( size == 0 )
+        {
+            return null;
+        }
+        Set<String> result = new LinkedHashSet<String>();
+        for ( int i = 1; i < size; i++ )
+        {
+            result.add( readString() );
+        }
+        return result;
+    }
+
+    private String readString()
+    {
+        return strings.get( readVarInt() );
+    }
+
+    private boolean readBoolean()
+    {
+        return buffer.get( position[0]++ ) != 0;
+    }
+
+    private int readSigned()
+    {
+        int value = readVarInt();
+        return ( value >>> 1 ) ^ -( value & 1 );
+    }
+
+    private int readVarInt()
+    {
+        return readVarInt( buffer, position );
+    }
+
+    /**
+     * @param buffer the buffer to read from, its position won't be changed
+     * @param position the absolute position to read at, which is moved past the value
+     * @return the value written by {@link RecordingBuilder#writeVarInt(java.io.ByteArrayOutputStream, int)}
+     */
+    static int readVarInt( ByteBuffer buffer, int[] position )
+    {
+        int result = 0;
+        for ( int shift = 0;; shift += 7 )
+        {
+            byte b = buffer.get( position[0]++ );
+            result |= ( b & 0x7F ) << shift;
+            if ( b >= 0 )
+            {
+                return result;
+            }
+        }
+    }
+}
@@ -0,0 +1,888 @@
+package com.thoughtworks.qdox.library;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.net.URL;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import com.thoughtworks.qdox.builder.Builder;
+import com.thoughtworks.qdox.builder.impl.ModelBuilder;
+import com.thoughtworks.qdox.model.JavaSource;
+import com.thoughtworks.qdox.parser.CommentHandler;
+import com.thoughtworks.qdox.parser.expression.AddDef;
+import com.thoughtworks.qdox.parser.expression.AndDef;
+import com.thoughtworks.qdox.parser.expression.AssignmentDef;
+import com.thoughtworks.qdox.parser.expression.BinaryOperatorDef;
+import com.thoughtworks.qdox.parser.expression.CastDef;
+import com.thoughtworks.qdox.parser.expression.ConstantDef;
+import com.thoughtworks.qdox.parser.expression.CreatorDef;
+import com.thoughtworks.qdox.parser.expression.DivideDef;
+import com.thoughtworks.qdox.parser.expression.ElemValueDef;
+import com.thoughtworks.qdox.parser.expression.ElemValueListDef;
+import com.thoughtworks.qdox.parser.expression.ElemValueTransformer;
+import com.thoughtworks.qdox.parser.expression.EqualsDef;
+import com.thoughtworks.qdox.parser.expression.ExclusiveOrDef;
+import com.thoughtworks.qdox.parser.expression.ExpressionDef;
+import com.thoughtworks.qdox.parser.expression.FieldRefDef;
+import com.thoughtworks.qdox.parser.expression.GreaterEqualsDef;
+import com.thoughtworks.qdox.parser.expression.GreaterThanDef;
+import com.thoughtworks.qdox.parser.expression.LessEqualsDef;
+import com.thoughtworks.qdox.parser.expression.LessThanDef;
+import com.thoughtworks.qdox.parser.expression.LogicalAndDef;
+import com.thoughtworks.qdox.parser.expression.LogicalNotDef;
+import com.thoughtworks.qdox.parser.expression.LogicalOrDef;
+import com.thoughtworks.qdox.parser.expression.MethodInvocationDef;
+import com.thoughtworks.qdox.parser.expression.MinusSignDef;
+import com.thoughtworks.qdox.parser.expression.MultiplyDef;
+import com.thoughtworks.qdox.parser.expression.NotDef;
+import com.thoughtworks.qdox.parser.expression.NotEqualsDef;
+import com.thoughtworks.qdox.parser.expression.OrDef;
+import com.thoughtworks.qdox.parser.expression.ParenExpressionDef;
+import com.thoughtworks.qdox.parser.expression.PlusSignDef;
+import com.thoughtworks.qdox.parser.expression.PostDecrementDef;
+import com.thoughtworks.qdox.parser.expression.PostIncrementDef;
+import com.thoughtworks.qdox.parser.expression.PreDecrementDef;
+import com.thoughtworks.qdox.parser.expression.PreIncrementDef;
+import com.thoughtworks.qdox.parser.expression.QueryDef;
+import com.thoughtworks.qdox.parser.expression.RemainderDef;
+import com.thoughtworks.qdox.parser.expression.ShiftLeftDef;
+import com.thoughtworks.qdox.parser.expression.ShiftRightDef;
+import com.thoughtworks.qdox.parser.expression.SubtractDef;
+import com.thoughtworks.qdox.parser.expression.TypeRefDef;
+import com.thoughtworks.qdox.parser.expression.UnaryOperatorDef;
+import com.thoughtworks.qdox.parser.expression.UnsignedShiftRightDef;
+import com.thoughtworks.qdox.parser.impl.DefaultJavaCommentParser;
+import com.thoughtworks.qdox.parser.structs.AnnoDef;
+import com.thoughtworks.qdox.parser.structs.ClassDef;
+import com.thoughtworks.qdox.parser.structs.FieldDef;
+import com.thoughtworks.qdox.parser.structs.InitDef;
+import com.thoughtworks.qdox.parser.structs.LocatedDef;
+import com.thoughtworks.qdox.parser.structs.MethodDef;
+import com.thoughtworks.qdox.parser.structs.PackageDef;
+import com.thoughtworks.qdox.parser.structs.TagDef;
+import com.thoughtworks.qdox.parser.structs.TypeDef;
+import com.thoughtworks.qdox.parser.structs.TypeVariableDef;
+import com.thoughtworks.qdox.parser.structs.WildcardTypeDef;
+import com.thoughtworks.qdox.writer.ModelWriterFactory;
+
+/**
+ * Records every call of the parser as a compact binary record, so the source can be built again by a
+ * {@link RecordReplayer} without lexing and parsing it. All calls are forwarded to the delegate, if there is one.
+ * Strings are written as references to a {@link StringPool}, which can be shared by several records.
+ *
+ * @author Robert Scholte
+ * @since 2.0
+ */
+final class RecordingBuilder
+    implements Builder, CommentHandler
+{
+    // builder calls
+    static final int PACKAGE = 1;
+
+    static final int IMPORT = 2;
+
+    static final int JAVADOC = 3;
+
+    static final int JAVADOC_TAG = 4;
+
+    static final int JAVADOC_COMMENT = 5;
+
+    static final int BEGIN_CLASS = 6;
+
+    static final int END_CLASS = 7;
+
+    static final int INITIALIZER = 8;
+
+    static final int BEGIN_CONSTRUCTOR = 9;
+
+    static final int END_CONSTRUCTOR = 10;
+
+    static final int BEGIN_METHOD = 11;
+
+    static final int END_METHOD = 12;
+
+    static final int BEGIN_FIELD = 13;
+
+    static final int END_FIELD = 14;
+
+    static final int PARAMETER = 15;
+
+    static final int ANNOTATION = 16;
+
+    static final int ARGUMENT = 17;
+
+    // types, 0 is null
+    static final int TYPE = 1;
+
+    static final int WILDCARD = 2;
+
+    static final int BOUNDED_WILDCARD = 3;
+
+    // expressions, 0 is null
+    static final int ANNO = 1;
+
+    static final int ADD = 2;
+
+    static final int AND = 3;
+
+    static final int DIVIDE = 4;
+
+    static final int EQUALS = 5;
+
+    static final int EXCLUSIVE_OR = 6;
+
+    static final int GREATER_EQUALS = 7;
+
+    static final int GREATER_THAN = 8;
+
+    static final int LESS_EQUALS = 9;
+
+    static final int LESS_THAN = 10;
+
+    static final int LOGICAL_AND = 11;
+
+    static final int LOGICAL_OR = 12;
+
+    static final int MULTIPLY = 13;
+
+    static final int NOT_EQUALS = 14;
+
+    static final int OR = 15;
+
+    static final int REMAINDER = 16;
+
+    static final int SHIFT_LEFT = 17;
+
+    static final int SHIFT_RIGHT = 18;
+
+    static final int SUBTRACT = 19;
+
+    static final int UNSIGNED_SHIFT_RIGHT = 20;
+
+    static final int CAST = 21;
+
+    static final int CONSTANT = 22;
+
+    static final int FIELD_REF = 23;
+
+    static final int LOGICAL_NOT = 24;
+
+    static final int MINUS_SIGN = 25;
+
+    static final int NOT = 26;
+
+    static final int PAREN_EXPRESSION = 27;
+
+    static final int PLUS_SIGN = 28;
+
+    static final int QUERY = 29;
+
+    static final int TYPE_REF = 30;
+
+    static final int ELEM_VALUE_LIST = 31;
+
+    static final int ASSIGNMENT = 32;
+
+    static final int POST_INCREMENT = 33;
+
+    static final int POST_DECREMENT = 34;
+
+    static final int PRE_DECREMENT = 35;
+
+    static final int PRE_INCREMENT = 36;
+
+    static final int METHOD_INVOCATION = 37;
+
+    static final int CREATOR = 38;
+
+    /**
+     * The types of a {@link ConstantDef}, which are written as their index
+     */
+    static final Class<?>[] CONSTANT_TYPES =
+        { Boolean.class, Character.class, Double.class, Float.class, Integer.class, Long.class, String.class };
+
+    private final Builder delegate;
+
+    private final StringPool strings;
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    private final ElemValueTransformer<Void> expressionWriter = new ExpressionWriter();
+
+    /**
+     * @param delegate the builder to forward the calls to, may be <code>null</code>
+     * @param strings the pool for the Strings of this record
+     */
+    RecordingBuilder( Builder delegate, StringPool strings )
+    {
+        this.delegate = delegate;
+        this.strings = strings;
+    }
+
+    /**
+     * @return the record of all calls so far
+     */
+    byte[] toByteArray()
+    {
+        return out.toByteArray();
+    }
+
+    public void setModelWriterFactory( ModelWriterFactory writer )
+    {
+        if ( delegate != null )
+        {
+            delegate.setModelWriterFactory( writer );
+        }
+    }
+
+    public void setUrl( URL url )
+    {
+        // the url isn't part of the record
+        if ( delegate != null )
+        {
+            delegate.setUrl( url );
+        }
+    }
+
+    public void setSourceContent( CharSequence content )
+    {
+        // the content isn't part of the record, only the ranges of the codeblocks
+        if ( delegate instanceof ModelBuilder )
+        {
+            ( (ModelBuilder) delegate ).setSourceContent( content );
+        }
+    }
+
+    public void addPackage( PackageDef packageDef )
+    {
+        writeVarInt( out, PACKAGE );
+        writeLocation( packageDef );
+        writeString( packageDef.getName() );
+        if ( delegate != null )
+        {
+            delegate.addPackage( packageDef );
+        }
+    }
+
+    public void addImport( String importName )
+    {
+        writeVarInt( out, IMPORT );
+        writeString( importName );
+        if ( delegate != null )
+        {
+            delegate.addImport( importName );
+        }
+    }
+
+    public void addJavaDoc( String text )
+    {
+        writeVarInt( out, JAVADOC );
+        writeString( text );
+        if ( delegate != null )
+        {
+            delegate.addJavaDoc( text );
+        }
+    }
+
+    public void addJavaDocTag( TagDef def )
+    {
+        writeVarInt( out, JAVADOC_TAG );
+        writeLocation( def );
+        writeString( def.getName() );
+        writeString( def.getText() );
+        if ( delegate != null )
+        {
+            delegate.addJavaDocTag( def );
+        }
+    }
+
+    public void onComment( String comment, int line, int column )
+    {
+        writeVarInt( out, JAVADOC_COMMENT );
+        writeString( comment );
+        writeSigned( line );
+        writeSigned( column );
+        if ( delegate instanceof CommentHandler )
+        {
+            ( (CommentHandler) delegate ).onComment( comment, line, column );
+        }
+        else if ( delegate != null )
+        {
+            DefaultJavaCommentParser.parse( comment, line, column, delegate );
+        }
+    }
+
+    public void beginClass( ClassDef def )
+    {
+        writeVarInt( out, BEGIN_CLASS );
+        writeLocation( def );
+        writeString( def.getName() );
+        writeString( def.getType() );
+        writeStrings( def.getModifiers() );
+        writeTypeVariables( def.getTypeParameters() );
+        writeTypes( def.getExtends() );
+        writeTypes( def.getImplements() );
+        if ( delegate != null )
+        {
+            delegate.beginClass( def );
+        }
+    }
+
+    public void endClass()
+    {
+        writeVarInt( out, END_CLASS );
+        if ( delegate != null )
+        {
+            delegate.endClass();
+        }
+    }
+
+    public void addInitializer( InitDef def )
+    {
+        writeVarInt( out, INITIALIZER );
+        writeLocation( def );
+        writeBoolean( def.isStatic() );
+        writeString( def.getBlockContent() );
+        writeSigned( def.getBlockStart() );
+        writeSigned( def.getBlockEnd() );
+        if ( delegate != null )
+        {
+            delegate.addInitializer( def );
+        }
+    }
+
+    public void beginConstructor()
+    {
+        writeVarInt( out, BEGIN_CONSTRUCTOR );
+        if ( delegate != null )
+        {
+            delegate.beginConstructor();
+        }
+    }
+
+    public void endConstructor( MethodDef def )
+    {
+        writeVarInt( out, END_CONSTRUCTOR );
+        writeMethod( def );
+        if ( delegate != null )
+        {
+            delegate.endConstructor( def );
+        }
+    }
+
+    public void beginMethod()
+    {
+        writeVarInt( out, BEGIN_METHOD );
+        if ( delegate != null )
+        {
+            delegate.beginMethod();
+        }
+    }
+
+    public void endMethod( MethodDef def )
+    {
+        writeVarInt( out, END_METHOD );
+        writeMethod( def );
+        if ( delegate != null )
+        {
+            delegate.endMethod( def );
+        }
+    }
+
+    public void beginField( FieldDef def )
+    {
+        writeVarInt( out, BEGIN_FIELD );
+        writeField( def );
+        if ( delegate != null )
+        {
+            delegate.beginField( def );
+        }
+    }
+
+    public void endField()
+    {
+        writeVarInt( out, END_FIELD );
+        if ( delegate != null )
+        {
+            delegate.endField();
+        }
+    }
+
+    public void addParameter( FieldDef def )
+    {
+        writeVarInt( out, PARAMETER );
+        writeField( def );
+        if ( delegate != null )
+        {
+            delegate.addParameter( def );
+        }
+    }
+
+    public void addAnnotation( AnnoDef annotation )
+    {
+        writeVarInt( out, ANNOTATION );
+        writeExpression( annotation );
+        if ( delegate != null )
+        {
+            delegate.addAnnotation( annotation );
+        }
+    }
+
+    public void addArgument( ExpressionDef argument )
+    {
+        writeVarInt( out, ARGUMENT );
+        writeExpression( argument );
+        if ( delegate != null )
+        {
+            delegate.addArgument( argument );
+        }
+    }
+
+    public JavaSource getSource()
+    {
+        return delegate != null ? delegate.getSource() : null;
+    }
+
+    private void writeMethod( MethodDef def )
+    {
+        writeLocation( def );
+        writeString( def.getName() );
+        writeBoolean( def.isConstructor() );
+        writeStrings( def.getModifiers() );
+        writeTypeVariables( def.getTypeParams() );
+        writeType( def.getReturnType() );
+        writeVarInt( out, def.getDimensions() );
+        writeTypes( def.getExceptions() );
+        writeString( def.getBody() );
+        writeSigned( def.getBodyStart() );
+        writeSigned( def.getBodyEnd() );
+    }
+
+    private void writeField( FieldDef def )
+    {
+        writeLocation( def );
+        writeString( def.getName() );
+        writeType( def.getType() );
+        writeStrings( def.getModifiers() );
+        writeVarInt( out, def.getDimensions() );
+        writeBoolean( def.isVarArgs() );
+        writeBoolean( def.isEnumConstant() );
+        writeString( def.getBody() );
+        writeSigned( def.getBodyStart() );
+        writeSigned( def.getBodyEnd() );
+    }
+
+    private void writeLocation( LocatedDef def )
+    {
+        writeSigned( def.getLineNumber() );
+        writeSigned( def.getColumnNumber() );
+    }
+
+    private void writeTypeVariables( List<TypeVariableDef> typeVariables )
+    {
+        writeSize( typeVariables );
+        if ( typeVariables != null )
+        {
+            for ( TypeVariableDef typeVariable : typeVariables )
+            {
+                writeString( typeVariable.getName() );
+                writeTypes( typeVariable.getBounds() );
+            }
+        }
+    }
+
+    private void writeTypes( Collection<TypeDef> types )
+    {
+        writeSize( types );
+        if ( types != null )
+        {
+            for ( TypeDef type : types )
+            {
+                writeType( type );
+            }
+        }
+    }
+
+    private void writeType( TypeDef type )
+    {
+        if ( type == null )
+        {
+            writeVarInt( out, 0 );
+            return;
+        }
+        if ( type instanceof WildcardTypeDef )
+        {
+            WildcardTypeDef wildcard = (WildcardTypeDef) type;
+            if ( wildcard.getTypeDef() == null )
+            {
+                writeVarInt( out, WILDCARD );
+            }
+            else
+            {
+                writeVarInt( out, BOUNDED_WILDCARD );
+                writeString( wildcard.getWildcardExpressionType() );
+                writeType( wildcard.getTypeDef() );
+            }
+        }
+        else
+        {
+            writeVarInt( out, TYPE );
+            writeString( type.getName() );
+            writeVarInt( out, type.getDimensions() );
+        }
+        writeTypes( type.getActualArgumentTypes() );
+    }
+
+    private void writeExpression( ElemValueDef expression )
+    {
+        if ( expression == null )
+        {
+            writeVarInt( out, 0 );
+        }
+        else
+        {
+            expression.transform( expressionWriter );
+        }
+    }
+
+    private void writeExpressions( List<? extends ElemValueDef> expressions )
+    {
+        writeSize( expressions );
+        if ( expressions != null )
+        {
+            for ( ElemValueDef expression : expressions )
+            {
+                writeExpression( expression );
+            }
+        }
+    }
+
+    private void writeStrings( Collection<String> values )
+    {
+        writeSize( values );
+        if ( values != null )
+        {
+            for ( String value : values )
+            {
+                writeString( value );
+            }
+        }
+    }
+
+    private void writeString( String value )
+    {
+        writeVarInt( out, strings.reference( value ) );
+    }
+
+    private void writeBoolean( boolean value )
+    {
+        out.write( value ? 1 : 0 );
+    }
+
+    /**
+     * @param collection the collection, may be <code>null</code>
+     */
+    private void writeSize( Collection<?> collection )
+    {
+        writeVarInt( out, collection == null ? 0 : collection.size() + 1 );
+    }
+
+    /**
+     * Small negative numbers, like the <code>-1</code> of undefined ranges and lines, are written as small values
+     */
+    private void writeSigned( int value )
+    {
+        writeVarInt( out, ( value << 1 ) ^ ( value >> 31 ) );
+    }
+
+    /**
+     * Writes the value as 7 bits per byte, the highest bit marks that another byte follows.
+     *
+     * @param out the stream to write to
+     * @param value the value, handled as unsigned
+     */
+    static void writeVarInt( ByteArrayOutputStream out, int value )
+    {
+        while ( ( value & ~0x7F ) != 0 )
+        {
+            out.write( ( value & 0x7F ) | 0x80 );
+            value >>>= 7;
+        }
+        out.write( value );
+    }
+
+    private class ExpressionWriter
+        implements ElemValueTransformer<Void>
+    {
+        public Void transform( AnnoDef annoDef )
+        {
+            writeVarInt( out, ANNO );
+            writeLocation( annoDef );
+            writeType( annoDef.getTypeDef() );
+            writeVarInt( out, annoDef.getArgs().size() );
+            for ( Map.Entry<String, ElemValueDef> arg : annoDef.getArgs().entrySet() )
+            {
+                writeString( arg.getKey() );
+                writeExpression( arg.getValue() );
+            }
+            return null;
+        }
+
+        public Void transform( AddDef annotationAdd )
+        {
+            return writeBinary( ADD, annotationAdd );
+        }
+
+        public Void transform( AndDef annotationAnd )
+        {
+            return writeBinary( AND, annotationAnd );
+        }
+
+        public Void transform( DivideDef annotationDivide )
+        {
+            return writeBinary( DIVIDE, annotationDivide );
+        }
+
+        public Void transform( EqualsDef annotationEquals )
+        {
+            return writeBinary( EQUALS, annotationEquals );
+        }
+
+        public Void transform( ExclusiveOrDef annotationExclusiveOr )
+        {
+            return writeBinary( EXCLUSIVE_OR, annotationExclusiveOr );
+        }
+
+        public Void transform( GreaterEqualsDef annotationGreaterEquals )
+        {
+            return writeBinary( GREATER_EQUALS, annotationGreaterEquals );
+        }
+
+        public Void transform( GreaterThanDef annotationGreaterThan )
+        {
+            return writeBinary( GREATER_THAN, annotationGreaterThan );
+        }
+
+        public Void transform( LessEqualsDef annotationLessEquals )
+        {
+            return writeBinary( LESS_EQUALS, annotationLessEquals );
+        }
+
+        public Void transform( LessThanDef annotationLessThan )
+        {
+            return writeBinary( LESS_THAN, annotationLessThan );
+        }
+
+        public Void transform( LogicalAndDef annotationLogicalAnd )
+        {
+            return writeBinary( LOGICAL_AND, annotationLogicalAnd );
+        }
+
+        public Void transform( LogicalOrDef annotationLogicalOr )
+        {
+            return writeBinary( LOGICAL_OR, annotationLogicalOr );
+        }
+
+        public Void transform( MultiplyDef annotationMultiply )
+        {
+            return writeBinary( MULTIPLY, annotationMultiply );
+        }
+
+        public Void transform( NotEqualsDef annotationNotEquals )
+        {
+            return writeBinary( NOT_EQUALS, annotationNotEquals );
+        }
+
+        public Void transform( OrDef annotationOr )
+        {
+            return writeBinary( OR, annotationOr );
+        }
+
+        public Void transform( RemainderDef annotationRemainder )
+        {
+            return writeBinary( REMAINDER, annotationRemainder );
+        }
+
+        public Void transform( ShiftLeftDef annotationShiftLeft )
+        {
+            return writeBinary( SHIFT_LEFT, annotationShiftLeft );
+        }
+
+        public Void transform( ShiftRightDef annotationShiftRight )
+        {
+            return writeBinary( SHIFT_RIGHT, annotationShiftRight );
+        }
+
+        public Void transform( SubtractDef annotationSubtract )
+        {
+            return writeBinary( SUBTRACT, annotationSubtract );
+        }
+
+        public Void transform( UnsignedShiftRightDef annotationUnsignedShiftRight )
+        {
+            return writeBinary( UNSIGNED_SHIFT_RIGHT, annotationUnsignedShiftRight );
+        }
+
+        public Void transform( CastDef annotationCast )
+        {
+            writeVarInt( out, CAST );
+            writeType( annotationCast.getTypeDef() );
+            writeExpression( annotationCast.getElemDef() );
+            return null;
+        }
+
+        public Void transform( ConstantDef annotationConstant )
+        {
+            int type = 0;
+            for ( int i = 0; i < CONSTANT_TYPES.length; i++ )
+            {
+                if ( CONSTANT_TYPES[i] == annotationConstant.getType() )
+                {
+                    type = i + 1;
+                }
+            }
+            writeVarInt( out, CONSTANT );
+            writeString( annotationConstant.getValue() );
+            writeVarInt( out, type );
+            return null;
+        }
+
+        public Void transform( FieldRefDef annotationFieldRef )
+        {
+            writeVarInt( out, FIELD_REF );
+            writeString( annotationFieldRef.getName() );
+            return null;
+        }
+
+        public Void transform( LogicalNotDef annotationLogicalNot )
+        {
+            return writeUnary( LOGICAL_NOT, annotationLogicalNot );
+        }
+
+        public Void transform( MinusSignDef annotationMinusSign )
+        {
+            return writeUnary( MINUS_SIGN, annotationMinusSign );
+        }
+
+        public Void transform( NotDef annotationNot )
+        {
+            return writeUnary( NOT, annotationNot );
+        }
+
+        public Void transform( ParenExpressionDef annotationParenExpression )
+        {
+            writeVarInt( out, PAREN_EXPRESSION );
+            writeExpression( annotationParenExpression.getElemValueDef() );
+            return null;
+        }
+
+        public Void transform( PlusSignDef annotationPlusSign )
+        {
+            return writeUnary( PLUS_SIGN, annotationPlusSign );
+        }
+
+        public Void transform( QueryDef annotationQuery )
+        {
+            writeVarInt( out, QUERY );
+            writeExpression( annotationQuery.getCondition() );
+            writeExpression( annotationQuery.getTrueExpression() );
+            writeExpression( annotationQuery.getFalseExpression() );
+            return null;
+        }
+
+        public Void transform( TypeRefDef annotationTypeRef )
+        {
+            writeVarInt( out, TYPE_REF );
+            writeType( annotationTypeRef.getTypeDef() );
+            return null;
+        }
+
+        public Void transform( ElemValueListDef elemValueListDef )
+        {
+            writeVarInt( out, ELEM_VALUE_LIST );
+            writeExpressions( elemValueListDef.getValueList() );
+            return null;
+        }
+
+        public Void transform( AssignmentDef assignmentDef )
+        {
+            writeVarInt( out, ASSIGNMENT );
+            writeExpression( assignmentDef.getLetfHandSide() );
+            writeString( assignmentDef.getOperator() );
+            writeExpression( assignmentDef.getAssignmentExpression() );
+            return null;
+        }
+
+        public Void transform( PostIncrementDef postIncrement )
+        {
+            return writeUnary( POST_INCREMENT, postIncrement );
+        }
+
+        public Void transform( PostDecrementDef postDecrementDef )
+        {
+            return writeUnary( POST_DECREMENT, postDecrementDef );
+        }
+
+        public Void transform( PreDecrementDef preDecrementDef )
+        {
+            return writeUnary( PRE_DECREMENT, preDecrementDef );
+        }
+
+        public Void transform( PreIncrementDef preIncrementDef )
+        {
+            return writeUnary( PRE_INCREMENT, preIncrementDef );
+        }
+
+        public Void transform( MethodInvocationDef methodInvocationDef )
+        {
+            writeVarInt( out, METHOD_INVOCATION );
+            writeString( methodInvocationDef.getMethodName() );
+            writeExpressions( methodInvocationDef.getArguments() );
+            return null;
+        }
+
+        public Void transform( CreatorDef newCreator )
+        {
+            writeVarInt( out, CREATOR );
+            writeString( newCreator.getCreatedName() );
+            writeExpressions( newCreator.getArguments() );
+            writeString( newCreator.getClassBody() );
+            return null;
+        }
+
+        private Void writeBinary( int kind, BinaryOperatorDef expression )
+        {
+            writeVarInt( out, kind );
+            writeExpression( expression.getLeft() );
+            writeExpression( expression.getRight() );
+            return null;
+        }
+
+        private Void writeUnary( int kind, UnaryOperatorDef expression )
+        {
+            writeVarInt( out, kind );
+            writeExpression( expression.getElemValueDef() );
+            return null;
+        }
+    }
+}
@@ -0,0 +1,368 @@
+package com.thoughtworks.qdox.library;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.thoughtworks.qdox.builder.Builder;
+import com.thoughtworks.qdox.model.JavaClass;
+import com.thoughtworks.qdox.model.JavaSource;
+
+/**
+ * A file with the records of sources, written by a {@link Writer}. The file starts with a header, followed by the
+ * records, a table with an entry per source and the {@link StringTable} shared by all records. An entry contains the
+ * url and package of the source, the offsets of its record and the names of its classes. The file is read into memory
+ * at once, like {@link SourceFiles} it isn't memory mapped, so it's never kept locked. Only the entries are decoded when
+ * it is opened, a record is decoded once its source is requested.
+ *
+ * @author Robert Scholte
+ * @since 2.0
+ */
+final class Snapshot
+    implements Serializable
+{
+    private static final int MAGIC = 0x51445853;
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 16;
+
+    private final File file;
+
+    private transient ByteBuffer buffer;
+
+    private transient StringTable strings;
+
+    private transient int[] entries;
+
+    private transient Map<String, Integer> classIndex;
+
+    private transient Map<String, List<Integer>> packageIndex;
+
+    private boolean[] taken;
+
+    /**
+     * @param file the snapshot file
+     * @throws IOException if the file can't be read or isn't a snapshot
+     */
+    Snapshot( File file )
+        throws IOException
+    {
+        this.file = file;
+        open();
+    }
+
+    private void open()
+        throws IOException
+    {
+        FileInputStream stream = new FileInputStream( file );
+        try
+        {
+            FileChannel channel = stream.getChannel();
+            buffer = ByteBuffer.allocate( (int) channel.size() );
+            while ( buffer.hasRemaining() && channel.read( buffer ) != -1 )
+            {
+                // keep reading until the buffer is full
+            }
+            buffer.flip();
+        }
+        finally
+        {
+            stream.close();
+        }
+        if ( buffer.limit() < HEADER_SIZE || buffer.getInt( 0 ) != MAGIC )
+        {
+            throw new IOException( "Not a snapshot : " + file );
+        }
+        if ( buffer.getInt( 4 ) != VERSION )
+        {
+            throw new IOException( "Unsupported snapshot version " + buffer.getInt( 4 ) + " : " + file );
+        }
+        int entriesStart = buffer.getInt( 8 );
+        strings = new StringTable( buffer, buffer.getInt( 12 ) );
+
+        int count = buffer.getInt( entriesStart );
+        entries = new int[count];
+        if ( taken == null )
+        {
+            taken = new boolean[count];
+        }
+        classIndex = new HashMap<String, Integer>();
+        packageIndex = new HashMap<String, List<Integer>>();
+        int position = entriesStart + 4;
+        for ( int i = 0; i < count; i++ )
+        {
+            entries[i] = position;
+            String packageName = strings.get( buffer.getInt( position + 4 ) );
+            List<Integer> packageSources = packageIndex.get( packageName );
+            if ( packageSources == null )
+            {
+                packageSources = new LinkedList<Integer>();
+                packageIndex.put( packageName, packageSources );
+            }
+            packageSources.add( i );
+            int classCount = buffer.getInt( position + 16 );
+            position += 20;
+            for ( int c = 0; c < classCount; c++ )
+            {
+                classIndex.put( strings.get( buffer.getInt( position ) ), i );
+                position += 4;
+            }
+        }
+    }
+
+    private void readObject( ObjectInputStream in )
+        throws IOException, ClassNotFoundException
+    {
+        in.defaultReadObject();
+        open();
+    }
+
+    /**
+     * @param className the fully qualified name of a class
+     * @return <code>true</code> if the class belongs to a source which hasn't been taken yet
+     */
+    synchronized boolean containsClass( String className )
+    {
+        Integer index = classIndex.get( className );
+        return index != null && !taken[index];
+    }
+
+    /**
+     * @param packageName the name of the package, the empty String for the default package
+     * @param typeNames the simple names of the top level classes of the package are added to it, including those of
+     *            sources which have been taken
+     */
+    synchronized void addTypeNames( String packageName, Set<String> typeNames )
+    {
+        List<Integer> packageSources = packageIndex.get( packageName );
+        if ( packageSources == null )
+        {
+            return;
+        }
+        for ( Integer index : packageSources )
+        {
+            int position = entries[index];
+            int classCount = buffer.getInt( position + 16 );
+            for ( int c = 0; c < classCount; c++ )
+            {
+                String className = strings.get( buffer.getInt( position + 20 + 4 * c ) );
+                String typeName = ClassPathIndex.getTopLevelName( packageName, className );
+                if ( typeName != null )
+                {
+                    typeNames.add( typeName );
+                }
+            }
+        }
+    }
+
+    /**
+     * @param className the fully qualified name of a class
+     * @return the package name of the source with this class, otherwise <code>null</code>
+     */
+    synchronized String getPackageName( String className )
+    {
+        Integer index = classIndex.get( className );
+        return index != null ? strings.get( buffer.getInt( entries[index] + 4 ) ) : null;
+    }
+
+    /**
+     * Takes the sources of a package, so every source is only built once.
+     *
+     * @param packageName the name of the package, the empty String for the default package
+     * @return the indices of the sources of the package which haven't been taken before
+     */
+    synchronized List<Integer> takePackage( String packageName )
+    {
+        List<Integer> result = new ArrayList<Integer>();
+        List<Integer> packageSources = packageIndex.get( packageName );
+        if ( packageSources != null )
+        {
+            for ( Integer index : packageSources )
+            {
+                if ( !taken[index] )
+                {
+                    taken[index] = true;
+                    result.add( index );
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the indices of all sources which haven't been taken before
+     */
+    synchronized List<Integer> takeAll()
+    {
+        List<Integer> result = new ArrayList<Integer>();
+        for ( int i = 0; i < taken.length; i++ )
+        {
+            if ( !taken[i] )
+            {
+                taken[i] = true;
+                result.add( i );
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Takes the source with this url without building it, so it won't be built anymore
+     *
+     * @param url the url of the source
+     * @return <code>true</code> if a source has been taken, otherwise <code>false</code>
+     */
+    synchronized boolean take( URL url )
+    {
+        boolean result = false;
+        String externalForm = url.toExternalForm();
+        for ( int i = 0; i < taken.length; i++ )
+        {
+            if ( !taken[i] && externalForm.equals( strings.get( buffer.getInt( entries[i] ) ) ) )
+            {
+                taken[i] = true;
+                result = true;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Calls the builder with the record of a source.
+     *
+     * @param index the index of the source
+     * @param builder the builder, the url will be set
+     */
+    void replay( int index, Builder builder )
+    {
+        int entry = entries[index];
+        String url = strings.get( buffer.getInt( entry ) );
+        try
+        {
+            builder.setUrl( url != null ? new URL( url ) : null );
+        }
+        catch ( MalformedURLException e )
+        {
+            throw new IllegalStateException( "Corrupt snapshot, invalid url " + url + " : " + file );
+        }
+        RecordReplayer.replay( buffer, buffer.getInt( entry + 8 ), buffer.getInt( entry + 12 ), strings, builder );
+    }
+
+    /**
+     * Collects the records of sources and writes them as a snapshot.
+     */
+    static final class Writer
+    {
+        private final StringPool strings = new StringPool();
+
+        private final ByteArrayOutputStream records = new ByteArrayOutputStream();
+
+        private final ByteArrayOutputStream entries = new ByteArrayOutputStream();
+
+        private final DataOutputStream entriesOut = new DataOutputStream( entries );
+
+        private int count;
+
+        /**
+         * @return a builder which records the calls for a source, with the Strings of this writer
+         */
+        RecordingBuilder newRecord()
+        {
+            return new RecordingBuilder( null, strings );
+        }
+
+        /**
+         * @param source the source, which provides the url, package name and class names
+         * @param record the record of the source
+         */
+        void add( JavaSource source, RecordingBuilder record )
+            throws IOException
+        {
+            int start = HEADER_SIZE + records.size();
+            records.write( record.toByteArray() );
+
+            List<String> classNames = new ArrayList<String>();
+            addClassNames( source.getClasses(), classNames );
+            entriesOut.writeInt( strings.reference( source.getURL() != null ? source.getURL().toExternalForm() : null ) );
+            entriesOut.writeInt( strings.reference( source.getPackageName() ) );
+            entriesOut.writeInt( start );
+            entriesOut.writeInt( HEADER_SIZE + records.size() );
+            entriesOut.writeInt( classNames.size() );
+            for ( String className : classNames )
+            {
+                entriesOut.writeInt( strings.reference( className ) );
+            }
+            count++;
+        }
+
+        private static void addClassNames( List<JavaClass> classes, List<String> classNames )
+        {
+            for ( JavaClass cls : classes )
+            {
+                classNames.add( cls.getFullyQualifiedName() );
+                addClassNames( cls.getNestedClasses(), classNames );
+            }
+        }
+
+        void writeTo( File file )
+            throws IOException
+        {
+            OutputStream stream = new FileOutputStream( file );
+            try
+            {
+                DataOutputStream out = new DataOutputStream( stream );
+                int entriesStart = HEADER_SIZE + records.size();
+                out.writeInt( MAGIC );
+                out.writeInt( VERSION );
+                out.writeInt( entriesStart );
+                out.writeInt( entriesStart + 4 + entries.size() );
+                records.writeTo( out );
+                out.writeInt( count );
+                entriesOut.flush();
+                entries.writeTo( out );
+                out.flush();
+                strings.writeTo( stream );
+            }
+            finally
+            {
+                stream.close();
+            }
+        }
+    }
+}
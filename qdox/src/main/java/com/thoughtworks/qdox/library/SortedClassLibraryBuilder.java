@@ -24,8 +24,11 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
 import java.net.URL;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 import com.thoughtworks.qdox.builder.ModelBuilderFactory;
+import com.thoughtworks.qdox.directorywalker.FileVisitor;
 import com.thoughtworks.qdox.model.JavaSource;
 import com.thoughtworks.qdox.writer.ModelWriterFactory;
 
@@ -34,12 +37,14 @@ import com.thoughtworks.qdox.writer.ModelWriterFactory;
  * @since 2.0
  */
 public class SortedClassLibraryBuilder
-    implements ClassLibraryBuilder
+    extends AbstractClassLibraryBuilder
 {
     private final ClassNameLibrary classNameLibrary;
 
     private final ClassLoaderLibrary classLoaderLibrary;
 
+    private final ClassFileLibrary classFileLibrary;
+
     private final SourceFolderLibrary sourceFolderLibrary;
 
     private final SourceLibrary sourceLibrary;
@@ -48,7 +53,8 @@ public class SortedClassLibraryBuilder
     {
         classNameLibrary = new ClassNameLibrary();
         classLoaderLibrary = new ClassLoaderLibrary( classNameLibrary );
-        sourceFolderLibrary = new SourceFolderLibrary( classLoaderLibrary );
+        classFileLibrary = new ClassFileLibrary( classLoaderLibrary );
+        sourceFolderLibrary = new SourceFolderLibrary( classFileLibrary );
         sourceLibrary = new SourceLibrary( sourceFolderLibrary );
     }
 
@@ -64,6 +70,12 @@ public class SortedClassLibraryBuilder
         return this;
     }
 
+    public ClassLibraryBuilder appendClassPath( File classPathEntry )
+    {
+        classFileLibrary.addClassPath( classPathEntry );
+        return this;
+    }
+
     public ClassLibraryBuilder appendSourceFolder( File sourceFolder )
     {
         sourceFolderLibrary.addSourceFolder( sourceFolder );
@@ -96,6 +108,19 @@ public class SortedClassLibraryBuilder
         return this;
     }
 
+    public ClassLibraryBuilder appendSnapshot( File file )
+        throws IOException
+    {
+        sourceLibrary.addSnapshot( file );
+        return this;
+    }
+
+    public void saveSnapshot( File file )
+        throws IOException
+    {
+        sourceLibrary.saveSnapshot( file );
+    }
+
     public ClassLibraryBuilder setDebugLexer( boolean debugLexer )
     {
         classLoaderLibrary.setDebugLexer( debugLexer );
@@ -112,6 +137,21 @@ public class SortedClassLibraryBuilder
         return this;
     }
     
+    public ClassLibraryBuilder setSkipCodeBlocks( boolean skipCodeBlocks )
+    {
+        classLoaderLibrary.setSkipCodeBlocks( skipCodeBlocks );
+        sourceFolderLibrary.setSkipCodeBlocks( skipCodeBlocks );
+        sourceLibrary.setSkipCodeBlocks( skipCodeBlocks );
+        return this;
+    }
+
+    public ClassLibraryBuilder setLazyCodeBlocks( boolean lazyCodeBlocks )
+    {
+        sourceFolderLibrary.setLazyCodeBlocks( lazyCodeBlocks );
+        sourceLibrary.setLazyCodeBlocks( lazyCodeBlocks );
+        return this;
+    }
+    
     public ClassLibraryBuilder setEncoding( String encoding )
     {
         sourceFolderLibrary.setEncoding( encoding );
@@ -119,6 +159,13 @@ public class SortedClassLibraryBuilder
         return this;
     }
     
+    public ClassLibraryBuilder setCacheDirectory( File cacheDirectory )
+    {
+        sourceFolderLibrary.setCacheDirectory( cacheDirectory );
+        sourceLibrary.setCacheDirectory( cacheDirectory );
+        return this;
+    }
+
     public ClassLibraryBuilder setErrorHander( ErrorHandler errorHandler )
     {
         classLoaderLibrary.setErrorHandler( errorHandler );
@@ -131,6 +178,7 @@ public class SortedClassLibraryBuilder
     {
         classNameLibrary.setModelBuilderFactory( factory );
         classLoaderLibrary.setModelBuilderFactory( factory );
+        classFileLibrary.setModelBuilderFactory( factory );
         sourceFolderLibrary.setModelBuilderFactory( factory );
         sourceLibrary.setModelBuilderFactory( factory );
         return this;
@@ -141,6 +189,7 @@ public class SortedClassLibraryBuilder
     {
         classNameLibrary.setModelWriterFactory( modelWriterFactory );
         classLoaderLibrary.setModelWriterFactory( modelWriterFactory );
+        classFileLibrary.setModelWriterFactory( modelWriterFactory );
         sourceFolderLibrary.setModelWriterFactory( modelWriterFactory );
         sourceLibrary.setModelWriterFactory( modelWriterFactory );
         return this;
@@ -151,6 +200,11 @@ public class SortedClassLibraryBuilder
         return sourceLibrary;
     }
 
+    public void close()
+    {
+        sourceLibrary.close();
+    }
+
     public JavaSource addSource( InputStream stream ) throws IOException
     {
         return sourceLibrary.addSource( stream );
@@ -173,4 +227,26 @@ public class SortedClassLibraryBuilder
         return sourceLibrary.addSource( file );
     }
 
+    public JavaSource updateSource( File file )
+        throws IOException
+    {
+        return sourceLibrary.updateSource( file );
+    }
+
+    public JavaSource removeSource( URL url )
+    {
+        return sourceLibrary.removeSource( url );
+    }
+
+    public JavaSource parseSource( File file )
+        throws IOException
+    {
+        return sourceLibrary.parseSource( file );
+    }
+
+    public List<JavaSource> addSources( List<File> files, ExecutorService executor, FileVisitor errorHandler )
+    {
+        return sourceLibrary.addSources( files, executor, errorHandler );
+    }
+
 }
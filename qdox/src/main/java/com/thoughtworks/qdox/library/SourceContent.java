@@ -0,0 +1,133 @@
+package com.thoughtworks.qdox.library;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Serializable;
+
+/**
+ * The content of a parsed source, used to retrieve codeblocks by their offsets when they are requested instead of
+ * keeping them as Strings. {@link #subSequence(int, int)} only remembers the offsets, the characters are read when
+ * calling <code>toString()</code> on the result.
+ *
+ * @author Robert Scholte
+ * @since 2.0
+ */
+public abstract class SourceContent
+    implements CharSequence, Serializable
+{
+
+    /**
+     * Read the characters from {@code start} up to {@code end}.
+     *
+     * @param start the offset of the first character
+     * @param end the offset after the last character
+     * @return the characters as String
+     */
+    protected abstract String substring( int start, int end );
+
+    public CharSequence subSequence( int start, int end )
+    {
+        if ( start < 0 || start > end )
+        {
+            throw new IndexOutOfBoundsException( "start " + start + ", end " + end );
+        }
+        return new Range( this, start, end );
+    }
+
+    @Override
+    public String toString()
+    {
+        return substring( 0, length() );
+    }
+
+    /**
+     * Read all characters of the reader. Just like the lexer, an {@link IOException} ends the content.
+     *
+     * @param reader the reader, won't be closed
+     * @return the characters, never <code>null</code>
+     */
+    protected static char[] read( Reader reader )
+    {
+        CharArrayWriter writer = new CharArrayWriter( 8192 );
+        char[] buffer = new char[8192];
+        try
+        {
+            int count;
+            while ( ( count = reader.read( buffer ) ) != -1 )
+            {
+                writer.write( buffer, 0, count );
+            }
+        }
+        catch ( IOException e )
+        {
+            // same as end of content
+        }
+        return writer.toCharArray();
+    }
+
+    private static class Range
+        implements CharSequence, Serializable
+    {
+        private final SourceContent content;
+
+        private final int start;
+
+        private final int end;
+
+        Range( SourceContent content, int start, int end )
+        {
+            this.content = content;
+            this.start = start;
+            this.end = end;
+        }
+
+        public int length()
+        {
+            return end - start;
+        }
+
+        public char charAt( int index )
+        {
+            if ( index < 0 || index >= length() )
+            {
+                throw new IndexOutOfBoundsException( String.valueOf( index ) );
+            }
+            return content.charAt( start + index );
+        }
+
+        public CharSequence subSequence( int start, int end )
+        {
+            if ( end > length() )
+            {
+                throw new IndexOutOfBoundsException( "end " + end );
+            }
+            return content.subSequence( this.start + start, this.start + end );
+        }
+
+        @Override
+        public String toString()
+        {
+            return content.substring( start, end );
+        }
+    }
+}
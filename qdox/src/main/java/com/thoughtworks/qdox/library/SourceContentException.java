@@ -0,0 +1,42 @@
+package com.thoughtworks.qdox.library;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * Thrown when the codeblocks of a source are requested, but the source can't be read anymore or has changed since it
+ * was parsed, so the offsets of the codeblocks are no longer valid.
+ *
+ * @author Robert Scholte
+ * @since 2.0
+ */
+public class SourceContentException
+    extends RuntimeException
+{
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * @param message the message
+     * @param cause the cause, might be <code>null</code>
+     */
+    public SourceContentException( String message, Throwable cause )
+    {
+        super( message, cause );
+    }
+}
@@ -0,0 +1,138 @@
+package com.thoughtworks.qdox.library;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Reads the content of source files with a single bulk read instead of decoding them through a chain of small
+ * buffers. Files are never memory mapped, since a mapping can't be released explicitly and would keep a large file
+ * locked on Windows until it's garbage collected. If the encoding is ASCII compatible and the file only contains ASCII
+ * characters, which is the case for most sources, the bytes are widened to chars without a charset decoder.
+ *
+ * @author Robert Scholte
+ * @since 2.0
+ */
+final class SourceFiles
+{
+    private static final Set<String> ASCII_COMPATIBLE_CHARSETS =
+        new HashSet<String>( Arrays.asList( "US-ASCII", "UTF-8", "ISO-8859-1", "ISO-8859-15", "windows-1252" ) );
+
+    private SourceFiles()
+    {
+    }
+
+    /**
+     * @param file the file to read
+     * @param encoding the encoding of the file
+     * @return all characters of the file, never <code>null</code>
+     * @throws IOException if the file can't be read
+     */
+    static char[] read( File file, String encoding )
+        throws IOException
+    {
+        Charset charset;
+        try
+        {
+            charset = Charset.forName( encoding );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            // same as an InputStreamReader
+            throw new UnsupportedEncodingException( encoding );
+        }
+        FileInputStream stream = new FileInputStream( file );
+        try
+        {
+            FileChannel channel = stream.getChannel();
+            long size = channel.size();
+            if ( size > Integer.MAX_VALUE )
+            {
+                throw new IOException( "Source too large : " + file );
+            }
+            ByteBuffer bytes = ByteBuffer.allocate( (int) size );
+            while ( bytes.hasRemaining() && channel.read( bytes ) != -1 )
+            {
+                // keep reading until the buffer is full
+            }
+            bytes.flip();
+            return decode( bytes, charset );
+        }
+        finally
+        {
+            stream.close();
+        }
+    }
+
+    private static char[] decode( ByteBuffer bytes, Charset charset )
+        throws CharacterCodingException
+    {
+        if ( ASCII_COMPATIBLE_CHARSETS.contains( charset.name() ) )
+        {
+            char[] result = widenAscii( bytes );
+            if ( result != null )
+            {
+                return result;
+            }
+        }
+        // same replacement behavior as an InputStreamReader
+        CharsetDecoder decoder =
+            charset.newDecoder().onMalformedInput( CodingErrorAction.REPLACE ).onUnmappableCharacter( CodingErrorAction.REPLACE );
+        CharBuffer chars = decoder.decode( bytes );
+        char[] result = new char[chars.remaining()];
+        chars.get( result );
+        return result;
+    }
+
+    /**
+     * @param bytes the bytes of a heap buffer, its position won't be changed
+     * @return the chars, or <code>null</code> if there's a non-ASCII byte
+     */
+    private static char[] widenAscii( ByteBuffer bytes )
+    {
+        int length = bytes.remaining();
+        char[] result = new char[length];
+        byte[] array = bytes.array();
+        int offset = bytes.arrayOffset() + bytes.position();
+        for ( int i = 0; i < length; i++ )
+        {
+            byte b = array[offset + i];
+            if ( b < 0 )
+            {
+                return null;
+            }
+            result[i] = (char) b;
+        }
+        return result;
+    }
+}
@@ -20,17 +20,23 @@ package com.thoughtworks.qdox.library;
  */
 
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.net.MalformedURLException;
-import java.util.Iterator;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.thoughtworks.qdox.model.JavaClass;
 import com.thoughtworks.qdox.model.JavaSource;
 
 /**
+ * A library which parses the sources of a class once it is requested. The directory of a package is listed once, after
+ * that the existence of a source is a lookup without touching the filesystem. Call {@link #refresh()} when sources
+ * have been added to or removed from the source folders.
  * 
  * @author Robert Scholte
  * @since 2.0
@@ -40,6 +46,11 @@ public class SourceFolderLibrary
 {
     private List<File> sourceFolders = new LinkedList<File>();
 
+    /**
+     * The names of the source files per package per source folder
+     */
+    private transient Map<File, Map<String, Set<String>>> sourceFileNames;
+
     public SourceFolderLibrary( AbstractClassLibrary parent  )
     {
         super( parent );
@@ -54,52 +65,130 @@ public class SourceFolderLibrary
     public void addSourceFolder( File sourceFolder )
     {
         this.sourceFolders.add( sourceFolder );
+        modified();
+    }
+
+    /**
+     * Forget the listed directories of the source folders, so sources which have been added or removed since are
+     * detected.
+     */
+    public synchronized void refresh()
+    {
+        sourceFileNames = null;
+        modified();
     }
 
     @Override
     protected JavaClass resolveJavaClass( String className )
     {
         JavaClass result = null;
-        for ( File sourceFolder : sourceFolders )
+        File sourceFile = findSourceFile( className );
+        if ( sourceFile != null )
         {
-            String mainClassName = className.split( "\\$" )[0];
-            File classFile = new File( sourceFolder, mainClassName.replace( '.', File.separatorChar ) + ".java" );
-            if ( classFile.exists() && classFile.isFile() )
+            try
+            {
+                JavaSource source = parse( sourceFile );
+                result = source.getClassByName( className );
+            }
+            catch ( IOException e )
             {
-                try
-                {
-                    JavaSource source = parse( new FileReader( classFile ), classFile.toURI().toURL() );
-                    result = source.getClassByName( className );
-                }
-                catch ( FileNotFoundException e )
-                {
-                }
-                catch ( MalformedURLException e )
-                {
-                }
             }
         }
         return result;
     }
     
     /**
-     * Loops over the sourceFolder to find a classReference.
+     * Looks up the source folders to find a classReference.
      * It will try to map the className to a file.
      * 
      */
+    @Override
+    protected boolean addTypeNames( String packageName, Set<String> typeNames )
+    {
+        for ( File sourceFolder : sourceFolders )
+        {
+            for ( String fileName : getSourceFileNames( sourceFolder, packageName ) )
+            {
+                typeNames.add( fileName.substring( 0, fileName.length() - 5 ) );
+            }
+        }
+        return true;
+    }
+
     @Override
     protected boolean containsClassReference( String className )
     {
-        boolean result = false;
-        for ( Iterator<File> iterator = sourceFolders.iterator(); !result && iterator.hasNext(); )
+        return findSourceFile( className ) != null;
+    }
+
+    /**
+     * @param className the binary name of the class
+     * @return the source declaring the class or its outer class, <code>null</code> if there's no such source
+     */
+    private File findSourceFile( String className )
+    {
+        int dollarIndex = className.indexOf( '$' );
+        String mainClassName = ( dollarIndex >= 0 ? className.substring( 0, dollarIndex ) : className );
+        int dotIndex = mainClassName.lastIndexOf( '.' );
+        String packageName = ( dotIndex >= 0 ? mainClassName.substring( 0, dotIndex ) : "" );
+        String fileName = mainClassName.substring( dotIndex + 1 ) + ".java";
+        for ( File sourceFolder : sourceFolders )
+        {
+            if ( getSourceFileNames( sourceFolder, packageName ).contains( fileName ) )
+            {
+                return new File( getPackageDirectory( sourceFolder, packageName ), fileName );
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The directory of the package is listed the first time the package is requested.
+     * 
+     * @param sourceFolder the source folder
+     * @param packageName the name of the package
+     * @return the names of the source files of the package, never <code>null</code>
+     */
+    private Set<String> getSourceFileNames( File sourceFolder, String packageName )
+    {
+        Map<String, Set<String>> packages;
+        synchronized ( this )
         {
-            File sourceFolder = (File) iterator.next();
-            String mainClassName = className.split( "\\$" )[0];
-            File classFile = new File( sourceFolder, mainClassName.replace( '.', File.separatorChar ) + ".java" );
-            
-            result = ( classFile.exists() && classFile.isFile() );
+            if ( sourceFileNames == null )
+            {
+                sourceFileNames = new HashMap<File, Map<String, Set<String>>>();
+            }
+            packages = sourceFileNames.get( sourceFolder );
+            if ( packages == null )
+            {
+                packages = new ConcurrentHashMap<String, Set<String>>();
+                sourceFileNames.put( sourceFolder, packages );
+            }
+        }
+        Set<String> result = packages.get( packageName );
+        if ( result == null )
+        {
+            result = Collections.emptySet();
+            File[] files = getPackageDirectory( sourceFolder, packageName ).listFiles();
+            if ( files != null )
+            {
+                result = new HashSet<String>();
+                for ( File file : files )
+                {
+                    if ( file.getName().endsWith( ".java" ) && file.isFile() )
+                    {
+                        result.add( file.getName() );
+                    }
+                }
+            }
+            packages.put( packageName, result );
         }
         return result;
     }
-    
+
+    private static File getPackageDirectory( File sourceFolder, String packageName )
+    {
+        return packageName.length() > 0 ? new File( sourceFolder, packageName.replace( '.', File.separatorChar ) )
+                        : sourceFolder;
+    }
 }
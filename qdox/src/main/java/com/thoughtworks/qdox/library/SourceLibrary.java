@@ -19,27 +19,39 @@ package com.thoughtworks.qdox.library;
  * under the License.
  */
 
+import java.io.CharArrayReader;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.UnsupportedEncodingException;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.Collection;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import com.thoughtworks.qdox.builder.Builder;
+import com.thoughtworks.qdox.builder.impl.ModelBuilder;
+import com.thoughtworks.qdox.directorywalker.FileVisitor;
 import com.thoughtworks.qdox.model.JavaClass;
 import com.thoughtworks.qdox.model.JavaPackage;
 import com.thoughtworks.qdox.model.JavaSource;
 import com.thoughtworks.qdox.model.impl.DefaultJavaPackage;
-import com.thoughtworks.qdox.parser.JavaLexer;
 import com.thoughtworks.qdox.parser.ParseException;
-import com.thoughtworks.qdox.parser.impl.JFlexLexer;
 import com.thoughtworks.qdox.parser.impl.Parser;
 
 /**
@@ -59,12 +71,31 @@ public class SourceLibrary
     private boolean debugLexer;
 
     private boolean debugParser;
+
+    private boolean skipCodeBlocks;
+
+    private boolean lazyCodeBlocks;
     
     private static final String DEFAULT_ENCODING = System.getProperty("file.encoding"); 
     
     private String encoding;
     
     private ErrorHandler errorHandler;
+
+    private ParseCache parseCache;
+
+    // snapshots of which the sources are only built once they are needed
+    private final List<Snapshot> snapshots = new LinkedList<Snapshot>();
+    // the names of the top level types of every registered source by package, the names of removed sources are dropped
+    // the names of the top level types of every registered source by package, names of removed sources are kept
+    private final Map<String, Set<String>> typeNames = new HashMap<String, Set<String>>();
+
+    // the classes, packages and sources of the chain, only rebuilt once a context has changed
+    private transient View<JavaClass> javaClasses;
+
+    private transient View<JavaPackage> javaPackages;
+
+    private transient View<JavaSource> javaSources;
     
     /**
      * Create a new instance of SourceLibrary and chain it to the parent 
@@ -121,7 +152,9 @@ public class SourceLibrary
     public JavaSource addSource( URL url )
         throws ParseException, IOException
     {
-        return addSource( new InputStreamReader( url.openStream(), encoding), url );
+        JavaSource source = parse( url.openStream(), url );
+        registerJavaSource( source );
+        return source;
     }
 
     /**
@@ -136,25 +169,229 @@ public class SourceLibrary
         throws ParseException, IOException
     {
         JavaSource result = null;
-        if ( !"package-info.java".equals( file.getName() ) ) 
+        if ( !isPackageInfo( file ) ) 
         {
-            result = parse( new FileInputStream( file ), file.toURI().toURL() );
+            result = parse( file );
+            registerJavaSource( file, result, Collections.<File, JavaPackage>emptyMap() );
+        }
+    	return result;
+    }
+
+    /**
+     * Replace the source of this {@link File} with its current content. Its old classes and packages are removed from
+     * this library and its ancestors, then the file is parsed and added again. If the file can't be parsed, the old
+     * source is kept.
+     * 
+     * @param file a {@link File} which should contain java code
+     * @return The constructed {@link JavaSource} object of this file
+     * @throws ParseException if the file couldn't be parsed and there's no errorHandler
+     * @throws IOException if the file couldn't be read
+     * @since 2.0
+     */
+    public JavaSource updateSource( File file )
+        throws ParseException, IOException
+    {
+        JavaSource result = null;
+        if ( !isPackageInfo( file ) )
+        {
+            result = parse( file );
             // if an error is handled by the errorHandler the result will be null
-            if( result != null )
+            if ( result != null )
+            {
+                removeSource( file.toURI().toURL() );
+                registerJavaSource( file, result, Collections.<File, JavaPackage>emptyMap() );
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Remove the source with this {@link URL} and its classes from this library and its ancestors. Models which
+     * already refer to these classes keep their reference.
+     * 
+     * @param url the url of the source
+     * @return the removed JavaSource, otherwise <code>null</code>
+     * @since 2.0
+     */
+    public JavaSource removeSource( URL url )
+    {
+        JavaSource result = removeJavaSource( url );
+        if ( result != null )
+        {
+            removeTypeNames( result );
+            modified( result.getClasses() );
+        }
+        return result;
+    }
+
+    @Override
+    protected JavaSource removeJavaSource( URL url )
+    {
+        // a source of a snapshot which hasn't been built yet must not be built anymore
+        for ( Snapshot snapshot : snapshots )
+        {
+            snapshot.take( url );
+        }
+        // first the unused classes, then the ones which have been moved to the context of the superclass
+        JavaSource result = context.removeSource( url );
+        JavaSource usedResult = super.removeJavaSource( url );
+        return result != null ? result : usedResult;
+    }
+
+    /**
+     * Parse a {@link File} containing java code without adding it to this library. The types of the source are still
+     * resolved by this library, but the source can be garbage collected as soon as the caller is done with it.
+     * 
+     * @param file a {@link File} which should contain java code
+     * @return The constructed {@link JavaSource} object of this file, <code>null</code> if a parse error was handled by
+     *         the errorHandler
+     * @throws ParseException if the file couldn't be parsed and there's no errorHandler
+     * @throws IOException if the file couldn't be read
+     * @since 2.0
+     */
+    public JavaSource parseSource( File file )
+        throws ParseException, IOException
+    {
+        return parse( file );
+    }
+
+    /**
+     * Add {@link File}s containing java code to this library. The files are parsed concurrently by the executor, each
+     * with its own ModelBuilder. Once all files are parsed, the sources are registered in the order of the files, so
+     * the order of the classes doesn't depend on which file was parsed first. The errorHandler of this library may be
+     * called by the threads of the executor.
+     * 
+     * @param files the files which should contain java code
+     * @param executor the executor to parse the files
+     * @param fileErrorHandler called for every file which can't be read, the other files will still be added
+     * @return the constructed {@link JavaSource}s in the order of the files, without package-info files and files
+     *         which couldn't be read or parsed
+     * @throws ParseException if a file couldn't be parsed and there's no errorHandler
+     * @since 2.0
+     */
+    public List<JavaSource> addSources( List<File> files, ExecutorService executor, FileVisitor fileErrorHandler )
+        throws ParseException
+    {
+        List<Future<JavaSource>> futures = new ArrayList<Future<JavaSource>>( files.size() );
+        for ( final File file : files )
+        {
+            futures.add( executor.submit( new Callable<JavaSource>()
             {
-                if( getJavaPackage( result.getPackageName() ) == null )
+                public JavaSource call()
+                    throws IOException
                 {
-                    File packageInfo = new File(file.getParentFile(), "package-info.java");
-                    if( packageInfo.exists() )
+                    return parse( file );
+                }
+            } ) );
+        }
+
+        // parse phase: wait for all files, collecting the package-info files per directory
+        JavaSource[] sources = new JavaSource[files.size()];
+        Map<File, JavaPackage> packageInfos = new HashMap<File, JavaPackage>();
+        for ( int i = 0; i < sources.length; i++ )
+        {
+            File file = files.get( i );
+            sources[i] = getParsedSource( futures, i, file, fileErrorHandler );
+            if ( isPackageInfo( file ) )
+            {
+                packageInfos.put( file.getParentFile(), sources[i] != null ? sources[i].getPackage() : null );
+            }
+        }
+
+        // register phase: in the order of the files
+        List<JavaSource> result = new ArrayList<JavaSource>( sources.length );
+        for ( int i = 0; i < sources.length; i++ )
+        {
+            File file = files.get( i );
+            if ( sources[i] != null && !isPackageInfo( file ) )
+            {
+                try
+                {
+                    registerJavaSource( file, sources[i], packageInfos );
+                }
+                catch ( IOException e )
+                {
+                    // only a package-info outside the list of files is read during registration
+                    fileErrorHandler.visitFile( new File( file.getParentFile(), "package-info.java" ) );
+                    registerJavaSource( sources[i] );
+                }
+                result.add( sources[i] );
+            }
+        }
+        return result;
+    }
+
+    private static JavaSource getParsedSource( List<Future<JavaSource>> futures, int index, File file,
+                                               FileVisitor fileErrorHandler )
+    {
+        try
+        {
+            return futures.get( index ).get();
+        }
+        catch ( InterruptedException e )
+        {
+            for ( Future<JavaSource> future : futures )
+            {
+                future.cancel( true );
+            }
+            Thread.currentThread().interrupt();
+            throw new RuntimeException( "Interrupted while parsing : " + file, e );
+        }
+        catch ( ExecutionException e )
+        {
+            Throwable cause = e.getCause();
+            if ( cause instanceof IOException )
+            {
+                fileErrorHandler.visitFile( file );
+                return null;
+            }
+            if ( cause instanceof RuntimeException )
+            {
+                throw (RuntimeException) cause;
+            }
+            if ( cause instanceof Error )
+            {
+                throw (Error) cause;
+            }
+            throw new RuntimeException( "Cannot parse file : " + file, cause );
+        }
+    }
+
+    private static boolean isPackageInfo( File file )
+    {
+        return "package-info.java".equals( file.getName() );
+    }
+
+    /**
+     * @param file the parsed file
+     * @param source the source, <code>null</code> if an error was handled by the errorHandler
+     * @param packageInfos the already parsed package-info files by directory, the value is <code>null</code> if it
+     *            couldn't be read or parsed
+     */
+    private void registerJavaSource( File file, JavaSource source, Map<File, JavaPackage> packageInfos )
+        throws IOException
+    {
+        if ( source != null )
+        {
+            if ( getJavaPackage( source.getPackageName() ) == null )
+            {
+                JavaPackage pckg = packageInfos.get( file.getParentFile() );
+                if ( !packageInfos.containsKey( file.getParentFile() ) )
+                {
+                    File packageInfo = new File( file.getParentFile(), "package-info.java" );
+                    if ( packageInfo.exists() )
                     {
-                        JavaPackage pckg = parse( new FileInputStream( packageInfo ), packageInfo.toURI().toURL() ).getPackage();
-                        context.add( pckg );
+                        JavaSource packageInfoSource = parse( packageInfo );
+                        pckg = ( packageInfoSource != null ? packageInfoSource.getPackage() : null );
                     }
                 }
-                registerJavaSource(result);
+                if ( pckg != null )
+                {
+                    context.add( pckg );
+                }
             }
+            registerJavaSource( source );
         }
-    	return result;
     }
     
     
@@ -164,7 +401,12 @@ public class SourceLibrary
     {
         try 
         {
-            return parse( new JFlexLexer( reader ), url );
+            if ( isLazy() )
+            {
+                char[] content = SourceContent.read( reader );
+                return parse( new CharArrayReader( content ), new CompactSourceContent( content ), url );
+            }
+            return parse( reader, (SourceContent) null, url );
         }
         finally 
         {
@@ -183,7 +425,12 @@ public class SourceLibrary
     {
         try 
         {
-            return parse( new JFlexLexer( new InputStreamReader( stream, getEncoding() ) ), url );
+            if ( isLazy() && url == null )
+            {
+                return parse( new InputStreamReader( stream, getEncoding() ), url );
+            }
+            SourceContent content = ( isLazy() ? new URLSourceContent( url, getEncoding() ) : null );
+            return parse( new InputStreamReader( stream, getEncoding() ), content, url );
         }
         finally 
         {
@@ -197,17 +444,92 @@ public class SourceLibrary
         }
     }
 
-    private JavaSource parse( JavaLexer lexer, URL url )
+    /**
+     * Parse a file, which is read in a single bulk operation instead of through an {@link InputStreamReader}.
+     * 
+     * @param file the file to parse
+     * @return the source, or <code>null</code> if a parse error was handled by the errorHandler
+     * @throws ParseException if the file couldn't be parsed
+     * @throws IOException if the file couldn't be read
+     * @since 2.0
+     */
+    protected JavaSource parse( File file )
+        throws ParseException, IOException
+    {
+        URL url = file.toURI().toURL();
+        SourceContent sourceContent = ( isLazy() ? new URLSourceContent( url, getEncoding() ) : null );
+        char[] content = SourceFiles.read( file, getEncoding() );
+        if ( parseCache != null )
+        {
+            return parseCached( content, sourceContent, url );
+        }
+        return parse( new CharArrayReader( content ), sourceContent, url );
+    }
+
+    private JavaSource parseCached( char[] content, SourceContent sourceContent, URL url )
         throws ParseException
     {
-        JavaSource result = null;
         Builder builder = getModelBuilder();
+        boolean lazy = isLazy( builder );
+        String key = parseCache.key( content, skipCodeBlocks, lazy );
         builder.setUrl( url );
-        Parser parser = new Parser( lexer, builder );
-        parser.setDebugLexer( debugLexer );
-        parser.setDebugParser( debugParser );
+        setSourceContent( builder, sourceContent );
+        if ( parseCache.replay( key, builder ) )
+        {
+            return builder.getSource();
+        }
+        // a new builder, since a corrupt record might have called the other one
+        StringPool strings = new StringPool();
+        RecordingBuilder record = new RecordingBuilder( getModelBuilder(), strings );
+        record.setUrl( url );
+        record.setSourceContent( sourceContent );
+        JavaSource result = parse( new CharArrayReader( content ), record, url, lazy );
+        if ( result != null )
+        {
+            parseCache.store( key, record, strings );
+        }
+        return result;
+    }
+
+    private boolean isLazy()
+    {
+        return lazyCodeBlocks && !skipCodeBlocks;
+    }
+
+    /**
+     * Only a ModelBuilder can read the codeblocks from the content of the source once they are requested.
+     * 
+     * @param builder the builder for the source
+     * @return <code>true</code> if only the ranges of codeblocks should be passed to this builder
+     */
+    private boolean isLazy( Builder builder )
+    {
+        return isLazy() && builder instanceof ModelBuilder;
+    }
+
+    private static void setSourceContent( Builder builder, SourceContent content )
+    {
+        if ( builder instanceof ModelBuilder )
+        {
+            ( (ModelBuilder) builder ).setSourceContent( content );
+        }
+    }
+
+    private JavaSource parse( Reader reader, SourceContent content, URL url )
+        throws ParseException
+    {
+        Builder builder = getModelBuilder();
+        builder.setUrl( url );
+        setSourceContent( builder, content );
+        return parse( reader, builder, url, isLazy( builder ) );
+    }
+
+    private JavaSource parse( Reader reader, Builder builder, URL url, boolean lazy )
+        throws ParseException
+    {
+        JavaSource result = null;
         try {
-            if ( parser.parse() )
+            if ( parse( reader, builder, lazy ) )
             {
                 result = builder.getSource();
             }
@@ -230,9 +552,124 @@ public class SourceLibrary
         return result;
     }
 
+    /**
+     * @param reader the content to parse
+     * @param builder the builder to call
+     * @param lazy <code>true</code> if only the ranges of codeblocks and field initializers should be passed to the
+     *            builder
+     * @return <code>true</code> if the content has been parsed
+     * @throws ParseException if the content couldn't be parsed
+     */
+    private boolean parse( Reader reader, Builder builder, boolean lazy )
+        throws ParseException
+    {
+        PooledParser pooledParser = PooledParser.acquire( reader, builder );
+        pooledParser.getLexer().setSkipCodeBlocks( skipCodeBlocks || lazy );
+        pooledParser.getLexer().setSkipAssignments( lazy );
+        pooledParser.getLexer().setSymbolTable( getSymbolTable() );
+        Parser parser = pooledParser.getParser();
+        parser.setDebugLexer( debugLexer );
+        parser.setDebugParser( debugParser );
+        try
+        {
+            return parser.parse();
+        }
+        finally
+        {
+            pooledParser.release();
+        }
+    }
+
+    /**
+     * Add a snapshot written by {@link #saveSnapshot(File)} to this library. The file is read into memory, but only the
+     * names of its classes are decoded. The sources of a package are built once a class or the package is requested.
+     * 
+     * @param file the snapshot
+     * @throws IOException if the file can't be read or isn't a snapshot
+     * @since 2.0
+     */
+    public void addSnapshot( File file )
+        throws IOException
+    {
+        snapshots.add( new Snapshot( file ) );
+        modified();
+    }
+
+    /**
+     * Write all sources of this library as a snapshot, which can be added to another library with
+     * {@link #addSnapshot(File)} without parsing the sources again. To record the exact structure, the sources are
+     * parsed once more from their URL, so sources added by a Reader or InputStream can't be written. Codeblocks are
+     * stored, unless they are skipped.
+     * 
+     * @param file the file to write to
+     * @throws ParseException if the content of a source can't be parsed anymore
+     * @throws IOException if a source has no URL or if a source or the file can't be read or written
+     * @since 2.0
+     */
+    public void saveSnapshot( File file )
+        throws ParseException, IOException
+    {
+        Snapshot.Writer writer = new Snapshot.Writer();
+        // the used sources of this library might be returned twice
+        Map<JavaSource, Boolean> written = new IdentityHashMap<JavaSource, Boolean>();
+        for ( JavaSource source : getJavaSources() )
+        {
+            if ( written.put( source, Boolean.TRUE ) == null )
+            {
+                RecordingBuilder record = writer.newRecord();
+                URL url = source.getURL();
+                try
+                {
+                    parse( new CharArrayReader( readContent( source ) ), record, false );
+                }
+                catch ( ParseException pe )
+                {
+                    if ( url != null )
+                    {
+                        pe.setSourceInfo( url.toExternalForm() );
+                    }
+                    throw pe;
+                }
+                writer.add( source, record );
+            }
+        }
+        writer.writeTo( file );
+    }
+
+    private char[] readContent( JavaSource source )
+        throws IOException
+    {
+        URL url = source.getURL();
+        if ( url == null )
+        {
+            throw new IOException( "Source without URL can't be written to a snapshot : "
+                + source.getClasses() );
+        }
+        if ( "file".equals( url.getProtocol() ) )
+        {
+            try
+            {
+                return SourceFiles.read( new File( url.toURI() ), getEncoding() );
+            }
+            catch ( URISyntaxException e )
+            {
+                // not a valid file url after all, so just open the stream
+            }
+        }
+        return SourceContent.read( new InputStreamReader( url.openStream(), getEncoding() ) );
+    }
+
     @Override
     protected JavaClass resolveJavaClass( String name )
     {
+        for ( Snapshot snapshot : snapshots )
+        {
+            String packageName = snapshot.getPackageName( name );
+            if ( packageName != null )
+            {
+                buildSnapshotSources( snapshot, snapshot.takePackage( packageName ) );
+            }
+        }
         // abstractLibrary only calls this when it can't find the source itself.
         // it will take over the reference
         return context.removeClassByName( name );
@@ -240,7 +677,43 @@ public class SourceLibrary
     
     @Override
     protected JavaPackage resolveJavaPackage(String name) {
-    	return context.removePackageByName( name );
+        boolean built = false;
+        for ( Snapshot snapshot : snapshots )
+        {
+            built |= buildSnapshotSources( snapshot, snapshot.takePackage( name ) );
+        }
+        JavaPackage result = context.removePackageByName( name );
+        if ( result == null && built )
+        {
+            // registering the sources already moved the package to the context of the superclass
+            result = getJavaPackage( name );
+        }
+        return result;
+    }
+
+    private void buildAllSnapshotSources()
+    {
+        for ( Snapshot snapshot : snapshots )
+        {
+            buildSnapshotSources( snapshot, snapshot.takeAll() );
+        }
+    }
+
+    /**
+     * @param snapshot the snapshot
+     * @param indices the taken sources
+     * @return <code>true</code> if any source has been built
+     */
+    private boolean buildSnapshotSources( Snapshot snapshot, List<Integer> indices )
+    {
+        for ( Integer index : indices )
+        {
+            Builder builder = getModelBuilder();
+            snapshot.replay( index, builder );
+            // the classes of the snapshot were already known, so there's no modification
+            register( builder.getSource() );
+        }
+        return !indices.isEmpty();
     }
 
     /**
@@ -251,15 +724,57 @@ public class SourceLibrary
     {
         if ( source != null )
         {
-            context.add( source );
-            registerJavaPackage( source.getPackage() );
+            register( source );
+            modified( source.getClasses() );
+        }
+    }
+
+    private void register( JavaSource source )
+    {
+        context.add( source );
+        registerJavaPackage( source.getPackage() );
+        for ( JavaClass cls : source.getClasses() )
+        {
+            registerJavaClass( cls );
+        }
+        synchronized ( typeNames )
+        {
+            Set<String> packageTypeNames = typeNames.get( source.getPackageName() );
+            if ( packageTypeNames == null )
+            {
+                packageTypeNames = new HashSet<String>();
+                typeNames.put( source.getPackageName(), packageTypeNames );
+            }
             for ( JavaClass cls : source.getClasses() )
             {
-                registerJavaClass( cls );
+                packageTypeNames.add( cls.getName() );
             }
         }
     }
     
+    private void removeTypeNames( JavaSource source )
+    {
+        synchronized ( typeNames )
+        {
+            Set<String> packageTypeNames = typeNames.get( source.getPackageName() );
+            if ( packageTypeNames != null )
+            {
+                for ( JavaClass cls : source.getClasses() )
+                {
+                    // another source might declare the same class
+                    if ( getRegisteredJavaClass( cls.getFullyQualifiedName() ) == null )
+                    {
+                        packageTypeNames.remove( cls.getName() );
+                    }
+                }
+                if ( packageTypeNames.isEmpty() )
+                {
+                    typeNames.remove( source.getPackageName() );
+                }
+            }
+        }
+    }
+
     private void registerJavaPackage( JavaPackage pckg )
     {
         String pckgName = ( pckg == null || pckg.getName() == null ? "" : pckg.getName() );
@@ -310,6 +825,40 @@ public class SourceLibrary
     {
         return debugParser;
     }
+
+    /**
+     * Skip the content of method-, constructor- and initializer-bodies while parsing.
+     * The sourcecode of these JavaModel objects will be <code>null</code>.
+     * 
+     * @param skipCodeBlocks <code>true</code> to skip the codeblocks, otherwise <code>false</code>
+     */
+    public final void setSkipCodeBlocks( boolean skipCodeBlocks )
+    {
+        this.skipCodeBlocks = skipCodeBlocks;
+    }
+
+    public final boolean isSkipCodeBlocks()
+    {
+        return skipCodeBlocks;
+    }
+
+    /**
+     * Don't keep the content of method-, constructor- and initializer-bodies and field initializers while parsing, but
+     * only their offsets. The content is read once it is requested, either from the URL of the source or from a
+     * compact copy of the source when there's no URL. Has no effect when codeblocks are skipped. Requesting a codeblock
+     * throws a {@link SourceContentException} if the source can't be read anymore or has changed since it was parsed.
+     * 
+     * @param lazyCodeBlocks <code>true</code> to retrieve the codeblocks on demand, otherwise <code>false</code>
+     */
+    public final void setLazyCodeBlocks( boolean lazyCodeBlocks )
+    {
+        this.lazyCodeBlocks = lazyCodeBlocks;
+    }
+
+    public final boolean isLazyCodeBlocks()
+    {
+        return lazyCodeBlocks;
+    }
     
     /**
      * Sets the encoding to use when parsing a URL or InputStreamReader
@@ -326,11 +875,30 @@ public class SourceLibrary
         return encoding == null ? DEFAULT_ENCODING : encoding;
     }
     
+    /**
+     * Keep the structure of every parsed file in this directory, so an unchanged file can be built again without
+     * parsing it. The files are stored by a hash of their content and the version of QDox, so the directory can be
+     * shared by several libraries and builds. Files which are no longer used are never removed.
+     * 
+     * @param cacheDirectory the directory, <code>null</code> to parse every file
+     * @since 2.0
+     */
+    public final void setCacheDirectory( File cacheDirectory )
+    {
+        this.parseCache = ( cacheDirectory != null ? new ParseCache( cacheDirectory ) : null );
+    }
+
+    public final File getCacheDirectory()
+    {
+        return parseCache != null ? parseCache.getDirectory() : null;
+    }
+
     public final void setErrorHandler( ErrorHandler errorHandler )
     {
         this.errorHandler = errorHandler;
     }
     
+    @Override
     public final ErrorHandler getErrorHandler()
     {
         return errorHandler;
@@ -342,18 +910,26 @@ public class SourceLibrary
     @Override
     public Collection<JavaClass> getJavaClasses()
     {
-        List<JavaClass> result = new LinkedList<JavaClass>();
-        List<JavaClass> unusedClasses = context.getClasses();
-        Collection<JavaClass> usedClasses = getJavaClasses( new ClassLibraryFilter()
+        buildAllSnapshotSources();
+        long version = getContextVersion();
+        View<JavaClass> view = javaClasses;
+        if ( view == null || view.version != version )
         {
-            public boolean accept( AbstractClassLibrary classLibrary )
+            List<JavaClass> result = new ArrayList<JavaClass>();
+            List<JavaClass> unusedClasses = context.getClasses();
+            Collection<JavaClass> usedClasses = getJavaClasses( new ClassLibraryFilter()
             {
-                return (classLibrary instanceof SourceLibrary);
-            }
-        });
-        result.addAll( usedClasses );
-        result.addAll( unusedClasses );
-        return Collections.unmodifiableList( result );
+                public boolean accept( AbstractClassLibrary classLibrary )
+                {
+                    return (classLibrary instanceof SourceLibrary);
+                }
+            });
+            result.addAll( usedClasses );
+            result.addAll( unusedClasses );
+            view = new View<JavaClass>( version, result );
+            javaClasses = view;
+        }
+        return view.items;
     }
 
     /**
@@ -362,18 +938,26 @@ public class SourceLibrary
     @Override
     public Collection<JavaPackage> getJavaPackages()
     {
-        List<JavaPackage> result = new LinkedList<JavaPackage>();
-        List<JavaPackage> unusedPackages = context.getPackages();
-        Collection<JavaPackage> usedPackages = getJavaPackages( new ClassLibraryFilter()
+        buildAllSnapshotSources();
+        long version = getContextVersion();
+        View<JavaPackage> view = javaPackages;
+        if ( view == null || view.version != version )
         {
-            public boolean accept( AbstractClassLibrary classLibrary )
+            List<JavaPackage> result = new ArrayList<JavaPackage>();
+            List<JavaPackage> unusedPackages = context.getPackages();
+            Collection<JavaPackage> usedPackages = getJavaPackages( new ClassLibraryFilter()
             {
-                return (classLibrary instanceof SourceLibrary);
-            }
-        });
-        result.addAll( usedPackages );
-        result.addAll( unusedPackages );
-        return Collections.unmodifiableList( result );
+                public boolean accept( AbstractClassLibrary classLibrary )
+                {
+                    return (classLibrary instanceof SourceLibrary);
+                }
+            });
+            result.addAll( usedPackages );
+            result.addAll( unusedPackages );
+            view = new View<JavaPackage>( version, result );
+            javaPackages = view;
+        }
+        return view.items;
     }
     
     /**
@@ -382,23 +966,83 @@ public class SourceLibrary
     @Override
     public Collection<JavaSource> getJavaSources()
     {
-        List<JavaSource> result = new LinkedList<JavaSource>();
-        List<JavaSource> unusedSources = context.getSources();
-        Collection<JavaSource> usedSources = getJavaSources( new ClassLibraryFilter()
+        buildAllSnapshotSources();
+        long version = getContextVersion();
+        View<JavaSource> view = javaSources;
+        if ( view == null || view.version != version )
+        {
+            List<JavaSource> result = new ArrayList<JavaSource>();
+            List<JavaSource> unusedSources = context.getSources();
+            Collection<JavaSource> usedSources = getJavaSources( new ClassLibraryFilter()
+            {
+                public boolean accept( AbstractClassLibrary classLibrary )
+                {
+                    return (classLibrary instanceof SourceLibrary);
+                }
+            });
+            result.addAll( usedSources );
+            result.addAll( unusedSources );
+            view = new View<JavaSource>( version, result );
+            javaSources = view;
+        }
+        return view.items;
+    }
+
+    @Override
+    protected JavaClass getRegisteredJavaClass( String name )
+    {
+        JavaClass result = super.getRegisteredJavaClass( name );
+        return result != null ? result : context.getClassByName( name );
+    }
+
+    @Override
+    protected long getContextVersion()
+    {
+        return super.getContextVersion() + context.getVersion();
+    }
+
+    @Override
+    protected boolean addTypeNames( String packageName, Set<String> typeNames )
+    {
+        synchronized ( this.typeNames )
         {
-            public boolean accept( AbstractClassLibrary classLibrary )
+            Set<String> packageTypeNames = this.typeNames.get( packageName );
+            if ( packageTypeNames != null )
             {
-                return (classLibrary instanceof SourceLibrary);
+                typeNames.addAll( packageTypeNames );
             }
-        });
-        result.addAll( usedSources );
-        result.addAll( unusedSources );
-        return Collections.unmodifiableList( result );
+        }
+        for ( Snapshot snapshot : snapshots )
+        {
+            snapshot.addTypeNames( packageName, typeNames );
+        }
+        return true;
     }
 
     @Override
     protected boolean containsClassReference( String name )
     {
-        return context.getClassByName( name ) != null;
+        boolean result = context.getClassByName( name ) != null;
+        for ( Iterator<Snapshot> iterator = snapshots.iterator(); !result && iterator.hasNext(); )
+        {
+            result = iterator.next().containsClass( name );
+        }
+        return result;
+    }
+
+    /**
+     * A read-only list which is shared by all callers as long as the contexts have the same version.
+     */
+    private static final class View<T>
+    {
+        private final long version;
+
+        private final List<T> items;
+
+        View( long version, List<T> items )
+        {
+            this.version = version;
+            this.items = Collections.unmodifiableList( items );
+        }
     }
 }
@@ -0,0 +1,94 @@
+package com.thoughtworks.qdox.library;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects the distinct Strings of one or more records, so every String is written only once. The written table can be
+ * read with a {@link StringTable}: the number of Strings, a fixed size offset per String and the characters of all
+ * Strings, so a single String can be decoded without reading the others.
+ *
+ * @author Robert Scholte
+ * @since 2.0
+ */
+final class StringPool
+{
+    private final Map<String, Integer> indices = new HashMap<String, Integer>();
+
+    private final List<String> strings = new ArrayList<String>();
+
+    /**
+     * @param value the String, may be <code>null</code>
+     * @return the reference to the String, <code>0</code> for <code>null</code>
+     */
+    int reference( String value )
+    {
+        if ( value == null )
+        {
+            return 0;
+        }
+        Integer index = indices.get( value );
+        if ( index == null )
+        {
+            index = strings.size();
+            indices.put( value, index );
+            strings.add( value );
+        }
+        return index + 1;
+    }
+
+    int size()
+    {
+        return strings.size();
+    }
+
+    void writeTo( OutputStream stream )
+        throws IOException
+    {
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        int[] offsets = new int[strings.size()];
+        for ( int i = 0; i < offsets.length; i++ )
+        {
+            offsets[i] = data.size();
+            String value = strings.get( i );
+            RecordingBuilder.writeVarInt( data, value.length() );
+            for ( int c = 0; c < value.length(); c++ )
+            {
+                RecordingBuilder.writeVarInt( data, value.charAt( c ) );
+            }
+        }
+        DataOutputStream out = new DataOutputStream( stream );
+        out.writeInt( offsets.length );
+        for ( int offset : offsets )
+        {
+            out.writeInt( offset );
+        }
+        out.flush();
+        data.writeTo( stream );
+    }
+}
@@ -0,0 +1,77 @@
+package com.thoughtworks.qdox.library;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reads the Strings written by a {@link StringPool}. A String is only decoded the first time it is referenced.
+ *
+ * @author Robert Scholte
+ * @since 2.0
+ */
+final class StringTable
+{
+    private final ByteBuffer buffer;
+
+    private final int offsetsStart;
+
+    private final int dataStart;
+
+    private final String[] strings;
+
+    /**
+     * @param buffer the buffer containing the table, its position won't be changed
+     * @param start the absolute position of the table
+     */
+    StringTable( ByteBuffer buffer, int start )
+    {
+        this.buffer = buffer;
+        int count = buffer.getInt( start );
+        this.offsetsStart = start + 4;
+        this.dataStart = offsetsStart + 4 * count;
+        this.strings = new String[count];
+    }
+
+    /**
+     * @param reference the reference returned by {@link StringPool#reference(String)}
+     * @return the String, <code>null</code> if the reference is <code>0</code>
+     */
+    synchronized String get( int reference )
+    {
+        if ( reference == 0 )
+        {
+            return null;
+        }
+        String result = strings[reference - 1];
+        if ( result == null )
+        {
+            int[] position = { dataStart + buffer.getInt( offsetsStart + 4 * ( reference - 1 ) ) };
+            char[] chars = new char[RecordReplayer.readVarInt( buffer, position )];
+            for ( int c = 0; c < chars.length; c++ )
+            {
+                chars[c] = (char) RecordReplayer.readVarInt( buffer, position );
+            }
+            result = new String( chars );
+            strings[reference - 1] = result;
+        }
+        return result;
+    }
+}
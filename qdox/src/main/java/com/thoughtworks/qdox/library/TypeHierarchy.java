@@ -0,0 +1,302 @@
+package com.thoughtworks.qdox.library;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import com.thoughtworks.qdox.model.JavaClass;
+
+/**
+ * The type hierarchy of the classes of a {@link ClassLibrary}. Every type name gets an id and the ids of all
+ * supertypes of a class are kept as a bitset, so checking if a class extends or implements another one is a single bit
+ * test. The reverse edges, the derived classes of every type, are collected for all classes of the library.
+ * <p>
+ * Supertypes are calculated the first time they are needed and only kept for the classes registered in the library,
+ * so classes which are only parsed or visited can be garbage collected. Once sources have been added to or removed
+ * from the library, only the classes referring to a type with the same simple name as one of their classes are
+ * calculated again. After any other modification of the library, like a new classloader, everything is calculated
+ * again.
+ * </p>
+ * 
+ * @author Robert Scholte
+ * @since 2.0
+ */
+public final class TypeHierarchy
+{
+    private final AbstractClassLibrary classLibrary;
+
+    private long modificationCount = -1;
+
+    private final Map<String, Integer> ids = new HashMap<String, Integer>();
+
+    // the ids of the type names by their simple name, to find the classes which might refer to a changed type
+    private final Map<String, BitSet> idsBySimpleName = new HashMap<String, BitSet>();
+
+    private final Map<JavaClass, BitSet> supertypes = new IdentityHashMap<JavaClass, BitSet>();
+
+    // the classes of the library the derived classes are based on
+    private Collection<JavaClass> indexedClasses;
+
+    private final Map<JavaClass, BitSet> derivedIndex = new IdentityHashMap<JavaClass, BitSet>();
+
+    private final Map<Integer, List<JavaClass>> derivedClasses = new HashMap<Integer, List<JavaClass>>();
+
+    TypeHierarchy( AbstractClassLibrary classLibrary )
+    {
+        this.classLibrary = classLibrary;
+    }
+
+    /**
+     * @param javaClass the class
+     * @param fullyQualifiedName the name of the supertype
+     * @return <code>true</code> if the class is this type or extends or implements it, directly or indirectly
+     */
+    public synchronized boolean isA( JavaClass javaClass, String fullyQualifiedName )
+    {
+        if ( fullyQualifiedName.equals( javaClass.getFullyQualifiedName() ) )
+        {
+            return true;
+        }
+        validate();
+        BitSet classSupertypes = getSupertypes( javaClass );
+        Integer id = ids.get( fullyQualifiedName );
+        return id != null && classSupertypes.get( id.intValue() );
+    }
+
+    /**
+     * @param javaClass the class
+     * @return the classes of the library which extend or implement the class, directly or indirectly, never
+     *         <code>null</code>
+     */
+    public synchronized List<JavaClass> getDerivedClasses( JavaClass javaClass )
+    {
+        validate();
+        Collection<JavaClass> classes = classLibrary.getJavaClasses();
+        if ( classes != indexedClasses )
+        {
+            for ( JavaClass clazz : classes )
+            {
+                if ( !derivedIndex.containsKey( clazz ) )
+                {
+                    BitSet classSupertypes = getSupertypes( clazz );
+                    derivedIndex.put( clazz, classSupertypes );
+                    for ( int id = classSupertypes.nextSetBit( 0 ); id >= 0; id = classSupertypes.nextSetBit( id + 1 ) )
+                    {
+                        Integer key = Integer.valueOf( id );
+                        List<JavaClass> derived = derivedClasses.get( key );
+                        if ( derived == null )
+                        {
+                            derived = new ArrayList<JavaClass>();
+                            derivedClasses.put( key, derived );
+                        }
+                        derived.add( clazz );
+                    }
+                }
+            }
+            indexedClasses = classes;
+        }
+        List<JavaClass> result = new LinkedList<JavaClass>();
+        Integer id = ids.get( javaClass.getFullyQualifiedName() );
+        List<JavaClass> derived = ( id != null ? derivedClasses.get( id ) : null );
+        if ( derived != null )
+        {
+            for ( JavaClass clazz : derived )
+            {
+                if ( clazz != javaClass )
+                {
+                    result.add( clazz );
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Forget the supertypes of the classes which might be affected by these added or removed classes. When the
+     * hierarchy missed an earlier modification of the library, everything is calculated again anyway.
+     * 
+     * @param classes the added or removed classes
+     * @param currentModificationCount the modification count of the library after adding or removing the classes
+     */
+    synchronized void update( Collection<JavaClass> classes, long currentModificationCount )
+    {
+        if ( modificationCount != currentModificationCount - 1 )
+        {
+            return;
+        }
+        BitSet affectedIds = new BitSet();
+        collectAffectedIds( classes, affectedIds );
+        for ( Iterator<Map.Entry<JavaClass, BitSet>> iter = supertypes.entrySet().iterator(); iter.hasNext(); )
+        {
+            Map.Entry<JavaClass, BitSet> entry = iter.next();
+            if ( entry.getValue().intersects( affectedIds ) )
+            {
+                JavaClass javaClass = entry.getKey();
+                iter.remove();
+                removeDerivedClass( javaClass );
+            }
+        }
+        // the classes listed by the library, but not registered in it, can't be validated
+        for ( JavaClass clazz : new ArrayList<JavaClass>( derivedIndex.keySet() ) )
+        {
+            if ( !supertypes.containsKey( clazz ) )
+            {
+                removeDerivedClass( clazz );
+            }
+        }
+        indexedClasses = null;
+        modificationCount = currentModificationCount;
+    }
+
+    private void collectAffectedIds( Collection<JavaClass> classes, BitSet affectedIds )
+    {
+        for ( JavaClass javaClass : classes )
+        {
+            BitSet sameSimpleName = idsBySimpleName.get( getSimpleName( javaClass.getFullyQualifiedName() ) );
+            if ( sameSimpleName != null )
+            {
+                affectedIds.or( sameSimpleName );
+            }
+            supertypes.remove( javaClass );
+            removeDerivedClass( javaClass );
+            collectAffectedIds( javaClass.getNestedClasses(), affectedIds );
+        }
+    }
+
+    private void removeDerivedClass( JavaClass javaClass )
+    {
+        BitSet classSupertypes = derivedIndex.remove( javaClass );
+        if ( classSupertypes == null )
+        {
+            return;
+        }
+        for ( int id = classSupertypes.nextSetBit( 0 ); id >= 0; id = classSupertypes.nextSetBit( id + 1 ) )
+        {
+            List<JavaClass> derived = derivedClasses.get( Integer.valueOf( id ) );
+            if ( derived != null )
+            {
+                for ( Iterator<JavaClass> iter = derived.iterator(); iter.hasNext(); )
+                {
+                    if ( iter.next() == javaClass )
+                    {
+                        iter.remove();
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    private void validate()
+    {
+        long currentModificationCount = classLibrary.getModificationCount();
+        if ( currentModificationCount != modificationCount )
+        {
+            ids.clear();
+            idsBySimpleName.clear();
+            supertypes.clear();
+            indexedClasses = null;
+            derivedIndex.clear();
+            derivedClasses.clear();
+            modificationCount = currentModificationCount;
+        }
+    }
+
+    /**
+     * @param javaClass the class
+     * @return the ids of all supertypes of the class, including the class itself unless it's outside the library
+     */
+    private BitSet getSupertypes( JavaClass javaClass )
+    {
+        BitSet result = supertypes.get( javaClass );
+        if ( result == null )
+        {
+            result = getSupertypes( javaClass, new IdentityHashMap<JavaClass, BitSet>() );
+        }
+        return result;
+    }
+
+    private BitSet getSupertypes( JavaClass javaClass, Map<JavaClass, BitSet> inProgress )
+    {
+        BitSet result = supertypes.get( javaClass );
+        if ( result == null )
+        {
+            result = inProgress.get( javaClass );
+        }
+        if ( result == null )
+        {
+            boolean registered = classLibrary.isRegistered( javaClass );
+            result = new BitSet();
+            // the name of a class outside the library is only kept when it's the supertype of another class
+            if ( registered || !inProgress.isEmpty() )
+            {
+                result.set( getId( javaClass.getFullyQualifiedName() ) );
+            }
+            // register before visiting the supertypes, so a cyclic hierarchy can't cause an endless loop
+            inProgress.put( javaClass, result );
+            JavaClass superClass = javaClass.getSuperJavaClass();
+            if ( superClass != null )
+            {
+                result.or( getSupertypes( superClass, inProgress ) );
+            }
+            for ( JavaClass implementz : javaClass.getImplementedInterfaces() )
+            {
+                result.or( getSupertypes( implementz, inProgress ) );
+            }
+            if ( registered )
+            {
+                supertypes.put( javaClass, result );
+            }
+        }
+        return result;
+    }
+
+    private int getId( String name )
+    {
+        Integer result = ids.get( name );
+        if ( result == null )
+        {
+            result = Integer.valueOf( ids.size() );
+            ids.put( name, result );
+            String simpleName = getSimpleName( name );
+            BitSet sameSimpleName = idsBySimpleName.get( simpleName );
+            if ( sameSimpleName == null )
+            {
+                sameSimpleName = new BitSet();
+                idsBySimpleName.put( simpleName, sameSimpleName );
+            }
+            sameSimpleName.set( result.intValue() );
+        }
+        return result.intValue();
+    }
+
+    private static String getSimpleName( String name )
+    {
+        return name.substring( Math.max( name.lastIndexOf( '.' ), name.lastIndexOf( '$' ) ) + 1 );
+    }
+}
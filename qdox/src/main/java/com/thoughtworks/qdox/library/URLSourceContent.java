@@ -0,0 +1,143 @@
+package com.thoughtworks.qdox.library;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.ref.SoftReference;
+import java.net.URISyntaxException;
+import java.net.URL;
+
+/**
+ * Doesn't keep the content of a source, but reads it again from its {@link URL} once it is requested. The content is
+ * softly cached, so retrieving several codeblocks of the same source will read it only once. Offsets are only valid as
+ * long as the content of the URL hasn't changed since it was parsed. For a file the length and the last modification
+ * time are compared with those before the source was parsed, a changed file can't be used anymore.
+ *
+ * @author Robert Scholte
+ * @since 2.0
+ */
+public class URLSourceContent
+    extends SourceContent
+{
+    private final URL url;
+
+    private final String encoding;
+
+    private final long lastModified;
+
+    private final long fileLength;
+
+    private transient SoftReference<char[]> cache;
+
+    /**
+     * Must be created before the source is parsed, so a change during parsing is detected as well.
+     * 
+     * @param url the url of the source
+     * @param encoding the encoding which was used to parse the source
+     */
+    public URLSourceContent( URL url, String encoding )
+    {
+        this.url = url;
+        this.encoding = encoding;
+        File file = getFile();
+        this.lastModified = ( file != null ? file.lastModified() : 0 );
+        this.fileLength = ( file != null ? file.length() : 0 );
+    }
+
+    /**
+     * @return the file of the url, <code>null</code> if the url doesn't refer to a file
+     */
+    private File getFile()
+    {
+        if ( !"file".equals( url.getProtocol() ) )
+        {
+            return null;
+        }
+        try
+        {
+            return new File( url.toURI() );
+        }
+        catch ( URISyntaxException e )
+        {
+            return new File( url.getPath() );
+        }
+    }
+
+    public int length()
+    {
+        return getContent().length;
+    }
+
+    public char charAt( int index )
+    {
+        return getContent()[index];
+    }
+
+    @Override
+    protected String substring( int start, int end )
+    {
+        return new String( getContent(), start, end - start );
+    }
+
+    /**
+     * @return the content of the source
+     * @throws SourceContentException if the source can't be read or has changed since it was parsed
+     */
+    private synchronized char[] getContent()
+    {
+        char[] content = ( cache != null ? cache.get() : null );
+        if ( content == null )
+        {
+            try
+            {
+                File file = getFile();
+                if ( file != null )
+                {
+                    if ( file.lastModified() != lastModified || file.length() != fileLength )
+                    {
+                        throw new SourceContentException( "Source has changed since it was parsed : " + url, null );
+                    }
+                    content = SourceFiles.read( file, encoding );
+                }
+                else
+                {
+                    Reader reader = new InputStreamReader( url.openStream(), encoding );
+                    try
+                    {
+                        content = read( reader );
+                    }
+                    finally
+                    {
+                        reader.close();
+                    }
+                }
+            }
+            catch ( IOException e )
+            {
+                throw new SourceContentException( "Cannot read source : " + url, e );
+            }
+            cache = new SoftReference<char[]>( content );
+        }
+        return content;
+    }
+}
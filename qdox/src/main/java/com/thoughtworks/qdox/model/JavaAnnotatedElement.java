@@ -51,6 +51,11 @@ public interface JavaAnnotatedElement
     /**
      * Retrieve the javadoc comment of this annotated element.
      * This is the part between &#47;&#42;&#42; and the &#42;&#47;, but without the doclet tags
+     * <p>
+     * The javadoc of a parsed source is only parsed once its comment or tags are requested. A malformed javadoc is
+     * passed to the {@link com.thoughtworks.qdox.library.ErrorHandler} of the library, otherwise the
+     * {@link com.thoughtworks.qdox.parser.ParseException} is thrown by this method and the methods retrieving the tags.
+     * </p>
      * 
      * @return the comment, otherwise <code>null</code>
      */
@@ -60,6 +65,7 @@ public interface JavaAnnotatedElement
      * Retrieve all defined doclet tags.
      * 
      * @return a list of DocletTags, never <code>null</code>
+     * @see #getComment()
      */
 	List<DocletTag> getTags();
 
@@ -76,7 +76,7 @@ public interface JavaConstructor
     /**
      * Retrieve the code between the brackets
      * 
-     * @return the source code
+     * @return the source code, <code>null</code> if the codeblocks were skipped while parsing
      */
     String getSourceCode();
     
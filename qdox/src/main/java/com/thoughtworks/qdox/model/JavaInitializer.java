@@ -50,5 +50,8 @@ public interface JavaInitializer extends Serializable
 {
     boolean isStatic();
     
+    /**
+     * @return the code between the brackets, <code>null</code> if the codeblocks were skipped while parsing
+     */
     String getBlockContent();
 }
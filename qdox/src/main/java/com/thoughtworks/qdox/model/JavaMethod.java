@@ -141,7 +141,7 @@ public interface JavaMethod extends JavaAnnotatedElement, JavaMember, JavaModel,
     /**
      * Get the original source code of the body of this method.
      *
-     * @return Code as string.
+     * @return Code as string, <code>null</code> if the codeblocks were skipped while parsing.
      */
     String getSourceCode();
     
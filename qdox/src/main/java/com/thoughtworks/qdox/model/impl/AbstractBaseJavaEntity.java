@@ -33,6 +33,7 @@ public abstract class AbstractBaseJavaEntity extends AbstractJavaModel implement
 	private List<JavaAnnotation> annotations = Collections.emptyList();
 	private String comment;
 	private List<DocletTag> tags = Collections.emptyList();
+	private volatile DeferredJavaDoc deferredJavaDoc;
 
     public AbstractBaseJavaEntity()
     {
@@ -62,21 +63,25 @@ public abstract class AbstractBaseJavaEntity extends AbstractJavaModel implement
 
     public String getComment()
     {
+        resolveJavaDoc();
         return comment;
     }
 
     public void setComment( String comment )
     {
+        resolveJavaDoc();
         this.comment = comment;
     }
 
     public List<DocletTag> getTags()
     {
+        resolveJavaDoc();
         return tags;
     }
 
     public List<DocletTag> getTagsByName( String name )
     {
+        resolveJavaDoc();
         List<DocletTag> specifiedTags = new LinkedList<DocletTag>();
         for ( DocletTag docletTag : tags )
         {
@@ -90,6 +95,7 @@ public abstract class AbstractBaseJavaEntity extends AbstractJavaModel implement
 
     public DocletTag getTagByName( String name )
     {
+        resolveJavaDoc();
         for ( DocletTag docletTag : tags )
         {
             if ( docletTag.getName().equals( name ) )
@@ -115,6 +121,36 @@ public abstract class AbstractBaseJavaEntity extends AbstractJavaModel implement
 
     public void setTags( List<DocletTag> tagList )
     {
+        resolveJavaDoc();
         this.tags = tagList;
     }
+
+    /**
+     * Set the javadoc which should only be parsed once the comment or the tags are requested.
+     * It replaces the current comment and tags.
+     * 
+     * @param deferredJavaDoc the unparsed javadoc
+     * @since 2.0
+     */
+    public void setDeferredJavaDoc( DeferredJavaDoc deferredJavaDoc )
+    {
+        this.deferredJavaDoc = deferredJavaDoc;
+    }
+
+    private void resolveJavaDoc()
+    {
+        if ( deferredJavaDoc != null )
+        {
+            synchronized ( this )
+            {
+                DeferredJavaDoc javaDoc = deferredJavaDoc;
+                if ( javaDoc != null )
+                {
+                    comment = javaDoc.getComment();
+                    tags = javaDoc.getTags( this );
+                    deferredJavaDoc = null;
+                }
+            }
+        }
+    }
 }
\ No newline at end of file
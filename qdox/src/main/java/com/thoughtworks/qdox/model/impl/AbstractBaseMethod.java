@@ -23,7 +23,7 @@ public abstract class AbstractBaseMethod
     private List<JavaParameter> parameters = Collections.emptyList();
     private List<JavaClass> exceptions = Collections.emptyList();
     private boolean varArgs;
-    private String sourceCode;
+    private CharSequence sourceCode;
 
     public List<JavaParameter> getParameters()
     {
@@ -140,10 +140,19 @@ public abstract class AbstractBaseMethod
     /** {@inheritDoc} */
     public String getSourceCode()
     {
-    	return sourceCode;
+    	return sourceCode != null ? sourceCode.toString() : null;
     }
 
     public void setSourceCode( String sourceCode )
+    {
+        this.sourceCode = sourceCode;
+    }
+
+    /**
+     * @param sourceCode the source code, which might be read from the source once it is requested
+     * @since 2.0
+     */
+    public void setSourceCode( CharSequence sourceCode )
     {
     	this.sourceCode = sourceCode;
     }
@@ -19,7 +19,9 @@ package com.thoughtworks.qdox.model.impl;
  * under the License.
  */
 
-import java.util.Collection;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
@@ -27,7 +29,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import com.thoughtworks.qdox.library.AbstractClassLibrary;
 import com.thoughtworks.qdox.library.ClassLibrary;
+import com.thoughtworks.qdox.library.TypeHierarchy;
 import com.thoughtworks.qdox.model.BeanProperty;
 import com.thoughtworks.qdox.model.DocletTag;
 import com.thoughtworks.qdox.model.JavaClass;
@@ -47,6 +51,16 @@ public class DefaultJavaClass
     extends AbstractInheritableJavaEntity
     implements JavaClass
 {
+    // the classes of which the method table is being built by the current thread, to detect a cyclic hierarchy
+    private static final ThreadLocal<Map<DefaultJavaClass, Boolean>> METHOD_TABLES_IN_PROGRESS =
+        new ThreadLocal<Map<DefaultJavaClass, Boolean>>()
+        {
+            @Override
+            protected Map<DefaultJavaClass, Boolean> initialValue()
+            {
+                return new IdentityHashMap<DefaultJavaClass, Boolean>();
+            }
+        };
 
     private List<JavaConstructor> constructors = new LinkedList<JavaConstructor>();
 
@@ -74,6 +88,22 @@ public class DefaultJavaClass
     // sourceless class can use this property
     private JavaPackage javaPackage;
 
+    private transient volatile MethodTable methodTable;
+
+
+    private transient Map<JavaMethod, JavaMethod> delegates;
+
+    // indices of the members by name, built once a member is looked up and maintained by the add-methods
+    private transient volatile Map<String, List<JavaMethod>> methodsByName;
+
+    private transient volatile Map<String, JavaField> fieldsByName;
+
+    private transient volatile Map<String, JavaClass> nestedClassesByName;
+
+    private transient volatile List<JavaField> enumConstants;
+
+    private transient volatile BeanPropertyTable beanProperties;
+
     protected DefaultJavaClass()
     {
     }
@@ -209,6 +239,7 @@ public class DefaultJavaClass
     public void setEnum( boolean anEnum )
     {
         this.anEnum = anEnum;
+        enumConstants = null;
     }
 
     public void setAnnotation( boolean anAnnotation )
@@ -224,6 +255,32 @@ public class DefaultJavaClass
     public void addMethod( JavaMethod meth )
     {
         methods.add( meth );
+        methodTable = null;
+        beanProperties = null;
+        Map<String, List<JavaMethod>> index = methodsByName;
+        if ( index != null )
+        {
+            if ( meth.getName() != null )
+            {
+                addMethod( index, meth );
+            }
+            else
+            {
+                // the builder names the method after adding it
+                methodsByName = null;
+            }
+        }
+    }
+
+    private static void addMethod( Map<String, List<JavaMethod>> index, JavaMethod method )
+    {
+        List<JavaMethod> overloads = index.get( method.getName() );
+        if ( overloads == null )
+        {
+            overloads = new ArrayList<JavaMethod>( 1 );
+            index.put( method.getName(), overloads );
+        }
+        overloads.add( method );
     }
 
     public void setSuperClass( JavaType type )
@@ -233,11 +290,13 @@ public class DefaultJavaClass
             throw new IllegalArgumentException( "enums cannot extend other classes" );
         }
         superClass = type;
+        methodTable = null;
     }
 
     public void setImplementz( List<JavaClass> implementz )
     {
         this.implementz = implementz;
+        methodTable = null;
     }
 
     /** {@inheritDoc} */
@@ -254,6 +313,23 @@ public class DefaultJavaClass
     public void addField( JavaField javaField )
     {
         fields.add( javaField );
+        enumConstants = null;
+        Map<String, JavaField> index = fieldsByName;
+        if ( index != null )
+        {
+            if ( javaField.getName() != null )
+            {
+                // just like a lookup in the list, the first field with this name wins
+                if ( !index.containsKey( javaField.getName() ) )
+                {
+                    index.put( javaField.getName(), javaField );
+                }
+            }
+            else
+            {
+                fieldsByName = null;
+            }
+        }
     }
 
     /**
@@ -444,7 +520,7 @@ public class DefaultJavaClass
     {
         if ( superclasses )
         {
-            return new LinkedList<JavaMethod>( getMethodsFromSuperclassAndInterfaces( this, this ).values() );
+            return new LinkedList<JavaMethod>( getMethodTable().methods );
         }
         else
         {
@@ -452,68 +528,146 @@ public class DefaultJavaClass
         }
     }
 
-    private static Map<String, JavaMethod> getMethodsFromSuperclassAndInterfaces( JavaClass rootClass,
-                                                                                  JavaClass callingClazz )
-    {
-
-        Map<String, JavaMethod> result = new LinkedHashMap<String, JavaMethod>();
-
-        for ( JavaMethod method : callingClazz.getMethods() )
+    /**
+     * The methods of this class and the ones it inherits by their declaration signature, like a vtable. The table is
+     * kept until the library is modified, the methods or supertypes of this class change or the table of one of its
+     * supertypes is rebuilt, so a subclass can build its own table from it without formatting the signatures of the
+     * inherited methods again.
+     * 
+     * @return the method table, never <code>null</code>
+     */
+    private MethodTable getMethodTable()
+    {
+        ClassLibrary classLibrary = ( getSource() != null ? getSource().getJavaClassLibrary() : null );
+        // only the libraries of QDox count their modifications, the table of any other class is always rebuilt
+        boolean countsModifications = classLibrary instanceof AbstractClassLibrary;
+        long modificationCount =
+            ( countsModifications ? ( (AbstractClassLibrary) classLibrary ).getModificationCount() : -1 );
+        MethodTable result = methodTable;
+        Map<DefaultJavaClass, Boolean> inProgress = METHOD_TABLES_IN_PROGRESS.get();
+        if ( inProgress.put( this, Boolean.TRUE ) != null )
         {
-            if ( !method.isPrivate() )
-            {
-                String signature = method.getDeclarationSignature( false );
-                
-                result.put( signature, method );
-            }
+            // cyclic hierarchy
+            return new MethodTable( modificationCount, new LinkedHashMap<String, JavaMethod>(),
+                                    new IdentityHashMap<DefaultJavaClass, MethodTable>() );
         }
-
-        JavaClass superclass = callingClazz.getSuperJavaClass();
-        if ( superclass != null )
+        try
         {
-            Map<String, JavaMethod> superClassMethods =
-                getMethodsFromSuperclassAndInterfaces( callingClazz, superclass );
-            for ( Map.Entry<String, JavaMethod> methodEntry : superClassMethods.entrySet() )
+            if ( result != null && result.modificationCount == modificationCount && countsModifications
+                && isCurrent( result, inProgress ) )
             {
-                if ( !result.containsKey( methodEntry.getKey() ) )
+                return result;
+            }
+            if ( result != null && result.modificationCount != modificationCount )
+            {
+                // the delegates could refer to methods which don't exist anymore
+                synchronized ( this )
                 {
-                    JavaMethod method;
-                    if ( superclass.equals( rootClass ) )
-                    {
-                        method = methodEntry.getValue();
-                    }
-                    else
-                    {
-                        method = new JavaMethodDelegate( callingClazz, methodEntry.getValue() );
-                    }
-                    result.put( methodEntry.getKey(), method );
+                    delegates = null;
                 }
             }
+            Map<String, JavaMethod> signatures = new LinkedHashMap<String, JavaMethod>();
+            for ( JavaMethod method : getMethods() )
+            {
+                if ( !method.isPrivate() )
+                {
+                    signatures.put( method.getDeclarationSignature( false ), method );
+                }
+            }
+            Map<DefaultJavaClass, MethodTable> inherited = new IdentityHashMap<DefaultJavaClass, MethodTable>();
+            JavaClass superclass = getSuperJavaClass();
+            if ( superclass != null )
+            {
+                inheritMethods( signatures, inherited, superclass );
+            }
+            for ( JavaClass clazz : getImplementedInterfaces() )
+            {
+                inheritMethods( signatures, inherited, clazz );
+            }
+            result = new MethodTable( modificationCount, signatures, inherited );
+            methodTable = result;
+        }
+        finally
+        {
+            inProgress.remove( this );
+        }
+        return result;
+    }
 
+    /**
+     * @param table the method table of this class
+     * @param inProgress the classes whose table is being validated or built
+     * @return <code>true</code> if the tables of the supertypes are still the ones this table was built from
+     */
+    private static boolean isCurrent( MethodTable table, Map<DefaultJavaClass, Boolean> inProgress )
+    {
+        for ( Map.Entry<DefaultJavaClass, MethodTable> inheritedEntry : table.inherited.entrySet() )
+        {
+            // a class of a cyclic hierarchy is validated by the caller
+            if ( !inProgress.containsKey( inheritedEntry.getKey() )
+                && inheritedEntry.getKey().getMethodTable() != inheritedEntry.getValue() )
+            {
+                return false;
+            }
         }
+        return true;
+    }
 
-        for ( JavaClass clazz : callingClazz.getImplementedInterfaces() )
+    private void inheritMethods( Map<String, JavaMethod> signatures, Map<DefaultJavaClass, MethodTable> inherited,
+                                 JavaClass supertype )
+    {
+        JavaClass realSupertype = supertype;
+        if ( supertype instanceof DefaultJavaType )
         {
-            Map<String, JavaMethod> interfaceMethods = getMethodsFromSuperclassAndInterfaces( callingClazz, clazz );
-            for ( Map.Entry<String, JavaMethod> methodEntry : interfaceMethods.entrySet() )
+            realSupertype = ( (DefaultJavaType) supertype ).resolveRealClass();
+        }
+        Map<String, JavaMethod> inheritedMethods;
+        if ( realSupertype instanceof DefaultJavaClass )
+        {
+            MethodTable table = ( (DefaultJavaClass) realSupertype ).getMethodTable();
+            inherited.put( (DefaultJavaClass) realSupertype, table );
+            inheritedMethods = table.signatures;
+        }
+        else
+        {
+            inheritedMethods = new LinkedHashMap<String, JavaMethod>();
+            for ( JavaMethod method : realSupertype.getMethods( true ) )
             {
-                if ( !result.containsKey( methodEntry.getKey() ) )
+                if ( !method.isPrivate() )
                 {
-                    JavaMethod method;
-                    if ( clazz.equals( rootClass ) )
-                    {
-                        method = methodEntry.getValue();
-                    }
-                    else
-                    {
-                        method = new JavaMethodDelegate( callingClazz, methodEntry.getValue() );
-                    }
-                    result.put( methodEntry.getKey(), method );
+                    inheritedMethods.put( method.getDeclarationSignature( false ), method );
                 }
             }
+        }
+        for ( Map.Entry<String, JavaMethod> methodEntry : inheritedMethods.entrySet() )
+        {
+            if ( !signatures.containsKey( methodEntry.getKey() ) )
+            {
+                signatures.put( methodEntry.getKey(), getDelegate( methodEntry.getValue() ) );
+            }
+        }
+    }
 
+    /**
+     * @param method a method of a supertype
+     * @return the method as seen from this class, the same instance for every call
+     */
+    private JavaMethod getDelegate( JavaMethod method )
+    {
+        synchronized ( this )
+        {
+            if ( delegates == null )
+            {
+                delegates = new IdentityHashMap<JavaMethod, JavaMethod>();
+            }
+            JavaMethod result = delegates.get( method );
+            if ( result == null )
+            {
+                result = new JavaMethodDelegate( this, method );
+                delegates.put( method, result );
+            }
+            return result;
         }
-        return result;
     }
 
     /** {@inheritDoc} */
@@ -525,7 +679,28 @@ public class DefaultJavaClass
     /** {@inheritDoc} */
     public JavaMethod getMethod( String name, List<JavaType> parameterTypes, boolean varArgs )
     {
-        for ( JavaMethod method : getMethods() )
+        Map<String, List<JavaMethod>> index = methodsByName;
+        if ( index == null )
+        {
+            index = new HashMap<String, List<JavaMethod>>();
+            for ( JavaMethod method : getMethods() )
+            {
+                if ( method.getName() == null )
+                {
+                    // can't be indexed (yet), let every method decide if it matches
+                    index = null;
+                    break;
+                }
+                addMethod( index, method );
+            }
+            methodsByName = index;
+        }
+        List<JavaMethod> overloads = ( index != null ? index.get( name ) : getMethods() );
+        if ( overloads == null )
+        {
+            return null;
+        }
+        for ( JavaMethod method : overloads )
         {
             if ( method.signatureMatches( name, parameterTypes, varArgs ) )
             {
@@ -581,7 +756,7 @@ public class DefaultJavaClass
                 // todo: ideally we should check on package privacy too. oh well.
                 if ( ( method != null ) && !method.isPrivate() )
                 {
-                    result.add( new JavaMethodDelegate( this, method ) );
+                    result.add( getDelegate( method ) );
                 }
             }
 
@@ -590,7 +765,7 @@ public class DefaultJavaClass
                 JavaMethod method = clazz.getMethodBySignature( name, parameterTypes, true, varArg );
                 if ( method != null )
                 {
-                    result.add( new JavaMethodDelegate( this, method ) );
+                    result.add( getDelegate( method ) );
                 }
             }
         }
@@ -607,9 +782,32 @@ public class DefaultJavaClass
     /** {@inheritDoc} */
     public JavaField getFieldByName( String name )
     {
+        Map<String, JavaField> index = fieldsByName;
+        if ( index == null )
+        {
+            index = new HashMap<String, JavaField>();
+            for ( JavaField field : getFields() )
+            {
+                if ( field.getName() == null )
+                {
+                    // can't be indexed (yet), compare the name of every field
+                    index = null;
+                    break;
+                }
+                if ( !index.containsKey( field.getName() ) )
+                {
+                    index.put( field.getName(), field );
+                }
+            }
+            fieldsByName = index;
+        }
+        if ( index != null )
+        {
+            return index.get( name );
+        }
         for ( JavaField field : getFields() )
         {
-            if ( field.getName().equals( name ) )
+            if ( name != null && name.equals( field.getName() ) )
             {
                 return field;
             }
@@ -620,25 +818,28 @@ public class DefaultJavaClass
     /** {@inheritDoc} */
     public List<JavaField> getEnumConstants()
     {
-        List<JavaField> result = isEnum() ? new LinkedList<JavaField>() : null;
-        if ( isEnum() )
+        List<JavaField> result = enumConstants;
+        if ( result == null && isEnum() )
         {
+            List<JavaField> constants = new LinkedList<JavaField>();
             for ( JavaField field : getFields() )
             {
                 if ( field.isEnumConstant() )
                 {
-                    result.add( field );
+                    constants.add( field );
                 }
             }
+            result = constants;
+            enumConstants = result;
         }
-        return result;
+        return result != null ? new LinkedList<JavaField>( result ) : null;
     }
 
     /** {@inheritDoc} */
     public JavaField getEnumConstantByName( String name )
     {
         JavaField field = getFieldByName( name );
-        return field.isEnumConstant() ? field : null;
+        return field != null && field.isEnumConstant() ? field : null;
     }
     
     public void addInitializer( JavaInitializer initializer )
@@ -649,6 +850,21 @@ public class DefaultJavaClass
     public void addClass( JavaClass cls )
     {
         classes.add( cls );
+        Map<String, JavaClass> index = nestedClassesByName;
+        if ( index != null )
+        {
+            if ( cls.getName() != null )
+            {
+                if ( !index.containsKey( cls.getName() ) )
+                {
+                    index.put( cls.getName(), cls );
+                }
+            }
+            else
+            {
+                nestedClassesByName = null;
+            }
+        }
     }
 
     /**
@@ -682,21 +898,46 @@ public class DefaultJavaClass
     {
         int separatorIndex = name.indexOf( '.' );
         String directInnerClassName = ( separatorIndex > 0 ? name.substring( 0, separatorIndex ) : name );
-        for ( JavaClass jClass : getNestedClasses() )
+        Map<String, JavaClass> index = nestedClassesByName;
+        if ( index == null )
         {
-            if ( jClass.getName().equals( directInnerClassName ) )
+            index = new HashMap<String, JavaClass>();
+            for ( JavaClass jClass : getNestedClasses() )
             {
-                if ( separatorIndex > 0 )
+                if ( jClass.getName() == null )
                 {
-                    return jClass.getNestedClassByName( name.substring( separatorIndex + 1 ) );
+                    // can't be indexed (yet), compare the name of every nested class
+                    index = null;
+                    break;
                 }
-                else
+                if ( !index.containsKey( jClass.getName() ) )
                 {
-                    return jClass;
+                    index.put( jClass.getName(), jClass );
                 }
             }
+            nestedClassesByName = index;
         }
-        return null;
+        JavaClass jClass = null;
+        if ( index != null )
+        {
+            jClass = index.get( directInnerClassName );
+        }
+        else
+        {
+            for ( JavaClass nestedClass : getNestedClasses() )
+            {
+                if ( directInnerClassName.equals( nestedClass.getName() ) )
+                {
+                    jClass = nestedClass;
+                    break;
+                }
+            }
+        }
+        if ( jClass != null && separatorIndex > 0 )
+        {
+            return jClass.getNestedClassByName( name.substring( separatorIndex + 1 ) );
+        }
+        return jClass;
     }
 
     /** {@inheritDoc} */
@@ -710,6 +951,11 @@ public class DefaultJavaClass
         {
             return true;
         }
+        TypeHierarchy typeHierarchy = getTypeHierarchy();
+        if ( typeHierarchy != null )
+        {
+            return typeHierarchy.isA( this, fullClassName );
+        }
         for ( JavaClass implementz : getImplementedInterfaces() )
         {
             if ( implementz.isA( fullClassName ) )
@@ -738,6 +984,11 @@ public class DefaultJavaClass
         }
         else if ( javaClass != null )
         {
+            TypeHierarchy typeHierarchy = getTypeHierarchy();
+            if ( typeHierarchy != null )
+            {
+                return typeHierarchy.isA( this, javaClass.getFullyQualifiedName() );
+            }
             // ask our interfaces
             for ( JavaClass intrfc : getImplementedInterfaces() )
             {
@@ -765,51 +1016,38 @@ public class DefaultJavaClass
     /** {@inheritDoc} */
     public List<BeanProperty> getBeanProperties( boolean superclasses )
     {
-        Map<String, BeanProperty> beanPropertyMap = getBeanPropertyMap( superclasses );
-        Collection<BeanProperty> beanPropertyCollection = beanPropertyMap.values();
-
-        return new LinkedList<BeanProperty>( beanPropertyCollection );
+        return new LinkedList<BeanProperty>( getBeanPropertyTable( superclasses ).properties );
     }
 
-    private Map<String, BeanProperty> getBeanPropertyMap( boolean superclasses )
+    /**
+     * The properties are collected once. Those of the own methods are kept until a method is added, those including
+     * the inherited methods as long as the method table is kept.
+     * 
+     * @param superclasses <code>true</code> to include the methods of the superclasses and interfaces
+     * @return the bean properties, never <code>null</code>
+     */
+    private BeanPropertyTable getBeanPropertyTable( boolean superclasses )
     {
-        List<JavaMethod> superMethods = getMethods( superclasses );
-        Map<String, DefaultBeanProperty> beanPropertyMap = new LinkedHashMap<String, DefaultBeanProperty>();
-
-        // loop over the methods.
-        for ( JavaMethod superMethod : superMethods )
+        BeanPropertyTable result;
+        if ( superclasses )
         {
-            if ( superMethod.isPropertyAccessor() )
+            MethodTable table = getMethodTable();
+            result = table.beanProperties;
+            if ( result == null )
             {
-                String propertyName = superMethod.getPropertyName();
-                DefaultBeanProperty beanProperty = getOrCreateProperty( beanPropertyMap, propertyName );
-
-                beanProperty.setAccessor( superMethod );
-                beanProperty.setType( superMethod.getPropertyType() );
-            }
-            else if ( superMethod.isPropertyMutator() )
-            {
-                String propertyName = superMethod.getPropertyName();
-                DefaultBeanProperty beanProperty = getOrCreateProperty( beanPropertyMap, propertyName );
-
-                beanProperty.setMutator( superMethod );
-                beanProperty.setType( superMethod.getPropertyType() );
+                result = new BeanPropertyTable( table.methods );
+                table.beanProperties = result;
             }
         }
-        return new LinkedHashMap<String, BeanProperty>( beanPropertyMap );
-    }
-
-    private DefaultBeanProperty getOrCreateProperty( Map<String, DefaultBeanProperty> beanPropertyMap,
-                                                     String propertyName )
-    {
-        DefaultBeanProperty result = beanPropertyMap.get( propertyName );
-
-        if ( result == null )
+        else
         {
-            result = new DefaultBeanProperty( propertyName );
-            beanPropertyMap.put( propertyName, result );
+            result = beanProperties;
+            if ( result == null )
+            {
+                result = new BeanPropertyTable( getMethods() );
+                beanProperties = result;
+            }
         }
-
         return result;
     }
 
@@ -822,12 +1060,17 @@ public class DefaultJavaClass
     /** {@inheritDoc} */
     public BeanProperty getBeanProperty( String propertyName, boolean superclasses )
     {
-        return getBeanPropertyMap( superclasses ).get( propertyName );
+        return getBeanPropertyTable( superclasses ).propertiesByName.get( propertyName );
     }
 
     /** {@inheritDoc} */
     public List<JavaClass> getDerivedClasses()
     {
+        TypeHierarchy typeHierarchy = getTypeHierarchy();
+        if ( typeHierarchy != null )
+        {
+            return typeHierarchy.getDerivedClasses( this );
+        }
         List<JavaClass> result = new LinkedList<JavaClass>();
         for ( JavaClass clazz : getSource().getJavaClassLibrary().getJavaClasses() )
         {
@@ -928,4 +1171,84 @@ public class DefaultJavaClass
         return getSource().getJavaClassLibrary();
     }
 
+    /**
+     * @return the type hierarchy of the library of this class, <code>null</code> if this class has no library with a
+     *         type hierarchy
+     */
+    private TypeHierarchy getTypeHierarchy()
+    {
+        ClassLibrary classLibrary = ( getSource() != null ? getSource().getJavaClassLibrary() : null );
+        return ( classLibrary instanceof AbstractClassLibrary
+                        ? ( (AbstractClassLibrary) classLibrary ).getTypeHierarchy() : null );
+    }
+
+    private static final class MethodTable
+    {
+        private final long modificationCount;
+
+        private final Map<String, JavaMethod> signatures;
+
+        private final List<JavaMethod> methods;
+
+        // the tables of the supertypes this table was built from
+        private final Map<DefaultJavaClass, MethodTable> inherited;
+
+        private volatile BeanPropertyTable beanProperties;
+
+        MethodTable( long modificationCount, Map<String, JavaMethod> signatures,
+                     Map<DefaultJavaClass, MethodTable> inherited )
+        {
+            this.modificationCount = modificationCount;
+            this.signatures = signatures;
+            this.methods = new ArrayList<JavaMethod>( signatures.values() );
+            this.inherited = inherited;
+        }
+    }
+
+    private static final class BeanPropertyTable
+    {
+        private final Map<String, BeanProperty> propertiesByName;
+
+        private final List<BeanProperty> properties;
+
+        BeanPropertyTable( List<JavaMethod> methods )
+        {
+            Map<String, BeanProperty> beanPropertyMap = new LinkedHashMap<String, BeanProperty>();
+
+            // loop over the methods.
+            for ( JavaMethod method : methods )
+            {
+                if ( method.isPropertyAccessor() )
+                {
+                    DefaultBeanProperty beanProperty = getOrCreateProperty( beanPropertyMap, method.getPropertyName() );
+
+                    beanProperty.setAccessor( method );
+                    beanProperty.setType( method.getPropertyType() );
+                }
+                else if ( method.isPropertyMutator() )
+                {
+                    DefaultBeanProperty beanProperty = getOrCreateProperty( beanPropertyMap, method.getPropertyName() );
+
+                    beanProperty.setMutator( method );
+                    beanProperty.setType( method.getPropertyType() );
+                }
+            }
+            this.propertiesByName = beanPropertyMap;
+            this.properties = new ArrayList<BeanProperty>( beanPropertyMap.values() );
+        }
+
+        private static DefaultBeanProperty getOrCreateProperty( Map<String, BeanProperty> beanPropertyMap,
+                                                                String propertyName )
+        {
+            DefaultBeanProperty result = (DefaultBeanProperty) beanPropertyMap.get( propertyName );
+
+            if ( result == null )
+            {
+                result = new DefaultBeanProperty( propertyName );
+                beanPropertyMap.put( propertyName, result );
+            }
+
+            return result;
+        }
+    }
 }
\ No newline at end of file
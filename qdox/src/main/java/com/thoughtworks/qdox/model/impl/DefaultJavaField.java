@@ -32,7 +32,7 @@ public class DefaultJavaField
 
     private JavaClass type;
 
-    private String initializationExpression;
+    private CharSequence initializationExpression;
 
     private boolean enumConstant;
 
@@ -105,7 +105,7 @@ public class DefaultJavaField
     /** {@inheritDoc} */
     public String getInitializationExpression()
     {
-        return initializationExpression;
+        return initializationExpression != null ? initializationExpression.toString() : null;
     }
 
     public void setInitializationExpression( String initializationExpression )
@@ -113,6 +113,15 @@ public class DefaultJavaField
         this.initializationExpression = initializationExpression;
     }
 
+    /**
+     * @param initializationExpression the expression, which might be read from the source once it is requested
+     * @since 2.0
+     */
+    public void setInitializationExpression( CharSequence initializationExpression )
+    {
+        this.initializationExpression = initializationExpression;
+    }
+
     /** {@inheritDoc} */
     public boolean isEnumConstant()
     {
@@ -30,7 +30,7 @@ public class DefaultJavaInitializer extends AbstractJavaModel implements JavaIni
 {
     private boolean staticInitializer;
     
-    private String blockContent;
+    private CharSequence blockContent;
 
     public boolean isStatic()
     {
@@ -44,13 +44,22 @@ public class DefaultJavaInitializer extends AbstractJavaModel implements JavaIni
 
     public String getBlockContent()
     {
-        return blockContent;
+        return blockContent != null ? blockContent.toString() : null;
     }
 
     public void setBlock( String codeBlock )
     {
         this.blockContent = codeBlock;
     }
+
+    /**
+     * @param codeBlock the code between the brackets, which might be read from the source once it is requested
+     * @since 2.0
+     */
+    public void setBlock( CharSequence codeBlock )
+    {
+        this.blockContent = codeBlock;
+    }
     
     public String getCodeBlock()
     {
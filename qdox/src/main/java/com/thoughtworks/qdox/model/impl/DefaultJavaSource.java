@@ -29,6 +29,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import com.thoughtworks.qdox.library.AbstractClassLibrary;
 import com.thoughtworks.qdox.library.ClassLibrary;
 import com.thoughtworks.qdox.model.JavaClass;
 import com.thoughtworks.qdox.model.JavaModelUtils;
@@ -61,6 +62,9 @@ public class DefaultJavaSource implements JavaSource, Serializable {
     private List<String> imports = new LinkedList<String>();
     private List<JavaClass> classes = new LinkedList<JavaClass>();
     private Map<String, String> resolvedTypeCache = new HashMap<String, String>();
+    private transient Set<String> unresolvedTypeCache;
+    private long resolvedTypeModificationCount;
+    private transient ImportTable importTable;
     private URL url;
 
     /**
@@ -96,6 +100,9 @@ public class DefaultJavaSource implements JavaSource, Serializable {
 
     public void addImport(String imp) {
         imports.add(imp);
+        // an import can change how a name resolves, also the names which couldn't be resolved
+        resolvedTypeCache.clear();
+        unresolvedTypeCache = null;
     }
 
     /**  {@inheritDoc} */
@@ -131,14 +138,32 @@ public class DefaultJavaSource implements JavaSource, Serializable {
     /**  {@inheritDoc} */
    public String resolveFullyQualifiedName( String name )
     {
+        // classes might have been added to or removed from the library since the names were resolved, other libraries
+        // than those of QDox don't count their modifications
+        long modificationCount = ( classLibrary instanceof AbstractClassLibrary
+                        ? ( (AbstractClassLibrary) classLibrary ).getModificationCount() : 0 );
+        if ( modificationCount != resolvedTypeModificationCount )
+        {
+            resolvedTypeCache.clear();
+            unresolvedTypeCache = null;
+            resolvedTypeModificationCount = modificationCount;
+        }
         String result = resolvedTypeCache.get( name );
-        if ( result == null )
+        if ( result == null && ( unresolvedTypeCache == null || !unresolvedTypeCache.contains( name ) ) )
         {
             result = resolveTypeInternal( name );
             if ( result != null )
             {
                 resolvedTypeCache.put( name, result );
             }
+            else
+            {
+                if ( unresolvedTypeCache == null )
+                {
+                    unresolvedTypeCache = new HashSet<String>();
+                }
+                unresolvedTypeCache.add( name );
+            }
         }
         return result;
     }
@@ -193,16 +218,22 @@ public class DefaultJavaSource implements JavaSource, Serializable {
                 outerName = typeName.substring( 0, dotpos );
             }
 
-            // Check single-type-import with fully qualified name
-            resolvedName = resolveImportedType( typeName, nestedName, true );
+            ImportTable importTable = getImportTable();
 
-            if ( resolvedName != null )
+            // Check single-type-import with fully qualified name
+            if ( importTable.imports.contains( typeName ) )
             {
+                resolvedName = resolveImportedType( "", nestedName );
                 break lookup;
             }
 
             // Check single-type-import with outer name
-            resolvedName = resolveImportedType( outerName, nestedName, false );
+            String importPrefix = importTable.singleTypeImports.get( outerName );
+            if ( importPrefix != null )
+            {
+                resolvedName = resolveImportedType( importPrefix, nestedName );
+                break lookup;
+            }
 
             if ( resolvedName != null )
             {
@@ -243,46 +274,55 @@ public class DefaultJavaSource implements JavaSource, Serializable {
             }
 
             // Check type-import-on-demand
-            resolvedName = resolveImportedType( "*", nestedName, false );
-
-            if ( resolvedName != null )
+            int dollarIndex = nestedName.indexOf( '$' );
+            String topLevelName = ( dollarIndex > 0 ? nestedName.substring( 0, dollarIndex ) : nestedName );
+            for ( String onDemandPrefix : importTable.onDemandImports )
             {
-                break lookup;
-            }
-        }
-
-        return resolvedName;
-    }
-    
-    private String resolveImportedType( String importSpec, String typeName, boolean fullMatch )
-    {
-        String resolvedName = null;
-        String dotSuffix = "." + importSpec;
-
-        for ( String imprt : getImports() )
-        {
-            // static imports can refer to inner classes
-            if ( imprt.startsWith( "static " ) )
-            {
-                imprt = imprt.substring( 7 );
-            }
-            if ( imprt.equals( importSpec ) || ( !fullMatch && imprt.endsWith( dotSuffix ) ) )
-            {
-                String candidateName = imprt.substring( 0, imprt.length() - importSpec.length() ) + typeName;
-                resolvedName = resolveFullyQualifiedType( candidateName );
-                if ( resolvedName == null && !"*".equals( importSpec ) )
+                Set<String> typeNames = null;
+                if ( classLibrary instanceof AbstractClassLibrary )
                 {
-                    resolvedName = candidateName;
+                    typeNames = ( (AbstractClassLibrary) classLibrary ).getTypeNames( onDemandPrefix.length() > 0
+                        ? onDemandPrefix.substring( 0, onDemandPrefix.length() - 1 ) : "" );
                 }
+                // null if the library can't list the types of the package, so the import has to be tried
+                // an empty package might be a type of which the nested types are imported
+                if ( typeNames != null && !typeNames.isEmpty() && !typeNames.contains( topLevelName ) )
+                {
+                    continue;
+                }
+                resolvedName = resolveFullyQualifiedType( onDemandPrefix + nestedName );
                 if ( resolvedName != null )
                 {
-                    break;
+                    break lookup;
                 }
             }
         }
 
         return resolvedName;
     }
+
+    /**
+     * A single-type-import always wins, even if the library doesn't know the imported class.
+     * 
+     * @param importPrefix the import without the imported name, including the last dot
+     * @param typeName the name, with a <code>$</code> as separator of nested classes
+     * @return the resolved type name
+     */
+    private String resolveImportedType( String importPrefix, String typeName )
+    {
+        String candidateName = importPrefix + typeName;
+        String resolvedName = resolveFullyQualifiedType( candidateName );
+        return resolvedName != null ? resolvedName : candidateName;
+    }
+
+    private ImportTable getImportTable()
+    {
+        if ( importTable == null || importTable.importCount != imports.size() )
+        {
+            importTable = new ImportTable( imports );
+        }
+        return importTable;
+    }
     
     private String resolveFromLibrary(String typeName) {
         return classLibrary.hasClassReference( typeName ) ? typeName : null;
@@ -381,4 +421,44 @@ public class DefaultJavaSource implements JavaSource, Serializable {
         }
         return result;
     }
+
+    /**
+     * The imports of a source, split by kind so a name is resolved with lookups instead of walking all imports.
+     */
+    private static final class ImportTable
+    {
+        private final int importCount;
+
+        /** all imports, without the <code>static</code> keyword */
+        private final Set<String> imports = new HashSet<String>();
+
+        /** the last part of a single-type-import mapped to the rest of the first import ending with it */
+        private final Map<String, String> singleTypeImports = new HashMap<String, String>();
+
+        /** the packages and types of the type-imports-on-demand in order, including the last dot */
+        private final List<String> onDemandImports = new LinkedList<String>();
+
+        ImportTable( List<String> imports )
+        {
+            this.importCount = imports.size();
+            for ( String imprt : imports )
+            {
+                // static imports can refer to inner classes
+                if ( imprt.startsWith( "static " ) )
+                {
+                    imprt = imprt.substring( 7 );
+                }
+                this.imports.add( imprt );
+                int lastDot = imprt.lastIndexOf( '.' );
+                if ( "*".equals( imprt ) || imprt.endsWith( ".*" ) )
+                {
+                    onDemandImports.add( imprt.substring( 0, imprt.length() - 1 ) );
+                }
+                else if ( !singleTypeImports.containsKey( imprt.substring( lastDot + 1 ) ) )
+                {
+                    singleTypeImports.put( imprt.substring( lastDot + 1 ), imprt.substring( 0, lastDot + 1 ) );
+                }
+            }
+        }
+    }
 }
\ No newline at end of file
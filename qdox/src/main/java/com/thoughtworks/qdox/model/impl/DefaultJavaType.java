@@ -21,10 +21,13 @@ package com.thoughtworks.qdox.model.impl;
 
 import java.io.Serializable;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
+import com.thoughtworks.qdox.library.AbstractClassLibrary;
 import com.thoughtworks.qdox.library.ClassLibrary;
 import com.thoughtworks.qdox.model.BeanProperty;
 import com.thoughtworks.qdox.model.DocletTag;
@@ -45,10 +48,23 @@ public class DefaultJavaType implements JavaClass, JavaType, Serializable {
 
     public static final DefaultJavaType VOID = new DefaultJavaType("void");
 
+    // primitives have no source and no members, so every type can share them
+    private static final Map<String, JavaClass> PRIMITIVE_CLASSES = new HashMap<String, JavaClass>();
+    static
+    {
+        for ( String primitive : new String[] { "void", "boolean", "byte", "char", "short", "int", "long", "float",
+            "double" } )
+        {
+            PRIMITIVE_CLASSES.put( primitive, new DefaultJavaClass( primitive ) );
+        }
+    }
+
     protected final String name;
     private JavaClassParent context;
     protected String fullName;
     private int dimensions;
+
+    private transient volatile Resolution resolution;
     
     public DefaultJavaType( String name, JavaClassParent context )
     {
@@ -268,23 +284,39 @@ public class DefaultJavaType implements JavaClass, JavaType, Serializable {
         return getFullyQualifiedName().hashCode();
     }
     
-    private JavaClass resolveRealClass() 
+    /**
+     * The resolved class is kept until the modification count of the library changes, since only then a class by this
+     * name might have been added or removed.
+     * 
+     * @return the class this type refers to
+     */
+    JavaClass resolveRealClass()
     {
-        JavaClass result;
         String qualifiedName = isResolved() ? fullName : name;
-        if ( isPrimitive( qualifiedName ) )
+        JavaClass result = PRIMITIVE_CLASSES.get( qualifiedName );
+        if ( result != null )
         {
-            result = new DefaultJavaClass( qualifiedName );
+            return result;
         }
-        else
+        ClassLibrary classLibrary = getJavaClassLibrary();
+        // only the libraries of QDox count their modifications, the class is resolved every time by any other library
+        boolean countsModifications = classLibrary instanceof AbstractClassLibrary;
+        long modificationCount =
+            ( countsModifications ? ( (AbstractClassLibrary) classLibrary ).getModificationCount() : -1 );
+        Resolution current = resolution;
+        if ( countsModifications && current != null && current.modificationCount == modificationCount
+            && current.qualifiedName.equals( qualifiedName ) )
         {
-            result = getJavaClassParent().getNestedClassByName( qualifiedName );
-            if ( result == null )
-            {
-                result = getJavaClassLibrary().getJavaClass( qualifiedName, true );
-            }
+            return current.javaClass;
         }
 
+        result = getJavaClassParent().getNestedClassByName( qualifiedName );
+        if ( result == null )
+        {
+            result = classLibrary.getJavaClass( qualifiedName, true );
+        }
+        resolution = new Resolution( qualifiedName, modificationCount, result );
+
         return result;
     }
 
@@ -975,4 +1007,20 @@ public class DefaultJavaType implements JavaClass, JavaType, Serializable {
     public JavaClassParent getJavaClassParent() {
         return context;
     }
+
+    private static final class Resolution
+    {
+        private final String qualifiedName;
+
+        private final long modificationCount;
+
+        private final JavaClass javaClass;
+
+        Resolution( String qualifiedName, long modificationCount, JavaClass javaClass )
+        {
+            this.qualifiedName = qualifiedName;
+            this.modificationCount = modificationCount;
+            this.javaClass = javaClass;
+        }
+    }
 }
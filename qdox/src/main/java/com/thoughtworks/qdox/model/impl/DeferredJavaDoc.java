@@ -0,0 +1,47 @@
+package com.thoughtworks.qdox.model.impl;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.Serializable;
+import java.util.List;
+
+import com.thoughtworks.qdox.model.DocletTag;
+
+/**
+ * The javadoc of an entity which hasn't been parsed yet. It will be parsed once the comment or the tags of the entity
+ * are requested for the first time.
+ *
+ * @author Robert Scholte
+ * @since 2.0
+ */
+public interface DeferredJavaDoc
+    extends Serializable
+{
+    /**
+     * @return the comment of the javadoc, otherwise <code>null</code>
+     */
+    String getComment();
+
+    /**
+     * @param entity the entity owning the javadoc, used as context of the tags
+     * @return the tags of the javadoc, never <code>null</code>
+     */
+    List<DocletTag> getTags( AbstractBaseJavaEntity entity );
+}
@@ -0,0 +1,1104 @@
+package com.thoughtworks.qdox.parser.impl;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+import com.thoughtworks.qdox.builder.Builder;
+import com.thoughtworks.qdox.parser.expression.ConstantDef;
+import com.thoughtworks.qdox.parser.expression.ElemValueDef;
+import com.thoughtworks.qdox.parser.expression.ElemValueListDef;
+import com.thoughtworks.qdox.parser.expression.FieldRefDef;
+import com.thoughtworks.qdox.parser.expression.TypeRefDef;
+import com.thoughtworks.qdox.parser.structs.AnnoDef;
+import com.thoughtworks.qdox.parser.structs.ClassDef;
+import com.thoughtworks.qdox.parser.structs.FieldDef;
+import com.thoughtworks.qdox.parser.structs.MethodDef;
+import com.thoughtworks.qdox.parser.structs.PackageDef;
+import com.thoughtworks.qdox.parser.structs.TypeDef;
+import com.thoughtworks.qdox.parser.structs.TypeVariableDef;
+import com.thoughtworks.qdox.parser.structs.WildcardTypeDef;
+
+/**
+ * Reads the structure of a class from its class file, without loading the class. Contrary to the
+ * {@link BinaryClassParser} the dependencies of the class don't have to be available and nothing is added to the
+ * running JVM. Besides the access flags and descriptors the generic signatures, annotations, constant values and
+ * parameter names (if compiled with <code>-parameters</code>) are passed to the builder. Synthetic members are
+ * skipped, just like the parameters added by the compiler to the constructors of enums and inner classes.
+ * <p>
+ * Member classes are stored in their own class files, override {@link #readNestedClass(String)} to add them.
+ * </p>
+ *
+ * @author Robert Scholte
+ * @since 2.0
+ */
+public class ClassFileParser
+{
+    private static final int MAGIC = 0xCAFEBABE;
+
+    private static final int ACC_PUBLIC = 0x0001;
+
+    private static final int ACC_PRIVATE = 0x0002;
+
+    private static final int ACC_PROTECTED = 0x0004;
+
+    private static final int ACC_STATIC = 0x0008;
+
+    private static final int ACC_FINAL = 0x0010;
+
+    private static final int ACC_SYNCHRONIZED = 0x0020;
+
+    private static final int ACC_VOLATILE = 0x0040;
+
+    private static final int ACC_BRIDGE = 0x0040;
+
+    private static final int ACC_TRANSIENT = 0x0080;
+
+    private static final int ACC_VARARGS = 0x0080;
+
+    private static final int ACC_NATIVE = 0x0100;
+
+    private static final int ACC_INTERFACE = 0x0200;
+
+    private static final int ACC_ABSTRACT = 0x0400;
+
+    private static final int ACC_STRICT = 0x0800;
+
+    private static final int ACC_SYNTHETIC = 0x1000;
+
+    private static final int ACC_ANNOTATION = 0x2000;
+
+    private static final int ACC_ENUM = 0x4000;
+
+    private final byte[] classFile;
+
+    private final Builder binaryBuilder;
+
+    /**
+     * The parser which reads the class files of the member classes
+     */
+    private final ClassFileParser root;
+
+    /**
+     * The offset of every entry of the constant pool
+     */
+    private int[] constantPool;
+
+    private String[] utf8Cache;
+
+    private boolean structureRead;
+
+    /**
+     * The offset of the access flags, which follow the constant pool
+     */
+    private int classStart;
+
+    private int membersStart;
+
+    private int signatureIndex;
+
+    private int innerClassesOffset = -1;
+
+    private List<Integer> annotationOffsets = new LinkedList<Integer>();
+
+    /**
+     * @param classFile the content of the class file
+     * @param modelBuilder the builder to call
+     */
+    public ClassFileParser( byte[] classFile, Builder modelBuilder )
+    {
+        this( classFile, modelBuilder, null );
+    }
+
+    private ClassFileParser( byte[] classFile, Builder modelBuilder, ClassFileParser root )
+    {
+        this.classFile = classFile;
+        this.binaryBuilder = modelBuilder;
+        this.root = ( root != null ? root : this );
+    }
+
+    /**
+     * Calls the builder with the package and the class of the class file.
+     *
+     * @return <code>true</code> if the class has been added, <code>false</code> if this is no valid class file
+     */
+    public boolean parse()
+    {
+        try
+        {
+            readStructure();
+            String name = getClassName( u2( classStart + 2 ) );
+            int lastDot = name.lastIndexOf( '.' );
+            if ( lastDot > 0 )
+            {
+                binaryBuilder.addPackage( new PackageDef( name.substring( 0, lastDot ) ) );
+            }
+            int access = u2( classStart );
+            String simpleName = name.substring( lastDot + 1 );
+            int innerClass = findInnerClass( u2( classStart + 2 ) );
+            if ( innerClass >= 0 )
+            {
+                // a member class without its declaring class keeps its binary name
+                access = u2( innerClass + 6 );
+            }
+            addClass( simpleName, access );
+            return true;
+        }
+        catch ( IndexOutOfBoundsException e )
+        {
+            return false;
+        }
+        catch ( IllegalArgumentException e )
+        {
+            return false;
+        }
+    }
+
+    /**
+     * A member class can only be added as part of its declaring class, the caller should parse the class file of the
+     * declaring class instead.
+     *
+     * @return the binary name of the declaring class if this is a member class, otherwise <code>null</code>
+     */
+    public String getDeclaringClassName()
+    {
+        try
+        {
+            readStructure();
+            int innerClass = findInnerClass( u2( classStart + 2 ) );
+            return innerClass >= 0 && u2( innerClass + 2 ) != 0 ? getClassName( u2( innerClass + 2 ) ) : null;
+        }
+        catch ( IndexOutOfBoundsException e )
+        {
+            return null;
+        }
+        catch ( IllegalArgumentException e )
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Read the class file of a member class, by default member classes are skipped.
+     *
+     * @param name the binary name of the member class
+     * @return the content of the class file, <code>null</code> if it isn't available
+     */
+    protected byte[] readNestedClass( String name )
+    {
+        return null;
+    }
+
+    private void readStructure()
+    {
+        if ( structureRead )
+        {
+            return;
+        }
+        if ( u4( 0 ) != MAGIC )
+        {
+            throw new IllegalArgumentException( "Not a class file" );
+        }
+        int count = u2( 8 );
+        int[] offsets = new int[count];
+        int offset = 10;
+        for ( int i = 1; i < count; i++ )
+        {
+            offsets[i] = offset;
+            int tag = u1( offset );
+            switch ( tag )
+            {
+                case 1: // Utf8
+                    offset += 3 + u2( offset + 1 );
+                    break;
+                case 3: // Integer
+                case 4: // Float
+                case 9: // Fieldref
+                case 10: // Methodref
+                case 11: // InterfaceMethodref
+                case 12: // NameAndType
+                case 17: // Dynamic
+                case 18: // InvokeDynamic
+                    offset += 5;
+                    break;
+                case 5: // Long
+                case 6: // Double
+                    offset += 9;
+                    i++;
+                    break;
+                case 7: // Class
+                case 8: // String
+                case 16: // MethodType
+                case 19: // Module
+                case 20: // Package
+                    offset += 3;
+                    break;
+                case 15: // MethodHandle
+                    offset += 4;
+                    break;
+                default:
+                    throw new IllegalArgumentException( "Unknown constant pool tag " + tag );
+            }
+        }
+        constantPool = offsets;
+        utf8Cache = new String[count];
+        classStart = offset;
+
+        membersStart = classStart + 8 + 2 * u2( classStart + 6 );
+        offset = membersStart;
+        for ( int members = 0; members < 2; members++ )
+        {
+            int memberCount = u2( offset );
+            offset += 2;
+            for ( int i = 0; i < memberCount; i++ )
+            {
+                offset = skipAttributes( offset + 6 );
+            }
+        }
+        int attributeCount = u2( offset );
+        offset += 2;
+        for ( int i = 0; i < attributeCount; i++ )
+        {
+            String attributeName = getUtf8( u2( offset ) );
+            if ( "Signature".equals( attributeName ) )
+            {
+                signatureIndex = u2( offset + 6 );
+            }
+            else if ( "InnerClasses".equals( attributeName ) )
+            {
+                innerClassesOffset = offset + 6;
+            }
+            else if ( "RuntimeVisibleAnnotations".equals( attributeName )
+                || "RuntimeInvisibleAnnotations".equals( attributeName ) )
+            {
+                annotationOffsets.add( offset + 6 );
+            }
+            offset += 6 + u4( offset + 2 );
+        }
+        structureRead = true;
+    }
+
+    private int skipAttributes( int offset )
+    {
+        int attributeCount = u2( offset );
+        offset += 2;
+        for ( int i = 0; i < attributeCount; i++ )
+        {
+            offset += 6 + u4( offset + 2 );
+        }
+        return offset;
+    }
+
+    /**
+     * @param classIndex the index of the class in the constant pool
+     * @return the offset of the entry of the InnerClasses attribute for this class, otherwise <code>-1</code>
+     */
+    private int findInnerClass( int classIndex )
+    {
+        if ( innerClassesOffset >= 0 )
+        {
+            String className = getUtf8( u2( constantPool[classIndex] + 1 ) );
+            int count = u2( innerClassesOffset );
+            for ( int i = 0; i < count; i++ )
+            {
+                int entry = innerClassesOffset + 2 + i * 8;
+                int innerIndex = u2( entry );
+                if ( innerIndex == classIndex || className.equals( getUtf8( u2( constantPool[innerIndex] + 1 ) ) ) )
+                {
+                    return entry;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private void addClass( String simpleName, int access )
+    {
+        ClassDef classDef = new ClassDef( simpleName );
+        boolean isInterface = ( access & ACC_INTERFACE ) != 0;
+        if ( ( access & ACC_ANNOTATION ) != 0 )
+        {
+            classDef.setType( ClassDef.ANNOTATION_TYPE );
+        }
+        else if ( isInterface )
+        {
+            classDef.setType( ClassDef.INTERFACE );
+        }
+        else if ( ( access & ACC_ENUM ) != 0 )
+        {
+            classDef.setType( ClassDef.ENUM );
+        }
+        addModifiers( classDef.getModifiers(), access, ACC_PUBLIC | ACC_PROTECTED | ACC_PRIVATE | ACC_ABSTRACT
+            | ACC_STATIC | ACC_FINAL | ACC_STRICT );
+
+        Set<TypeDef> interfaces = isInterface ? classDef.getExtends() : classDef.getImplements();
+        if ( signatureIndex != 0 )
+        {
+            SignatureReader signature = new SignatureReader( getUtf8( signatureIndex ) );
+            classDef.setTypeParameters( signature.readTypeParameters() );
+            TypeDef superClass = signature.readType();
+            if ( !isInterface )
+            {
+                classDef.getExtends().add( superClass );
+            }
+            while ( signature.hasMore() )
+            {
+                interfaces.add( signature.readType() );
+            }
+        }
+        else
+        {
+            int superIndex = u2( classStart + 4 );
+            if ( superIndex != 0 && !isInterface )
+            {
+                classDef.getExtends().add( new TypeDef( getClassName( superIndex ) ) );
+            }
+            int interfaceCount = u2( classStart + 6 );
+            for ( int i = 0; i < interfaceCount; i++ )
+            {
+                interfaces.add( new TypeDef( getClassName( u2( classStart + 8 + 2 * i ) ) ) );
+            }
+        }
+
+        addAnnotations( annotationOffsets );
+        binaryBuilder.beginClass( classDef );
+
+        boolean isEnum = ClassDef.ENUM.equals( classDef.getType() );
+        int outerIndex = -1;
+        int innerClass = findInnerClass( u2( classStart + 2 ) );
+        if ( innerClass >= 0 && ( access & ( ACC_STATIC | ACC_INTERFACE ) ) == 0 && !isEnum )
+        {
+            outerIndex = u2( innerClass + 2 );
+        }
+
+        int offset = membersStart;
+        int fieldCount = u2( offset );
+        offset += 2;
+        for ( int i = 0; i < fieldCount; i++ )
+        {
+            offset = addField( offset );
+        }
+        int methodCount = u2( offset );
+        offset += 2;
+        for ( int i = 0; i < methodCount; i++ )
+        {
+            offset = addMethod( offset, simpleName, isInterface, isEnum, outerIndex );
+        }
+
+        addNestedClasses();
+
+        binaryBuilder.endClass();
+    }
+
+    private void addNestedClasses()
+    {
+        if ( innerClassesOffset < 0 )
+        {
+            return;
+        }
+        int thisClass = u2( classStart + 2 );
+        int count = u2( innerClassesOffset );
+        for ( int i = 0; i < count; i++ )
+        {
+            int entry = innerClassesOffset + 2 + i * 8;
+            int innerNameIndex = u2( entry + 4 );
+            // only member classes, local and anonymous classes have no outer class or no name
+            if ( u2( entry + 2 ) == thisClass && innerNameIndex != 0 && ( u2( entry + 6 ) & ACC_SYNTHETIC ) == 0 )
+            {
+                byte[] nestedClassFile = root.readNestedClass( getClassName( u2( entry ) ) );
+                if ( nestedClassFile != null )
+                {
+                    ClassFileParser nestedParser = new ClassFileParser( nestedClassFile, binaryBuilder, root );
+                    nestedParser.readStructure();
+                    nestedParser.addClass( getUtf8( innerNameIndex ), u2( entry + 6 ) );
+                }
+            }
+        }
+    }
+
+    private int addField( int offset )
+    {
+        int access = u2( offset );
+        String name = getUtf8( u2( offset + 2 ) );
+        String descriptor = getUtf8( u2( offset + 4 ) );
+        String signature = null;
+        int constantValueIndex = 0;
+        List<Integer> annotations = new LinkedList<Integer>();
+        int attributeCount = u2( offset + 6 );
+        offset += 8;
+        for ( int i = 0; i < attributeCount; i++ )
+        {
+            String attributeName = getUtf8( u2( offset ) );
+            if ( "Signature".equals( attributeName ) )
+            {
+                signature = getUtf8( u2( offset + 6 ) );
+            }
+            else if ( "ConstantValue".equals( attributeName ) )
+            {
+                constantValueIndex = u2( offset + 6 );
+            }
+            else if ( "RuntimeVisibleAnnotations".equals( attributeName )
+                || "RuntimeInvisibleAnnotations".equals( attributeName ) )
+            {
+                annotations.add( offset + 6 );
+            }
+            offset += 6 + u4( offset + 2 );
+        }
+        if ( ( access & ACC_SYNTHETIC ) != 0 )
+        {
+            return offset;
+        }
+
+        FieldDef fieldDef = new FieldDef( name );
+        fieldDef.setType( new SignatureReader( signature != null ? signature : descriptor ).readType() );
+        fieldDef.setEnumConstant( ( access & ACC_ENUM ) != 0 );
+        addModifiers( fieldDef.getModifiers(), access, ACC_PUBLIC | ACC_PROTECTED | ACC_PRIVATE | ACC_STATIC
+            | ACC_FINAL | ACC_TRANSIENT | ACC_VOLATILE );
+        if ( constantValueIndex != 0 )
+        {
+            fieldDef.setBody( getConstant( constantValueIndex, descriptor.charAt( 0 ) ).getValue() );
+        }
+        addAnnotations( annotations );
+        binaryBuilder.beginField( fieldDef );
+        binaryBuilder.endField();
+        return offset;
+    }
+
+    private int addMethod( int offset, String className, boolean isInterface, boolean isEnum, int outerIndex )
+    {
+        int access = u2( offset );
+        String name = getUtf8( u2( offset + 2 ) );
+        String descriptor = getUtf8( u2( offset + 4 ) );
+        String signature = null;
+        int exceptionsOffset = -1;
+        int methodParametersOffset = -1;
+        List<Integer> annotations = new LinkedList<Integer>();
+        List<Integer> parameterAnnotations = new LinkedList<Integer>();
+        int attributeCount = u2( offset + 6 );
+        offset += 8;
+        for ( int i = 0; i < attributeCount; i++ )
+        {
+            String attributeName = getUtf8( u2( offset ) );
+            if ( "Signature".equals( attributeName ) )
+            {
+                signature = getUtf8( u2( offset + 6 ) );
+            }
+            else if ( "Exceptions".equals( attributeName ) )
+            {
+                exceptionsOffset = offset + 6;
+            }
+            else if ( "MethodParameters".equals( attributeName ) )
+            {
+                methodParametersOffset = offset + 6;
+            }
+            else if ( "RuntimeVisibleAnnotations".equals( attributeName )
+                || "RuntimeInvisibleAnnotations".equals( attributeName ) )
+            {
+                annotations.add( offset + 6 );
+            }
+            else if ( "RuntimeVisibleParameterAnnotations".equals( attributeName )
+                || "RuntimeInvisibleParameterAnnotations".equals( attributeName ) )
+            {
+                parameterAnnotations.add( offset + 6 );
+            }
+            offset += 6 + u4( offset + 2 );
+        }
+        boolean isConstructor = "<init>".equals( name );
+        if ( ( access & ( ACC_SYNTHETIC | ACC_BRIDGE ) ) != 0 || "<clinit>".equals( name ) )
+        {
+            return offset;
+        }
+
+        MethodDef methodDef = new MethodDef();
+        methodDef.setName( isConstructor ? className : name );
+        methodDef.setConstructor( isConstructor );
+        addModifiers( methodDef.getModifiers(), access, ACC_PUBLIC | ACC_PROTECTED | ACC_PRIVATE | ACC_ABSTRACT
+            | ACC_STATIC | ACC_FINAL | ACC_SYNCHRONIZED | ACC_NATIVE | ACC_STRICT );
+        if ( isInterface && ( access & ( ACC_ABSTRACT | ACC_STATIC | ACC_PRIVATE ) ) == 0 )
+        {
+            methodDef.getModifiers().add( "default" );
+        }
+
+        SignatureReader descriptorReader = new SignatureReader( descriptor );
+        List<TypeDef> parameterTypes = descriptorReader.readParameterTypes();
+        TypeDef returnType = descriptorReader.readType();
+
+        // the compiler adds the name and ordinal to constructors of enums and the outer instance to inner classes
+        int skipped = 0;
+        if ( isConstructor && isEnum && parameterTypes.size() >= 2
+            && "java.lang.String".equals( parameterTypes.get( 0 ).getName() )
+            && "int".equals( parameterTypes.get( 1 ).getName() ) )
+        {
+            skipped = 2;
+        }
+        else if ( isConstructor && outerIndex > 0 && !parameterTypes.isEmpty()
+            && getClassName( outerIndex ).equals( parameterTypes.get( 0 ).getName() ) )
+        {
+            skipped = 1;
+        }
+        int parameterCount = parameterTypes.size() - skipped;
+
+        List<TypeDef> genericParameterTypes = null;
+        if ( signature != null )
+        {
+            SignatureReader signatureReader = new SignatureReader( signature );
+            methodDef.setTypeParams( signatureReader.readTypeParameters() );
+            genericParameterTypes = signatureReader.readParameterTypes();
+            returnType = signatureReader.readType();
+            while ( signatureReader.hasMore() )
+            {
+                methodDef.getExceptions().add( signatureReader.readType() );
+            }
+            if ( genericParameterTypes.size() == parameterTypes.size() )
+            {
+                genericParameterTypes = genericParameterTypes.subList( skipped, genericParameterTypes.size() );
+            }
+            else if ( genericParameterTypes.size() != parameterCount )
+            {
+                genericParameterTypes = null;
+            }
+        }
+        if ( methodDef.getExceptions().isEmpty() && exceptionsOffset >= 0 )
+        {
+            int exceptionCount = u2( exceptionsOffset );
+            for ( int i = 0; i < exceptionCount; i++ )
+            {
+                methodDef.getExceptions().add( new TypeDef( getClassName( u2( exceptionsOffset + 2 + 2 * i ) ) ) );
+            }
+        }
+        if ( !isConstructor )
+        {
+            methodDef.setReturnType( returnType );
+        }
+
+        addAnnotations( annotations );
+        if ( isConstructor )
+        {
+            binaryBuilder.beginConstructor();
+        }
+        else
+        {
+            binaryBuilder.beginMethod();
+        }
+
+        for ( int i = 0; i < parameterCount; i++ )
+        {
+            int index = skipped + i;
+            String parameterName = "p" + i;
+            if ( methodParametersOffset >= 0 && index < u1( methodParametersOffset ) )
+            {
+                int nameIndex = u2( methodParametersOffset + 1 + 4 * index );
+                if ( nameIndex != 0 )
+                {
+                    parameterName = getUtf8( nameIndex );
+                }
+            }
+            for ( Integer annotationsOffset : parameterAnnotations )
+            {
+                addParameterAnnotations( annotationsOffset, i, parameterCount );
+            }
+            TypeDef type = ( genericParameterTypes != null ? genericParameterTypes : parameterTypes ).get( i
+                + ( genericParameterTypes != null ? 0 : skipped ) );
+            FieldDef param = new FieldDef( parameterName );
+            boolean varArgs = ( access & ACC_VARARGS ) != 0 && i == parameterCount - 1 && type.getDimensions() > 0;
+            if ( varArgs )
+            {
+                type.setDimensions( type.getDimensions() - 1 );
+            }
+            param.setType( type );
+            param.setVarArgs( varArgs );
+            binaryBuilder.addParameter( param );
+        }
+
+        if ( isConstructor )
+        {
+            binaryBuilder.endConstructor( methodDef );
+        }
+        else
+        {
+            binaryBuilder.endMethod( methodDef );
+        }
+        return offset;
+    }
+
+    /**
+     * The compiler might leave out the synthetic parameters, so the annotations are aligned with the last parameter.
+     */
+    private void addParameterAnnotations( int offset, int parameter, int parameterCount )
+    {
+        int annotatedCount = u1( offset );
+        int index = parameter - ( parameterCount - annotatedCount );
+        if ( index < 0 )
+        {
+            return;
+        }
+        int[] position = { offset + 1 };
+        for ( int i = 0; i < index; i++ )
+        {
+            int count = u2( position[0] );
+            position[0] += 2;
+            for ( int a = 0; a < count; a++ )
+            {
+                readAnnotation( position );
+            }
+        }
+        int count = u2( position[0] );
+        position[0] += 2;
+        for ( int a = 0; a < count; a++ )
+        {
+            binaryBuilder.addAnnotation( readAnnotation( position ) );
+        }
+    }
+
+    private void addAnnotations( List<Integer> offsets )
+    {
+        for ( Integer offset : offsets )
+        {
+            int count = u2( offset );
+            int[] position = { offset + 2 };
+            for ( int i = 0; i < count; i++ )
+            {
+                binaryBuilder.addAnnotation( readAnnotation( position ) );
+            }
+        }
+    }
+
+    private AnnoDef readAnnotation( int[] position )
+    {
+        AnnoDef result = new AnnoDef( new SignatureReader( getUtf8( u2( position[0] ) ) ).readType() );
+        int pairCount = u2( position[0] + 2 );
+        position[0] += 4;
+        for ( int i = 0; i < pairCount; i++ )
+        {
+            String name = getUtf8( u2( position[0] ) );
+            position[0] += 2;
+            result.getArgs().put( name, readElementValue( position ) );
+        }
+        return result;
+    }
+
+    private ElemValueDef readElementValue( int[] position )
+    {
+        char tag = (char) u1( position[0] );
+        position[0]++;
+        if ( tag == '@' )
+        {
+            return readAnnotation( position );
+        }
+        int index = u2( position[0] );
+        position[0] += 2;
+        switch ( tag )
+        {
+            case 'e':
+                String typeName = new SignatureReader( getUtf8( index ) ).readType().getName();
+                String constantName = getUtf8( u2( position[0] ) );
+                position[0] += 2;
+                return new FieldRefDef( typeName + '.' + constantName );
+            case 'c':
+                return new TypeRefDef( new SignatureReader( getUtf8( index ) ).readType() );
+            case '[':
+                List<ElemValueDef> values = new ArrayList<ElemValueDef>( index );
+                for ( int i = 0; i < index; i++ )
+                {
+                    values.add( readElementValue( position ) );
+                }
+                return new ElemValueListDef( values );
+            default:
+                return getConstant( index, tag );
+        }
+    }
+
+    /**
+     * @param index the index of the constant in the constant pool
+     * @param type the descriptor of the type of the constant or the tag of the element value
+     * @return the constant as a literal of the source
+     */
+    private ConstantDef getConstant( int index, char type )
+    {
+        int offset = constantPool[index];
+        switch ( type )
+        {
+            case 'Z':
+                return new ConstantDef( String.valueOf( u4( offset + 1 ) != 0 ), Boolean.class );
+            case 'C':
+                return new ConstantDef( toLiteral( String.valueOf( (char) u4( offset + 1 ) ), '\'' ), Character.class );
+            case 'B':
+            case 'S':
+            case 'I':
+                return new ConstantDef( String.valueOf( u4( offset + 1 ) ), Integer.class );
+            case 'J':
+                return new ConstantDef( String.valueOf( u8( offset + 1 ) ) + 'L', Integer.class );
+            case 'F':
+                return new ConstantDef( String.valueOf( Float.intBitsToFloat( u4( offset + 1 ) ) ) + 'f', Float.class );
+            case 'D':
+                return new ConstantDef( String.valueOf( Double.longBitsToDouble( u8( offset + 1 ) ) ) + 'd',
+                                        Float.class );
+            default:
+                // a String constant refers to its Utf8 entry, an element value refers to the Utf8 entry directly
+                int utf8Index = u1( offset ) == 8 ? u2( offset + 1 ) : index;
+                return new ConstantDef( toLiteral( getUtf8( utf8Index ), '"' ), String.class );
+        }
+    }
+
+    private static String toLiteral( String value, char quote )
+    {
+        StringBuilder result = new StringBuilder( value.length() + 2 );
+        result.append( quote );
+        for ( int i = 0; i < value.length(); i++ )
+        {
+            char c = value.charAt( i );
+            switch ( c )
+            {
+                case '\b':
+                    result.append( "\\b" );
+                    break;
+                case '\t':
+                    result.append( "\\t" );
+                    break;
+                case '\n':
+                    result.append( "\\n" );
+                    break;
+                case '\f':
+                    result.append( "\\f" );
+                    break;
+                case '\r':
+                    result.append( "\\r" );
+                    break;
+                case '\\':
+                    result.append( "\\\\" );
+                    break;
+                case '"':
+                case '\'':
+                    if ( c == quote )
+                    {
+                        result.append( '\\' );
+                    }
+                    result.append( c );
+                    break;
+                default:
+                    if ( c < 0x20 || c == 0x7F )
+                    {
+                        String hex = Integer.toHexString( c );
+                        result.append( "\\u" ).append( "0000".substring( hex.length() ) ).append( hex );
+                    }
+                    else
+                    {
+                        result.append( c );
+                    }
+            }
+        }
+        result.append( quote );
+        return result.toString();
+    }
+
+    private static void addModifiers( Set<String> modifiers, int access, int supported )
+    {
+        access &= supported;
+        // the order of java.lang.reflect.Modifier.toString()
+        if ( ( access & ACC_PUBLIC ) != 0 )
+        {
+            modifiers.add( "public" );
+        }
+        if ( ( access & ACC_PROTECTED ) != 0 )
+        {
+            modifiers.add( "protected" );
+        }
+        if ( ( access & ACC_PRIVATE ) != 0 )
+        {
+            modifiers.add( "private" );
+        }
+        if ( ( access & ACC_ABSTRACT ) != 0 )
+        {
+            modifiers.add( "abstract" );
+        }
+        if ( ( access & ACC_STATIC ) != 0 )
+        {
+            modifiers.add( "static" );
+        }
+        if ( ( access & ACC_FINAL ) != 0 )
+        {
+            modifiers.add( "final" );
+        }
+        if ( ( access & ACC_TRANSIENT ) != 0 )
+        {
+            modifiers.add( "transient" );
+        }
+        if ( ( access & ACC_VOLATILE ) != 0 )
+        {
+            modifiers.add( "volatile" );
+        }
+        if ( ( access & ACC_SYNCHRONIZED ) != 0 )
+        {
+            modifiers.add( "synchronized" );
+        }
+        if ( ( access & ACC_NATIVE ) != 0 )
+        {
+            modifiers.add( "native" );
+        }
+        if ( ( access & ACC_STRICT ) != 0 )
+        {
+            modifiers.add( "strictfp" );
+        }
+    }
+
+    private String getClassName( int classIndex )
+    {
+        return getUtf8( u2( constantPool[classIndex] + 1 ) ).replace( '/', '.' );
+    }
+
+    /**
+     * Decodes the modified UTF-8 of the entry, see {@link java.io.DataInput#readUTF()}.
+     */
+    private String getUtf8( int index )
+    {
+        String result = utf8Cache[index];
+        if ( result == null )
+        {
+            int offset = constantPool[index];
+            if ( u1( offset ) != 1 )
+            {
+                throw new IllegalArgumentException( "No Utf8 entry at " + index );
+            }
+            int length = u2( offset + 1 );
+            char[] chars = new char[length];
+            int count = 0;
+            int end = offset + 3 + length;
+            for ( int position = offset + 3; position < end; )
+            {
+                int c = u1( position++ );
+                if ( c < 0x80 )
+                {
+                    chars[count++] = (char) c;
+                }
+                else if ( ( c & 0xE0 ) == 0xC0 )
+                {
+                    chars[count++] = (char) ( ( ( c & 0x1F ) << 6 ) | ( u1( position++ ) & 0x3F ) );
+                }
+                else
+                {
+                    int c2 = u1( position++ );
+                    int c3 = u1( position++ );
+                    chars[count++] = (char) ( ( ( c & 0x0F ) << 12 ) | ( ( c2 & 0x3F ) << 6 ) | ( c3 & 0x3F ) );
+                }
+            }
+            result = new String( chars, 0, count );
+            utf8Cache[index] = result;
+        }
+        return result;
+    }
+
+    private int u1( int offset )
+    {
+        return classFile[offset] & 0xFF;
+    }
+
+    private int u2( int offset )
+    {
+        return ( ( classFile[offset] & 0xFF ) << 8 ) | ( classFile[offset + 1] & 0xFF );
+    }
+
+    private int u4( int offset )
+    {
+        return ( u2( offset ) << 16 ) | u2( offset + 2 );
+    }
+
+    private long u8( int offset )
+    {
+        return ( (long) u4( offset ) << 32 ) | ( u4( offset + 4 ) & 0xFFFFFFFFL );
+    }
+
+    /**
+     * Reads descriptors and generic signatures, see the Java Virtual Machine Specification 4.3 and 4.7.9.1
+     */
+    private static class SignatureReader
+    {
+        private final String signature;
+
+        private int position;
+
+        SignatureReader( String signature )
+        {
+            this.signature = signature;
+        }
+
+        boolean hasMore()
+        {
+            return position < signature.length();
+        }
+
+        /**
+         * @return the type parameters, <code>null</code> if there are none
+         */
+        List<TypeVariableDef> readTypeParameters()
+        {
+            if ( signature.charAt( position ) != '<' )
+            {
+                return null;
+            }
+            position++;
+            List<TypeVariableDef> result = new LinkedList<TypeVariableDef>();
+            while ( signature.charAt( position ) != '>' )
+            {
+                int colon = signature.indexOf( ':', position );
+                String name = signature.substring( position, colon );
+                position = colon;
+                List<TypeDef> bounds = new LinkedList<TypeDef>();
+                while ( signature.charAt( position ) == ':' )
+                {
+                    position++;
+                    // the class bound is empty if there are only interface bounds
+                    if ( signature.charAt( position ) != ':' )
+                    {
+                        bounds.add( readType() );
+                    }
+                }
+                // an unbound type parameter is declared without bounds in the source
+                if ( bounds.size() == 1 && "java.lang.Object".equals( bounds.get( 0 ).getName() )
+                    && bounds.get( 0 ).getActualArgumentTypes() == null && bounds.get( 0 ).getDimensions() == 0 )
+                {
+                    bounds.clear();
+                }
+                result.add( new TypeVariableDef( name, bounds.isEmpty() ? null : bounds ) );
+            }
+            position++;
+            return result;
+        }
+
+        List<TypeDef> readParameterTypes()
+        {
+            List<TypeDef> result = new ArrayList<TypeDef>();
+            position++; // '('
+            while ( signature.charAt( position ) != ')' )
+            {
+                result.add( readType() );
+            }
+            position++;
+            return result;
+        }
+
+        /**
+         * Reads a type, including the prefix of throws clauses of method signatures.
+         */
+        TypeDef readType()
+        {
+            int dimensions = 0;
+            char c = signature.charAt( position++ );
+            if ( c == '^' )
+            {
+                c = signature.charAt( position++ );
+            }
+            while ( c == '[' )
+            {
+                dimensions++;
+                c = signature.charAt( position++ );
+            }
+            switch ( c )
+            {
+                case 'L':
+                    return readClassType( dimensions );
+                case 'T':
+                    int end = signature.indexOf( ';', position );
+                    TypeDef typeVariable = new TypeDef( signature.substring( position, end ), dimensions );
+                    position = end + 1;
+                    return typeVariable;
+                case 'B':
+                    return new TypeDef( "byte", dimensions );
+                case 'C':
+                    return new TypeDef( "char", dimensions );
+                case 'D':
+                    return new TypeDef( "double", dimensions );
+                case 'F':
+                    return new TypeDef( "float", dimensions );
+                case 'I':
+                    return new TypeDef( "int", dimensions );
+                case 'J':
+                    return new TypeDef( "long", dimensions );
+                case 'S':
+                    return new TypeDef( "short", dimensions );
+                case 'Z':
+                    return new TypeDef( "boolean", dimensions );
+                case 'V':
+                    return new TypeDef( "void", dimensions );
+                default:
+                    throw new IllegalArgumentException( "Invalid signature " + signature );
+            }
+        }
+
+        private TypeDef readClassType( int dimensions )
+        {
+            StringBuilder name = new StringBuilder();
+            List<TypeDef> arguments = null;
+            while ( true )
+            {
+                char c = signature.charAt( position++ );
+                if ( c == ';' )
+                {
+                    break;
+                }
+                else if ( c == '<' )
+                {
+                    arguments = new LinkedList<TypeDef>();
+                    while ( signature.charAt( position ) != '>' )
+                    {
+                        arguments.add( readTypeArgument() );
+                    }
+                    position++;
+                }
+                else if ( c == '.' )
+                {
+                    // a member class of a parameterized class, only the arguments of the member class are kept
+                    name.append( '$' );
+                    arguments = null;
+                }
+                else
+                {
+                    name.append( c == '/' ? '.' : c );
+                }
+            }
+            TypeDef result = new TypeDef( name.toString(), dimensions );
+            result.setActualArgumentTypes( arguments );
+            return result;
+        }
+
+        private TypeDef readTypeArgument()
+        {
+            char c = signature.charAt( position );
+            if ( c == '*' )
+            {
+                position++;
+                return new WildcardTypeDef();
+            }
+            else if ( c == '+' )
+            {
+                position++;
+                return new WildcardTypeDef( readType(), "extends" );
+            }
+            else if ( c == '-' )
+            {
+                position++;
+                return new WildcardTypeDef( readType(), "super" );
+            }
+            return readType();
+        }
+    }
+}
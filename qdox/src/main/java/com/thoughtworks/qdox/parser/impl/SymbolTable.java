@@ -0,0 +1,165 @@
+package com.thoughtworks.qdox.parser.impl;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * Canonical Strings for identifiers, so the same name is only kept once no matter how often it is used in the parsed
+ * sources. The characters are hashed and compared straight out of the buffer of the lexer, a String is only created
+ * the first time a name is seen. Multiple threads can use the same table.
+ *
+ * @author Robert Scholte
+ * @since 2.0
+ */
+public class SymbolTable
+{
+    // must match the shift used to select the segment
+    private static final int SEGMENT_COUNT = 16;
+
+    private static final int INITIAL_SEGMENT_CAPACITY = 256;
+
+    private final Segment[] segments = new Segment[SEGMENT_COUNT];
+
+    public SymbolTable()
+    {
+        for ( int i = 0; i < segments.length; i++ )
+        {
+            segments[i] = new Segment();
+        }
+    }
+
+    /**
+     * @param buffer the buffer holding the characters
+     * @param offset the offset of the first character
+     * @param length the number of characters
+     * @return the canonical String for these characters, never <code>null</code>
+     */
+    public String intern( char[] buffer, int offset, int length )
+    {
+        int hash = 0;
+        for ( int i = offset; i < offset + length; i++ )
+        {
+            hash = 31 * hash + buffer[i];
+        }
+        // the segment is chosen by the high bits of the mixed hash, the bucket within the segment by the low bits
+        int segment = ( hash * 0x9E3779B9 ) >>> 28;
+        return segments[segment].intern( buffer, offset, length, hash );
+    }
+
+    /**
+     * @param value the characters
+     * @return the canonical String for the characters, <code>null</code> if value is <code>null</code>
+     */
+    public String intern( String value )
+    {
+        if ( value == null )
+        {
+            return null;
+        }
+        return intern( value.toCharArray(), 0, value.length() );
+    }
+
+    /**
+     * @return the number of distinct symbols
+     */
+    public int size()
+    {
+        int result = 0;
+        for ( Segment segment : segments )
+        {
+            synchronized ( segment )
+            {
+                result += segment.size;
+            }
+        }
+        return result;
+    }
+
+    private static final class Entry
+    {
+        private final String symbol;
+
+        private final int hash;
+
+        private final Entry next;
+
+        Entry( String symbol, int hash, Entry next )
+        {
+            this.symbol = symbol;
+            this.hash = hash;
+            this.next = next;
+        }
+
+        boolean matches( char[] buffer, int offset, int length, int hash )
+        {
+            if ( this.hash != hash || symbol.length() != length )
+            {
+                return false;
+            }
+            for ( int i = 0; i < length; i++ )
+            {
+                if ( symbol.charAt( i ) != buffer[offset + i] )
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class Segment
+    {
+        private Entry[] buckets = new Entry[INITIAL_SEGMENT_CAPACITY];
+
+        private int size;
+
+        synchronized String intern( char[] buffer, int offset, int length, int hash )
+        {
+            int index = hash & ( buckets.length - 1 );
+            for ( Entry entry = buckets[index]; entry != null; entry = entry.next )
+            {
+                if ( entry.matches( buffer, offset, length, hash ) )
+                {
+                    return entry.symbol;
+                }
+            }
+            String symbol = new String( buffer, offset, length );
+            buckets[index] = new Entry( symbol, hash, buckets[index] );
+            if ( ++size > buckets.length * 3 / 4 )
+            {
+                rehash();
+            }
+            return symbol;
+        }
+
+        private void rehash()
+        {
+            Entry[] newBuckets = new Entry[buckets.length * 2];
+            for ( Entry bucket : buckets )
+            {
+                for ( Entry entry = bucket; entry != null; entry = entry.next )
+                {
+                    int index = entry.hash & ( newBuckets.length - 1 );
+                    newBuckets[index] = new Entry( entry.symbol, entry.hash, newBuckets[index] );
+                }
+            }
+            buckets = newBuckets;
+        }
+    }
+}
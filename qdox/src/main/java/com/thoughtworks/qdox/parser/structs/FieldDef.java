@@ -43,6 +43,10 @@ public class FieldDef
 
     private String body;
 
+    private int bodyStart = -1;
+
+    private int bodyEnd = -1;
+
     public FieldDef()
     {
     }
@@ -132,6 +136,34 @@ public class FieldDef
         return body;
     }
 
+    /**
+     * Set the offsets of the body within the source, used when the body itself isn't collected.
+     * 
+     * @param bodyStart the offset of the first character of the body
+     * @param bodyEnd the offset after the last character of the body
+     */
+    public void setBodyRange( int bodyStart, int bodyEnd )
+    {
+        this.bodyStart = bodyStart;
+        this.bodyEnd = bodyEnd;
+    }
+
+    /**
+     * @return the offset of the first character of the body, otherwise <code>-1</code>
+     */
+    public int getBodyStart()
+    {
+        return bodyStart;
+    }
+
+    /**
+     * @return the offset after the last character of the body, otherwise <code>-1</code>
+     */
+    public int getBodyEnd()
+    {
+        return bodyEnd;
+    }
+
     /**
      * @param modifiers the modifiers to set
      */
@@ -30,6 +30,10 @@ public class InitDef extends LocatedDef
     private boolean staticInitializer;
     
     private String blockContent;
+
+    private int blockStart = -1;
+
+    private int blockEnd = -1;
     
     public InitDef()
     {
@@ -60,4 +64,20 @@ public class InitDef extends LocatedDef
     {
         this.blockContent = block;
     }
+
+    public void setBlockRange( int blockStart, int blockEnd )
+    {
+        this.blockStart = blockStart;
+        this.blockEnd = blockEnd;
+    }
+
+    public int getBlockStart()
+    {
+        return blockStart;
+    }
+
+    public int getBlockEnd()
+    {
+        return blockEnd;
+    }
 }
@@ -33,6 +33,8 @@ public class MethodDef extends LocatedDef {
     private boolean constructor = false;
     private int dimensions;
     private String body;
+    private int bodyStart = -1;
+    private int bodyEnd = -1;
     
     @Override
     public String toString()
@@ -96,6 +98,19 @@ public class MethodDef extends LocatedDef {
 		return body;
 	}
 
+	public void setBodyRange(int bodyStart, int bodyEnd) {
+		this.bodyStart = bodyStart;
+		this.bodyEnd = bodyEnd;
+	}
+
+	public int getBodyStart() {
+		return bodyStart;
+	}
+
+	public int getBodyEnd() {
+		return bodyEnd;
+	}
+
 	public void setDimensions(int dimensions) {
 		this.dimensions = dimensions;
 	}
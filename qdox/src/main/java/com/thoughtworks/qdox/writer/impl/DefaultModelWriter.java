@@ -196,7 +196,10 @@ public class DefaultModelWriter
         buffer.newline();
         buffer.indent();
 
-        buffer.write( init.getBlockContent() );
+        if ( init.getBlockContent() != null )
+        {
+            buffer.write( init.getBlockContent() );
+        }
         
         buffer.deindent();
         buffer.newline();
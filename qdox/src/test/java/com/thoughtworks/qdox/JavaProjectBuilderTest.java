@@ -7,11 +7,14 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.NotSerializableException;
+import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.StringReader;
+import java.io.Writer;
 import java.lang.reflect.Method;
 import java.lang.reflect.TypeVariable;
 import java.net.URL;
@@ -24,9 +27,12 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import junit.framework.TestCase;
 
+import com.thoughtworks.qdox.library.AbstractClassLibraryBuilder;
 import com.thoughtworks.qdox.library.ClassLibraryBuilder;
 import com.thoughtworks.qdox.library.ErrorHandler;
 import com.thoughtworks.qdox.library.OrderedClassLibraryBuilder;
@@ -44,6 +50,10 @@ import com.thoughtworks.qdox.model.JavaParameterizedType;
 import com.thoughtworks.qdox.model.JavaSource;
 import com.thoughtworks.qdox.model.JavaType;
 import com.thoughtworks.qdox.model.JavaTypeVariable;
+import com.thoughtworks.qdox.model.impl.DefaultJavaClass;
+import com.thoughtworks.qdox.model.impl.DefaultJavaMethod;
+import com.thoughtworks.qdox.model.impl.DefaultJavaParameter;
+import com.thoughtworks.qdox.model.impl.DefaultJavaType;
 import com.thoughtworks.qdox.model.util.SerializationUtils;
 import com.thoughtworks.qdox.parser.ParseException;
 import com.thoughtworks.qdox.testdata.PropertyClass;
@@ -180,6 +190,94 @@ public class JavaProjectBuilderTest extends TestCase
         assertNotNull(builder.getClassByName("com.blah.subpackage.Cheese"));
     }
 
+    public void testParallelSourceTree() throws Exception {
+        File packageInfo = new File("target/test-source/com/blah/package-info.java");
+        FileWriter writer = new FileWriter(packageInfo);
+        writer.write("/** The blah package */\npackage com.blah;\n");
+        writer.close();
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            builder.addSourceTree(new File("target/test-source"), executor);
+        }
+        finally {
+            executor.shutdown();
+        }
+
+        List<String> classNames = new ArrayList<String>();
+        for (JavaClass cls : builder.getClasses()) {
+            classNames.add(cls.getFullyQualifiedName());
+        }
+        assertEquals(Arrays.asList("com.blah.Another", "com.blah.Thing", "com.blah.subpackage.Cheese"), classNames);
+        assertEquals("The blah package", builder.getPackageByName("com.blah").getComment());
+    }
+
+    public void testParallelSourceTreeThrowsParseException() throws Exception {
+        createFile("target/test-source/com/blah/Bad.java", "com.blah", "@%! BAD {}}}}");
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            builder.addSourceTree(new File("target/test-source"), executor);
+            fail("Expected exception");
+        } catch (ParseException expectedException) {
+            // Good!
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    public void testVisitSourceTree() throws Exception {
+        final List<String> classNames = new ArrayList<String>();
+        builder.visitSourceTree(new File("target/test-source"), new JavaSourceVisitor() {
+            public void visitSource(JavaSource source) {
+                JavaClass cls = source.getClasses().get(0);
+                classNames.add(cls.getFullyQualifiedName());
+                // still resolved by the library chain
+                assertEquals("java.lang.Object", cls.getSuperClass().getFullyQualifiedName());
+            }
+        });
+        Collections.sort(classNames);
+
+        assertEquals(Arrays.asList("com.blah.Another", "com.blah.Thing", "com.blah.subpackage.Cheese"), classNames);
+        assertEquals(0, builder.getSources().size());
+        assertEquals(0, builder.getClasses().size());
+    }
+
+    public void testUpdateSource() throws Exception {
+        builder.addSourceTree(new File("target/test-source"));
+        assertNotNull(builder.getClassByName("com.blah.Thing"));
+
+        File file = new File("target/test-source/com/blah/Thing.java");
+        Writer writer = new FileWriter(file);
+        writer.write("package com.blah;\npublic class Thing { public void changed() {} }\n");
+        writer.close();
+
+        JavaSource source = builder.updateSource(file);
+
+        assertEquals(3, builder.getSources().size());
+        assertTrue(builder.getSources().contains(source));
+        JavaClass thing = builder.getClassByName("com.blah.Thing");
+        assertSame(source.getClasses().get(0), thing);
+        assertNotNull(thing.getMethodBySignature("changed", null));
+        assertEquals(2, builder.getPackageByName("com.blah").getClasses().size());
+    }
+
+    public void testRemoveSource() throws Exception {
+        builder.addSourceTree(new File("target/test-source"));
+        JavaClass cheese = builder.getClassByName("com.blah.subpackage.Cheese");
+
+        JavaSource removed = builder.removeSource(new File("target/test-source/com/blah/subpackage/Cheese.java").toURI().toURL());
+
+        assertSame(cheese.getSource(), removed);
+        assertEquals(2, builder.getSources().size());
+        assertNull(builder.getPackageByName("com.blah.subpackage"));
+        for (JavaClass cls : builder.getClasses()) {
+            assertFalse("com.blah.subpackage.Cheese".equals(cls.getFullyQualifiedName()));
+        }
+        assertNull(builder.removeSource(new File("target/test-source/com/blah/subpackage/Cheese.java").toURI().toURL()));
+    }
+
     public void testRecordFile() throws Exception {
         JavaSource source = builder.addSource(new File("target/test-source/com/blah/Thing.java"));
 
@@ -585,6 +683,22 @@ public class JavaProjectBuilderTest extends TestCase
 
     }
 
+    public void testSaveAndAddSnapshot() throws Exception {
+        File file = new File("target/test-source/snapshot.bin");
+        builder.addSourceTree(new File("target/test-source"));
+        builder.saveSnapshot(file);
+
+        JavaProjectBuilder newBuilder = new JavaProjectBuilder();
+        newBuilder.addSnapshot(file);
+        JavaClass cheese = newBuilder.getClassByName("com.blah.subpackage.Cheese");
+        assertEquals(builder.getClassByName("com.blah.subpackage.Cheese").getCodeBlock(), cheese.getCodeBlock());
+        assertEquals(new File("target/test-source/com/blah/subpackage/Cheese.java").toURI().toURL(), cheese.getSource().getURL());
+
+        newBuilder.addSource(new StringReader("package x; class Z extends com.blah.Thing {}"));
+        assertEquals("com.blah.Thing", newBuilder.getClassByName("x.Z").getSuperJavaClass().getFullyQualifiedName());
+        assertEquals(2, newBuilder.getPackageByName("com.blah").getClasses().size());
+    }
+
     public void testSuperClassOfAnInterfaceReturnsNull() throws Exception {
         String in = "package x; interface I {}";
         builder.addSource(new StringReader(in));
@@ -768,6 +882,77 @@ public class JavaProjectBuilderTest extends TestCase
         assertEquals("f", s.getValue());
     }
 
+    public void testInheritedMethodsAreReused() {
+        builder.addSource(new StringReader("package p; public class A { public void a(){} private void hidden(){} }"));
+        builder.addSource(new StringReader("package p; public class B extends A { public void b(){} public void a(){} }"));
+        builder.addSource(new StringReader("package p; public class C extends B implements Runnable { public void run(){} }"));
+
+        JavaClass c = builder.getClassByName("p.C");
+        List<JavaMethod> methods = c.getMethods(true);
+        assertEquals(methods, c.getMethods(true));
+        c.getMethods(true).clear();
+        assertEquals(methods, c.getMethods(true));
+        List<String> names = new ArrayList<String>();
+        for (JavaMethod method : methods) {
+            names.add(method.getName() + ":" + method.getDeclaringClass().getFullyQualifiedName());
+        }
+        assertTrue(names.contains("run:p.C"));
+        assertTrue(names.contains("a:p.B"));
+        assertTrue(names.contains("b:p.B"));
+        assertFalse(names.contains("a:p.A"));
+        assertFalse(names.contains("hidden:p.A"));
+        JavaMethod a = c.getMethodBySignature("a", null, true);
+        assertSame(a, c.getMethodBySignature("a", null, true));
+
+        // a modified library rebuilds the table
+        builder.addSource(new StringReader("package p; public class D {}"));
+        assertEquals(methods, c.getMethods(true));
+    }
+
+    public void testInheritedMethodsFollowChangedSupertype() {
+        builder.addSource(new StringReader("package p; public class A { public int getX(){return 0;} }"));
+        builder.addSource(new StringReader("package p; public class B extends A {}"));
+
+        JavaClass b = builder.getClassByName("p.B");
+        int methodCount = b.getMethods(true).size();
+        int propertyCount = b.getBeanProperties(true).size();
+        assertNull(b.getBeanProperty("y", true));
+
+        DefaultJavaMethod getter = new DefaultJavaMethod("getY");
+        getter.setModifiers(Collections.singletonList("public"));
+        getter.setReturns(new DefaultJavaType("int"));
+        ((DefaultJavaClass) builder.getClassByName("p.A")).addMethod(getter);
+
+        assertEquals(methodCount + 1, b.getMethods(true).size());
+        assertNotNull(b.getBeanProperty("y", true));
+        b.getBeanProperties(true).clear();
+        assertEquals(propertyCount + 1, b.getBeanProperties(true).size());
+    }
+
+    public void testBeanPropertiesAreCached() {
+        builder.addSource(new StringReader("package p; public class Base { public String getName(){return null;} }"));
+        builder.addSource(new StringReader("package p; public class Bean extends Base { public int getAge(){return 0;} public void setAge(int age){} }"));
+
+        JavaClass bean = builder.getClassByName("p.Bean");
+        assertEquals(1, bean.getBeanProperties().size());
+        // age, name and class of java.lang.Object
+        assertEquals(3, bean.getBeanProperties(true).size());
+        BeanProperty age = bean.getBeanProperty("age", true);
+        assertNotNull(age.getAccessor());
+        assertNotNull(age.getMutator());
+        assertSame(age, bean.getBeanProperty("age", true));
+        assertNotNull(bean.getBeanProperty("name", true));
+        assertNull(bean.getBeanProperty("name"));
+
+        // a method added to the class invalidates its properties
+        DefaultJavaMethod setName = new DefaultJavaMethod("setName");
+        setName.setParameters(Collections.<JavaParameter>singletonList(new DefaultJavaParameter(new DefaultJavaType("String", (DefaultJavaClass) bean), "name")));
+        ((DefaultJavaClass) bean).addMethod(setName);
+        assertNotNull(bean.getBeanProperty("name").getMutator());
+        assertNotNull(bean.getBeanProperty("name", true).getAccessor());
+        assertNotNull(bean.getBeanProperty("name", true).getMutator());
+    }
+
     public void testJiraQdox27() {
         String sourceCode = ""
                 + "package com.acme.thing;\n"
@@ -1041,6 +1226,28 @@ public class JavaProjectBuilderTest extends TestCase
         verify( mockErrorHandler ).handle( any( ParseException.class ) );
     }
 
+    public void testMalformedJavaDocIsPassedToCustomHandler() {
+        ErrorHandler mockErrorHandler = mock(ErrorHandler.class);
+
+        builder.setErrorHandler( mockErrorHandler );
+        JavaClass cls = builder.addSource(new StringReader("/***/ class Thing {}")).getClasses().get(0);
+
+        assertNull(cls.getComment());
+        assertEquals(0, cls.getTags().size());
+        verify( mockErrorHandler ).handle( any( ParseException.class ) );
+    }
+
+    public void testMalformedJavaDocThrowsParseExceptionWithoutHandler() {
+        JavaClass cls = builder.addSource(new StringReader("/***/ class Thing {}")).getClasses().get(0);
+
+        try {
+            cls.getComment();
+            fail("Expected ParseException");
+        } catch (ParseException e) {
+            // expected
+        }
+    }
+
     public void testBinaryClassFieldModifiers() {
         JavaClass javaClass = builder.getClassByName(PropertyClass.class.getName());
         assertEquals("Class", PropertyClass.class.getName(), javaClass.getFullyQualifiedName());
@@ -1577,6 +1784,108 @@ public class JavaProjectBuilderTest extends TestCase
         assertSame( builder, projectBuilder );
     }
 
+    public void testSetSkipCodeBlocks()
+    {
+        AbstractClassLibraryBuilder classLibraryBuilder = mock( AbstractClassLibraryBuilder.class );
+
+        builder = new JavaProjectBuilder( classLibraryBuilder );
+        JavaProjectBuilder projectBuilder = builder.setSkipCodeBlocks( true );
+
+        verify( classLibraryBuilder ).setSkipCodeBlocks( true );
+        assertSame( builder, projectBuilder );
+    }
+
+    public void testSetSkipCodeBlocksWithCustomClassLibraryBuilder()
+    {
+        ClassLibraryBuilder classLibraryBuilder = mock( ClassLibraryBuilder.class );
+
+        builder = new JavaProjectBuilder( classLibraryBuilder );
+        try
+        {
+            builder.setSkipCodeBlocks( true );
+            fail( "UnsupportedOperationException expected" );
+        }
+        catch ( UnsupportedOperationException e )
+        {
+        }
+        // nothing to close
+        builder.close();
+    }
+
+    public void testSkipCodeBlocks()
+    {
+        String source = "package foo;\n" +
+            "public class Bar {\n" +
+            "  static { init(); }\n" +
+            "  private String name = \"bar\";\n" +
+            "  public Bar() { this( \"}\" ); }\n" +
+            "  public Bar( String name ) { this.name = name; /* { */ }\n" +
+            "  public String getName() { if ( name != null ) { return name; } return \"{\"; }\n" +
+            "  public abstract void doIt();\n" +
+            "}";
+        builder.setSkipCodeBlocks( true );
+        JavaClass cls = builder.addSource( new StringReader( source ) ).getClasses().get( 0 );
+
+        assertEquals( 1, cls.getInitializers().size() );
+        assertNull( cls.getInitializers().get( 0 ).getBlockContent() );
+        assertEquals( "\"bar\"", cls.getFieldByName( "name" ).getInitializationExpression() );
+        assertEquals( 2, cls.getConstructors().size() );
+        assertNull( cls.getConstructors().get( 0 ).getSourceCode() );
+        assertNull( cls.getConstructors().get( 1 ).getSourceCode() );
+        assertEquals( 2, cls.getMethods().size() );
+        assertNull( cls.getMethodBySignature( "getName", null ).getSourceCode() );
+        assertEquals( "", cls.getMethodBySignature( "doIt", null ).getSourceCode() );
+    }
+
+    public void testSetLazyCodeBlocks()
+    {
+        AbstractClassLibraryBuilder classLibraryBuilder = mock( AbstractClassLibraryBuilder.class );
+
+        builder = new JavaProjectBuilder( classLibraryBuilder );
+        JavaProjectBuilder projectBuilder = builder.setLazyCodeBlocks( true );
+
+        verify( classLibraryBuilder ).setLazyCodeBlocks( true );
+        assertSame( builder, projectBuilder );
+    }
+
+    public void testLazyCodeBlocks()
+        throws Exception
+    {
+        String source = "package foo;\n" +
+            "public class Bar {\n" +
+            "  static { init(); }\n" +
+            "  private String name = \"b\\u00e4r\", other;\n" +
+            "  public Bar() { this( \"}\" ); }\n" +
+            "  public String getName() { if ( name != null ) { return name; } return \"\u20ac\"; }\n" +
+            "  public abstract void doIt();\n" +
+            "}";
+        JavaClass eager = builder.addSource( new StringReader( source ) ).getClasses().get( 0 );
+
+        File file = new File( "target/test-lazy/Bar.java" );
+        file.getParentFile().mkdirs();
+        Writer writer = new OutputStreamWriter( new FileOutputStream( file ), "UTF-8" );
+        writer.write( source );
+        writer.close();
+
+        builder = new JavaProjectBuilder().setLazyCodeBlocks( true ).setEncoding( "UTF-8" );
+        assertSameCodeBlocks( eager, builder.addSource( new StringReader( source ) ).getClasses().get( 0 ) );
+        builder = new JavaProjectBuilder().setLazyCodeBlocks( true ).setEncoding( "UTF-8" );
+        assertSameCodeBlocks( eager, builder.addSource( file ).getClasses().get( 0 ) );
+    }
+
+    private void assertSameCodeBlocks( JavaClass expected, JavaClass actual )
+    {
+        assertEquals( expected.getInitializers().get( 0 ).getBlockContent(),
+                      actual.getInitializers().get( 0 ).getBlockContent() );
+        assertEquals( expected.getFieldByName( "name" ).getInitializationExpression(),
+                      actual.getFieldByName( "name" ).getInitializationExpression() );
+        assertEquals( expected.getConstructors().get( 0 ).getSourceCode(), actual.getConstructors().get( 0 ).getSourceCode() );
+        assertEquals( expected.getMethodBySignature( "getName", null ).getSourceCode(),
+                      actual.getMethodBySignature( "getName", null ).getSourceCode() );
+        assertEquals( expected.getMethodBySignature( "doIt", null ).getSourceCode(),
+                      actual.getMethodBySignature( "doIt", null ).getSourceCode() );
+    }
+
     public void testSetEncoding()
     {
         ClassLibraryBuilder classLibraryBuilder = mock( ClassLibraryBuilder.class );
@@ -0,0 +1,105 @@
+package com.thoughtworks.qdox;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.thoughtworks.qdox.model.JavaSource;
+
+public class SourceTreeWatcherTest
+    extends TestCase
+{
+    private File root = new File( "target/test-sourcetreewatcher" );
+
+    private JavaProjectBuilder builder;
+
+    private SourceTreeWatcher watcher;
+
+    private List<JavaSource> updated = new ArrayList<JavaSource>();
+
+    private List<JavaSource> removed = new ArrayList<JavaSource>();
+
+    protected void setUp()
+        throws Exception
+    {
+        deleteDir( root );
+        createFile( "com/blah/Thing.java", "package com.blah; public class Thing {}" );
+        createFile( "com/blah/Another.java", "package com.blah; public class Another {}" );
+        builder = new JavaProjectBuilder();
+        watcher = new SourceTreeWatcher( builder );
+        watcher.setMinPollInterval( 0 );
+        watcher.addSourceTree( root );
+        watcher.addModelChangeListener( new ModelChangeListener()
+        {
+            public void modelChanged( List<JavaSource> updatedSources, List<JavaSource> removedSources )
+            {
+                updated.addAll( updatedSources );
+                removed.addAll( removedSources );
+            }
+        } );
+    }
+
+    protected void tearDown()
+        throws Exception
+    {
+        deleteDir( root );
+    }
+
+    private File createFile( String name, String content )
+        throws Exception
+    {
+        File file = new File( root, name );
+        file.getParentFile().mkdirs();
+        long previous = file.lastModified();
+        FileWriter writer = new FileWriter( file );
+        writer.write( content );
+        writer.close();
+        // make sure the change is visible, even if the timestamp resolution is coarse
+        file.setLastModified( Math.max( file.lastModified(), previous + 2000L ) );
+        file.getParentFile().setLastModified( file.getParentFile().lastModified() + 2000L );
+        return file;
+    }
+
+    private void deleteDir( File dir )
+    {
+        File[] children = dir.listFiles();
+        if ( children != null )
+        {
+            for ( File child : children )
+            {
+                deleteDir( child );
+            }
+        }
+        dir.delete();
+    }
+
+    public void testAddSourceTree()
+    {
+        assertEquals( 2, builder.getClasses().size() );
+        watcher.poll();
+        assertTrue( updated.isEmpty() );
+        assertTrue( removed.isEmpty() );
+    }
+
+    public void testPollAppliesChanges()
+        throws Exception
+    {
+        createFile( "com/blah/Thing.java", "package com.blah; public class Thing { void changed() {} }" );
+        createFile( "com/blah/Cheese.java", "package com.blah; public class Cheese {}" );
+        File another = new File( root, "com/blah/Another.java" );
+        another.delete();
+        another.getParentFile().setLastModified( another.getParentFile().lastModified() + 4000L );
+
+        watcher.poll();
+
+        assertEquals( 2, updated.size() );
+        assertEquals( 1, removed.size() );
+        assertEquals( "Another", removed.get( 0 ).getClasses().get( 0 ).getName() );
+        assertEquals( 2, builder.getSources().size() );
+        assertNotNull( builder.getClassByName( "com.blah.Thing" ).getMethodBySignature( "changed", null ) );
+        assertNotNull( builder.getClassByName( "com.blah.Cheese" ).getSource() );
+    }
+}
@@ -623,6 +623,20 @@ public class ModelBuilderTest extends TestCase {
         assertEquals("World", source.getClasses().get(2).getComment());
     }
 
+    public void testDeferredJavaDocOnClass() throws Exception {
+        builder.onComment("/**\n * Hello\n * @cheese is good\n */", 3, 1);
+        builder.beginClass(new ClassDef());
+        builder.endClass();
+
+        JavaSource source = builder.getSource();
+        verifyZeroInteractions( docletTagFactory );
+
+        assertEquals("Hello", source.getClasses().get(0).getComment());
+        assertEquals(1, source.getClasses().get(0).getTags().size());
+        verify( docletTagFactory ).createDocletTag( eq("cheese"), eq("is good"), isA( JavaClass.class ), eq(5) );
+        verifyNoMoreInteractions( docletTagFactory );
+    }
+
     public void testJavaDocOnMethod() throws Exception {
         builder.beginClass(new ClassDef());
 
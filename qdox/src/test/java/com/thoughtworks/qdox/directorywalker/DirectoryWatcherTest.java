@@ -0,0 +1,128 @@
+package com.thoughtworks.qdox.directorywalker;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DirectoryWatcherTest
+{
+    private File root = new File( "target/test-watcher" );
+
+    private DirectoryWatcher watcher;
+
+    private ChangeListener listener;
+
+    @Before
+    public void setUp()
+        throws Exception
+    {
+        deleteDir( root );
+        new File( root, "sub" ).mkdirs();
+        createFile( "A.java", 1000000L );
+        createFile( "sub/B.java", 1000000L );
+        createFile( "sub/c.txt", 1000000L );
+        watcher = new DirectoryWatcher( root );
+        watcher.addFilter( new SuffixFilter( ".java" ) );
+        watcher.setMinPollInterval( 0 );
+        listener = mock( ChangeListener.class );
+        watcher.poll( listener );
+    }
+
+    @After
+    public void tearDown()
+    {
+        deleteDir( root );
+    }
+
+    private File createFile( String name, long lastModified )
+        throws IOException
+    {
+        File file = new File( root, name );
+        FileWriter writer = new FileWriter( file );
+        writer.write( "class " + name.hashCode() + " {}" );
+        writer.close();
+        file.setLastModified( lastModified );
+        return file;
+    }
+
+    private void deleteDir( File dir )
+    {
+        File[] children = dir.listFiles();
+        if ( children != null )
+        {
+            for ( File child : children )
+            {
+                deleteDir( child );
+            }
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void testInitialPollReportsNothing()
+    {
+        verifyZeroInteractions( listener );
+    }
+
+    @Test
+    public void testNoChanges()
+    {
+        watcher.poll( listener );
+        verifyZeroInteractions( listener );
+    }
+
+    @Test
+    public void testChanges()
+        throws Exception
+    {
+        File created = createFile( "sub/D.java", 1000000L );
+        File modified = new File( root, "A.java" );
+        modified.setLastModified( 2000000L );
+        File deleted = new File( root, "sub/B.java" );
+        deleted.delete();
+        createFile( "sub/e.txt", 1000000L );
+
+        watcher.poll( listener );
+
+        verify( listener ).filesChanged( Collections.singletonList( created ), Collections.singletonList( modified ),
+                                         Collections.singletonList( deleted ) );
+    }
+
+    @Test
+    public void testPollWithinMinimumIntervalIsSkipped()
+        throws Exception
+    {
+        watcher.setMinPollInterval( 60000L );
+        createFile( "sub/D.java", 1000000L );
+
+        watcher.poll( listener );
+
+        verifyZeroInteractions( listener );
+    }
+
+    @Test
+    public void testSortedByPath()
+        throws Exception
+    {
+        File z = createFile( "Z.java", 1000000L );
+        File y = createFile( "sub/Y.java", 1000000L );
+        File x = createFile( "X.java", 1000000L );
+
+        watcher.poll( listener );
+
+        assertEquals( -1, Integer.signum( x.getPath().compareTo( z.getPath() ) ) );
+        verify( listener ).filesChanged( Arrays.asList( x, z, y ), Collections.<File>emptyList(),
+                                         Collections.<File>emptyList() );
+    }
+}
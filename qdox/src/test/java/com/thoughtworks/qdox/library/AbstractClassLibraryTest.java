@@ -1,7 +1,9 @@
 package com.thoughtworks.qdox.library;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 
 import junit.framework.TestCase;
 
@@ -137,4 +139,35 @@ public class AbstractClassLibraryTest
         assertEquals( null, nullClassLibrary.getJavaPackage( "java.lang" ) );
         assertEquals( null, nullClassLibrary.getJavaPackage( "com.thoughtworks" ) );
     }
+
+    public void testMissingClassesAreCached() throws Exception {
+        final List<String> lookups = new ArrayList<String>();
+        AbstractClassLibrary countingClassLibrary = new AbstractClassLibrary()
+        {
+            protected JavaClass resolveJavaClass( String name )
+            {
+                lookups.add( name );
+                return null;
+            }
+            protected JavaPackage resolveJavaPackage(String name) {
+                return null;
+            }
+            protected boolean containsClassReference( String name )
+            {
+                lookups.add( name );
+                return false;
+            }
+        };
+        assertNull( countingClassLibrary.getJavaClass( "pkg.Missing" ) );
+        assertNull( countingClassLibrary.getJavaClass( "pkg.Missing" ) );
+        assertFalse( countingClassLibrary.hasClassReference( "pkg.Missing" ) );
+        assertFalse( countingClassLibrary.hasClassReference( "pkg.Missing" ) );
+        assertEquals( 2, lookups.size() );
+
+        // the class might exist after a modification
+        countingClassLibrary.modified();
+        assertNull( countingClassLibrary.getJavaClass( "pkg.Missing" ) );
+        assertFalse( countingClassLibrary.hasClassReference( "pkg.Missing" ) );
+        assertEquals( 4, lookups.size() );
+    }
 }
@@ -0,0 +1,325 @@
+package com.thoughtworks.qdox.library;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import junit.framework.TestCase;
+
+import com.thoughtworks.qdox.model.JavaAnnotation;
+import com.thoughtworks.qdox.model.JavaClass;
+import com.thoughtworks.qdox.model.JavaConstructor;
+import com.thoughtworks.qdox.model.JavaField;
+import com.thoughtworks.qdox.model.JavaMethod;
+import com.thoughtworks.qdox.model.JavaParameter;
+import com.thoughtworks.qdox.model.JavaType;
+
+public class ClassFileLibraryTest
+    extends TestCase
+{
+    private static final String FIXTURE = ClassFileLibraryTest.class.getName() + "$Fixture";
+
+    private ClassFileLibrary classFileLibrary;
+
+    protected void setUp()
+        throws Exception
+    {
+        classFileLibrary = new ClassFileLibrary( new ClassNameLibrary() );
+    }
+
+    public void testNoClassPath()
+    {
+        classFileLibrary = new ClassFileLibrary( null );
+        assertNull( classFileLibrary.getJavaClass( FIXTURE ) );
+        assertFalse( classFileLibrary.hasClassReference( FIXTURE ) );
+    }
+
+    public void testClassFolder()
+    {
+        classFileLibrary.addClassPath( new File( "target/test-classes" ) );
+        assertTrue( classFileLibrary.hasClassReference( FIXTURE ) );
+        assertFalse( classFileLibrary.hasClassReference( "com.thoughtworks.qdox.library.GoatCrusher" ) );
+        assertNotNull( classFileLibrary.getJavaPackage( "com.thoughtworks.qdox.library" ) );
+
+        JavaClass fixture = classFileLibrary.getJavaClass( FIXTURE );
+        assertNotNull( fixture );
+        assertEquals( "Fixture", fixture.getName() );
+        assertEquals( ClassFileLibraryTest.class.getName(), fixture.getDeclaringClass().getFullyQualifiedName() );
+        assertEquals( Arrays.asList( "public", "static" ), fixture.getModifiers() );
+        assertEquals( 1, fixture.getTypeParameters().size() );
+        assertEquals( "T", fixture.getTypeParameters().get( 0 ).getName() );
+        assertEquals( "java.lang.Number", fixture.getTypeParameters().get( 0 ).getBounds().get( 0 )
+            .getFullyQualifiedName() );
+        assertEquals( "java.util.AbstractList", fixture.getSuperClass().getFullyQualifiedName() );
+        assertEquals( "java.util.AbstractList<T>", fixture.getSuperClass().getGenericFullyQualifiedName() );
+        assertEquals( "java.lang.Comparable<" + FIXTURE + "<?>>",
+                      fixture.getImplements().get( 0 ).getGenericFullyQualifiedName() );
+
+        JavaField constant = fixture.getFieldByName( "GREETING" );
+        assertEquals( "\"hello\\n\"", constant.getInitializationExpression() );
+        assertEquals( Arrays.asList( "public", "static", "final" ), constant.getModifiers() );
+        assertNull( fixture.getFieldByName( "this$0" ) );
+
+        JavaField values = fixture.getFieldByName( "values" );
+        assertEquals( "java.util.List<T>", values.getType().getGenericFullyQualifiedName() );
+        JavaAnnotation marker = values.getAnnotations().get( 0 );
+        assertEquals( Marker.class.getName(), marker.getType().getFullyQualifiedName() );
+        assertEquals( "\"a\\\"b\"", marker.getNamedParameter( "value" ) );
+        assertEquals( "-3", marker.getNamedParameter( "number" ) );
+        assertEquals( "java.lang.annotation.ElementType.FIELD", marker.getProperty( "type" ).getParameterValue() );
+        assertEquals( 2, ( (List<?>) marker.getNamedParameter( "names" ) ).size() );
+
+        JavaMethod get = fixture.getMethodBySignature( "get", Arrays.<JavaType>asList( fixture.getMethods().get( 0 )
+            .getParameterTypes().get( 0 ) ) );
+        assertNotNull( get );
+        assertEquals( "T", get.getReturnType().getGenericValue() );
+        assertEquals( "int", get.getParameters().get( 0 ).getType().getFullyQualifiedName() );
+
+        JavaMethod convert = null;
+        for ( JavaMethod method : fixture.getMethods() )
+        {
+            if ( "convert".equals( method.getName() ) )
+            {
+                convert = method;
+            }
+        }
+        assertNotNull( convert );
+        assertEquals( "S", convert.getTypeParameters().get( 0 ).getName() );
+        assertEquals( "java.io.IOException", convert.getExceptions().get( 0 ).getFullyQualifiedName() );
+        JavaParameter varArgs = convert.getParameters().get( 1 );
+        assertTrue( varArgs.isVarArgs() );
+        assertEquals( "java.util.Map<java.lang.String,? extends S>",
+                      varArgs.getType().getGenericFullyQualifiedName() );
+        assertEquals( Marker.class.getName(),
+                      convert.getParameters().get( 0 ).getAnnotations().get( 0 ).getType().getFullyQualifiedName() );
+
+        // compareTo(Object) is a bridge method
+        int compareToCount = 0;
+        for ( JavaMethod method : fixture.getMethods() )
+        {
+            compareToCount += "compareTo".equals( method.getName() ) ? 1 : 0;
+        }
+        assertEquals( 1, compareToCount );
+    }
+
+    public void testNestedClasses()
+    {
+        classFileLibrary.addClassPath( new File( "target/test-classes" ) );
+
+        JavaClass inner = classFileLibrary.getJavaClass( FIXTURE + "$Inner" );
+        assertNotNull( inner );
+        assertEquals( FIXTURE, inner.getDeclaringClass().getFullyQualifiedName() );
+        // the outer instance isn't a parameter of the constructor in the source
+        JavaConstructor constructor = inner.getConstructors().get( 0 );
+        assertEquals( 1, constructor.getParameters().size() );
+        assertEquals( "java.lang.String", constructor.getParameterTypes().get( 0 ).getFullyQualifiedName() );
+
+        JavaClass color = classFileLibrary.getJavaClass( FIXTURE + "$Color" );
+        assertTrue( color.isEnum() );
+        assertTrue( color.getFieldByName( "RED" ).isEnumConstant() );
+        assertNull( color.getFieldByName( "$VALUES" ) );
+        assertEquals( 1, color.getConstructors().get( 0 ).getParameters().size() );
+
+        JavaClass marker = classFileLibrary.getJavaClass( Marker.class.getName() );
+        assertTrue( marker.isAnnotation() );
+    }
+
+    public void testJar()
+        throws Exception
+    {
+        File jar = new File( "target/test-jar/fixture.jar" );
+        // only the subclass, the class files of its superclass and interface are missing
+        writeJar( jar, ClassFileLibraryTest.class.getName() + "$Dependent", "Not a class file" );
+        classFileLibrary.addClassPath( jar );
+
+        assertTrue( classFileLibrary.hasClassReference( ClassFileLibraryTest.class.getName() + "$Dependent" ) );
+        assertFalse( classFileLibrary.hasClassReference( FIXTURE ) );
+        JavaClass dependent = classFileLibrary.getJavaClass( ClassFileLibraryTest.class.getName() + "$Dependent" );
+        assertNotNull( dependent );
+        assertEquals( FIXTURE, dependent.getSuperClass().getFullyQualifiedName() );
+        assertEquals( "int", dependent.getMethods().get( 0 ).getReturnType().getFullyQualifiedName() );
+
+        // a corrupt class file can't be resolved
+        classFileLibrary = new ClassFileLibrary( null );
+        classFileLibrary.addClassPath( jar );
+        assertTrue( classFileLibrary.hasClassReference( "x.Corrupt" ) );
+        assertNull( classFileLibrary.getJavaClass( "x.Corrupt" ) );
+    }
+
+    public void testJarIsOpenedAgainAfterClose()
+        throws Exception
+    {
+        File jar = new File( "target/test-jar/reopened.jar" );
+        writeJar( jar, ClassFileLibraryTest.class.getName() + "$Dependent", "Not a class file" );
+        classFileLibrary = new ClassFileLibrary( null );
+        classFileLibrary.addClassPath( jar );
+        // reads the jar
+        assertNull( classFileLibrary.getJavaClass( "x.Corrupt" ) );
+
+        classFileLibrary.close();
+        assertNotNull( classFileLibrary.getJavaClass( ClassFileLibraryTest.class.getName() + "$Dependent" ) );
+        classFileLibrary.close();
+    }
+
+    public void testManifestClassPath()
+        throws Exception
+    {
+        File dependencies = new File( "target/test-jar/dependencies.jar" );
+        writeJar( dependencies, ClassFileLibraryTest.class.getName() + "$Dependent", "Not a class file" );
+        File jar = new File( "target/test-jar/manifest-only.jar" );
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put( Attributes.Name.MANIFEST_VERSION, "1.0" );
+        manifest.getMainAttributes().put( Attributes.Name.CLASS_PATH, "dependencies.jar" );
+        new JarOutputStream( new FileOutputStream( jar ), manifest ).close();
+        classFileLibrary.addClassPath( jar );
+
+        assertTrue( classFileLibrary.hasClassReference( ClassFileLibraryTest.class.getName() + "$Dependent" ) );
+        assertNotNull( classFileLibrary.getJavaClass( ClassFileLibraryTest.class.getName() + "$Dependent" ) );
+    }
+
+    public void testClassCompiledLaterIntoFolder()
+        throws Exception
+    {
+        File folder = new File( "target/test-classfolder" );
+        String className = ClassFileLibraryTest.class.getName() + "$Dependent";
+        File classFile = new File( folder, className.replace( '.', '/' ) + ".class" );
+        classFile.delete();
+        classFileLibrary.addClassPath( folder );
+        assertFalse( classFileLibrary.hasClassReference( FIXTURE ) );
+
+        classFile.getParentFile().mkdirs();
+        InputStream in = new FileInputStream( new File( "target/test-classes", className.replace( '.', '/' ) + ".class" ) );
+        OutputStream out = new FileOutputStream( classFile );
+        try
+        {
+            byte[] buffer = new byte[4096];
+            int read;
+            while ( ( read = in.read( buffer ) ) != -1 )
+            {
+                out.write( buffer, 0, read );
+            }
+        }
+        finally
+        {
+            in.close();
+            out.close();
+        }
+        assertTrue( classFileLibrary.hasClassReference( className ) );
+        assertNotNull( classFileLibrary.getJavaClass( className ) );
+    }
+
+    private static void writeJar( File jar, String className, String corruptContent )
+        throws IOException
+    {
+        jar.getParentFile().mkdirs();
+        ZipOutputStream out = new ZipOutputStream( new FileOutputStream( jar ) );
+        try
+        {
+            String path = className.replace( '.', '/' ) + ".class";
+            out.putNextEntry( new ZipEntry( path ) );
+            InputStream in = new FileInputStream( new File( "target/test-classes", path ) );
+            try
+            {
+                byte[] buffer = new byte[4096];
+                int read;
+                while ( ( read = in.read( buffer ) ) != -1 )
+                {
+                    out.write( buffer, 0, read );
+                }
+            }
+            finally
+            {
+                in.close();
+            }
+            out.putNextEntry( new ZipEntry( "x/Corrupt.class" ) );
+            out.write( corruptContent.getBytes( "UTF-8" ) );
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    @Retention( RetentionPolicy.RUNTIME )
+    public @interface Marker
+    {
+        String value() default "";
+
+        int number() default 0;
+
+        ElementType type() default ElementType.TYPE;
+
+        String[] names() default {};
+    }
+
+    public static class Fixture<T extends Number>
+        extends java.util.AbstractList<T>
+        implements Comparable<Fixture<?>>
+    {
+        public static final String GREETING = "hello\n";
+
+        @Marker( value = "a\"b", number = -3, type = ElementType.FIELD, names = { "x", "y" } )
+        private List<T> values;
+
+        public T get( int index )
+        {
+            return values.get( index );
+        }
+
+        public int size()
+        {
+            return values.size();
+        }
+
+        public int compareTo( Fixture<?> o )
+        {
+            return 0;
+        }
+
+        protected <S> S convert( @Marker String key, Map<String, ? extends S>... maps )
+            throws IOException
+        {
+            return maps[0].get( key );
+        }
+
+        public class Inner
+        {
+            public Inner( String name )
+            {
+            }
+        }
+
+        public enum Color
+        {
+            RED( 1 ), GREEN( 2 );
+
+            private Color( int value )
+            {
+            }
+        }
+    }
+
+    public static class Dependent
+        extends Fixture<Integer>
+    {
+        @Override
+        public int size()
+        {
+            return 0;
+        }
+    }
+}
@@ -1,5 +1,16 @@
 package com.thoughtworks.qdox.library;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import junit.framework.TestCase;
 
 public class ClassLoaderLibraryTest
@@ -33,4 +44,78 @@ public class ClassLoaderLibraryTest
         assertNull(classLoaderLibrary.getJavaClass("java.util.GoatCrusher"));
     }
 
+    public void testUrlClassLoader() throws Exception {
+        URLClassLoader classLoader = new URLClassLoader( new URL[] { new File( "target/test-classes" ).toURI().toURL() }, null );
+        classLoaderLibrary.addClassLoader( classLoader );
+        assertTrue( classLoaderLibrary.hasClassReference( "java.lang.String" ) );
+        assertTrue( classLoaderLibrary.hasClassReference( ClassLoaderLibraryTest.class.getName() ) );
+        assertFalse( classLoaderLibrary.hasClassReference( "com.thoughtworks.qdox.library.GoatCrusher" ) );
+        assertNull( classLoaderLibrary.getJavaClass( "com.thoughtworks.qdox.library.GoatCrusher" ) );
+    }
+
+    public void testClassLoaderWithoutIndexIsAsked() throws Exception {
+        final List<String> requested = new ArrayList<String>();
+        classLoaderLibrary.addClassLoader( new ClassLoader( null ) {
+            protected Class<?> loadClass( String name, boolean resolve ) throws ClassNotFoundException {
+                requested.add( name );
+                return super.loadClass( name, resolve );
+            }
+        } );
+        assertFalse( classLoaderLibrary.hasClassReference( "com.thoughtworks.qdox.library.GoatCrusher" ) );
+        assertEquals( Collections.singletonList( "com.thoughtworks.qdox.library.GoatCrusher" ), requested );
+    }
+
+    public void testTypeNames() throws Exception {
+        URLClassLoader classLoader = new URLClassLoader( new URL[] { new File( "target/test-classes" ).toURI().toURL() }, null );
+        classLoaderLibrary.addClassLoader( classLoader );
+        if ( System.getProperty( "sun.boot.class.path" ) != null ) {
+            assertTrue( classLoaderLibrary.getTypeNames( "java.util" ).contains( "Map" ) );
+            assertFalse( classLoaderLibrary.getTypeNames( "java.util" ).contains( "Map$Entry" ) );
+            assertTrue( classLoaderLibrary.getTypeNames( "com.thoughtworks.qdox.library" ).contains( "ClassLoaderLibraryTest" ) );
+        }
+        else {
+            // since Java 9 the bootstrap classes can't be listed
+            assertNull( classLoaderLibrary.getTypeNames( "java.util" ) );
+            assertNull( classLoaderLibrary.getTypeNames( "com.thoughtworks.qdox.library" ) );
+        }
+
+        // the classes of this classloader can't be listed
+        classLoaderLibrary.addClassLoader( new ClassLoader( null ) {} );
+        assertNull( classLoaderLibrary.getTypeNames( "java.util" ) );
+    }
+
+
+    public void testClassCompiledLaterIntoDirectory() throws Exception {
+        File directory = new File( "target/test-classloader-directory" );
+        String path = "com/thoughtworks/qdox/testdata/Superclass.class";
+        new File( directory, path ).delete();
+        directory.mkdirs();
+        URLClassLoader classLoader = new URLClassLoader( new URL[] { directory.toURI().toURL() }, null );
+        classLoaderLibrary.addClassLoader( classLoader );
+        assertFalse( classLoaderLibrary.hasClassReference( "com.thoughtworks.qdox.testdata.Superclass" ) );
+
+        File classFile = new File( directory, path );
+        classFile.getParentFile().mkdirs();
+        InputStream in = new FileInputStream( new File( "target/test-classes", path ) );
+        OutputStream out = new FileOutputStream( classFile );
+        try
+        {
+            byte[] buffer = new byte[4096];
+            int read;
+            while ( ( read = in.read( buffer ) ) != -1 )
+            {
+                out.write( buffer, 0, read );
+            }
+        }
+        finally
+        {
+            in.close();
+            out.close();
+        }
+
+        // another library with the same classloader
+        ClassLoaderLibrary library = new ClassLoaderLibrary( null, classLoader );
+        assertTrue( library.hasClassReference( "com.thoughtworks.qdox.testdata.Superclass" ) );
+        assertNotNull( library.getJavaClass( "com.thoughtworks.qdox.testdata.Superclass" ) );
+    }
 }
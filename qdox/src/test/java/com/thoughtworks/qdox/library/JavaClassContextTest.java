@@ -1,5 +1,7 @@
 package com.thoughtworks.qdox.library;
 
+import java.util.List;
+
 import junit.framework.TestCase;
 
 import com.thoughtworks.qdox.model.JavaClass;
@@ -157,5 +159,28 @@ public class JavaClassContextTest
         assertTrue(context.getClassByName("com.not.You") == null);
     }
 
+    public void testSharedClassesUntilModified() throws Exception {
+        context.add(new DefaultJavaClass("com.blah.Ping"));
+        List<JavaClass> classes = context.getClasses();
+        long version = context.getVersion();
+        assertSame( classes, context.getClasses() );
+        assertEquals( version, context.getVersion() );
+
+        context.add(new DefaultJavaClass("com.moo.Poo"));
+        assertNotSame( classes, context.getClasses() );
+        assertTrue( context.getVersion() != version );
+        assertEquals( 1, classes.size() );
+        assertEquals( 2, context.getClasses().size() );
+
+        try
+        {
+            context.getClasses().clear();
+            fail( "The classes should be read-only" );
+        }
+        catch ( UnsupportedOperationException e )
+        {
+        }
+    }
+
 
 }
@@ -0,0 +1,62 @@
+package com.thoughtworks.qdox.library;
+
+import junit.framework.TestCase;
+
+public class MissingClassCacheTest
+    extends TestCase
+{
+    private MissingClassCache cache = new MissingClassCache();
+
+    public void testContains()
+    {
+        cache.add( "foo.Bar", 1 );
+        assertTrue( cache.contains( "foo.Bar", 1 ) );
+        assertFalse( cache.contains( "foo.Baz", 1 ) );
+    }
+
+    public void testNamesAreForgottenOnceTheLibraryChanges()
+    {
+        cache.add( "foo.Bar", 1 );
+        cache.add( "foo.Baz", 2 );
+        assertFalse( cache.contains( "foo.Bar", 2 ) );
+        assertTrue( cache.contains( "foo.Baz", 2 ) );
+    }
+
+    public void testNameWithOlderModificationCountIsIgnored()
+    {
+        cache.add( "foo.Bar", 2 );
+        cache.add( "foo.Baz", 1 );
+        assertTrue( cache.contains( "foo.Bar", 2 ) );
+        assertFalse( cache.contains( "foo.Baz", 2 ) );
+        assertFalse( cache.contains( "foo.Baz", 1 ) );
+    }
+
+    public void testCacheIsBounded()
+    {
+        for ( int i = 0; i < MissingClassCache.MAX_SIZE; i++ )
+        {
+            cache.add( "foo.Bar" + i, 1 );
+        }
+        assertTrue( cache.contains( "foo.Bar0", 1 ) );
+
+        cache.add( "foo.Baz", 1 );
+        assertFalse( cache.contains( "foo.Bar0", 1 ) );
+        assertTrue( cache.contains( "foo.Baz", 1 ) );
+    }
+
+    public void testFullCacheKeepsNewestModificationCount()
+    {
+        for ( int i = 0; i < MissingClassCache.MAX_SIZE; i++ )
+        {
+            cache.add( "foo.Bar" + i, 2 );
+        }
+
+        // a late caller which looked for its class before the library changed
+        cache.add( "foo.Baz", 1 );
+        assertFalse( cache.contains( "foo.Baz", 1 ) );
+        assertFalse( cache.contains( "foo.Bar0", 2 ) );
+
+        cache.add( "foo.Baz", 2 );
+        assertTrue( cache.contains( "foo.Baz", 2 ) );
+    }
+}
@@ -0,0 +1,96 @@
+package com.thoughtworks.qdox.library;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+
+import junit.framework.TestCase;
+
+public class SourceFilesTest
+    extends TestCase
+{
+    private File file = new File( "target/test-sourcefiles/Source.java" );
+
+    protected void setUp()
+        throws Exception
+    {
+        file.getParentFile().mkdirs();
+    }
+
+    protected void tearDown()
+        throws Exception
+    {
+        file.delete();
+    }
+
+    private void write( String content, String encoding )
+        throws IOException
+    {
+        FileOutputStream stream = new FileOutputStream( file );
+        try
+        {
+            stream.write( content.getBytes( encoding ) );
+        }
+        finally
+        {
+            stream.close();
+        }
+    }
+
+    public void testAscii()
+        throws Exception
+    {
+        write( "class Ascii {}", "US-ASCII" );
+        assertEquals( "class Ascii {}", new String( SourceFiles.read( file, "UTF-8" ) ) );
+    }
+
+    public void testUtf8()
+        throws Exception
+    {
+        write( "class Ä€ {}", "UTF-8" );
+        assertEquals( "class Ä€ {}", new String( SourceFiles.read( file, "UTF-8" ) ) );
+    }
+
+    public void testLatin1()
+        throws Exception
+    {
+        write( "class Ä {}", "ISO-8859-1" );
+        assertEquals( "class Ä {}", new String( SourceFiles.read( file, "ISO-8859-1" ) ) );
+    }
+
+    public void testUtf16()
+        throws Exception
+    {
+        write( "class X {}", "UTF-16" );
+        assertEquals( "class X {}", new String( SourceFiles.read( file, "UTF-16" ) ) );
+    }
+
+    public void testLargeFile()
+        throws Exception
+    {
+        StringBuilder content = new StringBuilder();
+        while ( content.length() < 512 * 1024 )
+        {
+            content.append( "// a comment line to make this a large file\n" );
+        }
+        content.append( "class Large é {}" );
+        write( content.toString(), "UTF-8" );
+        assertEquals( content.toString(), new String( SourceFiles.read( file, "UTF-8" ) ) );
+    }
+
+    public void testUnsupportedEncoding()
+        throws Exception
+    {
+        write( "class X {}", "UTF-8" );
+        try
+        {
+            SourceFiles.read( file, "NO-SUCH-ENCODING" );
+            fail( "UnsupportedEncodingException expected" );
+        }
+        catch ( UnsupportedEncodingException e )
+        {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.thoughtworks.qdox.library;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+import junit.framework.TestCase;
+
+public class SourceFolderLibraryTest
+    extends TestCase
+{
+    private File sourceFolder;
+
+    private SourceFolderLibrary sourceFolderLibrary;
+
+    protected void setUp()
+        throws Exception
+    {
+        sourceFolder = new File( "target/test-source-folder" );
+        new File( sourceFolder, "a/b/C.java" ).delete();
+        writeSource( "a/b/B.java", "package a.b; public class B { public class Inner {} }" );
+        sourceFolderLibrary = new SourceFolderLibrary( null, sourceFolder );
+    }
+
+    public void testSourceFolder()
+    {
+        assertTrue( sourceFolderLibrary.hasClassReference( "a.b.B" ) );
+        assertTrue( sourceFolderLibrary.hasClassReference( "a.b.B$Inner" ) );
+        assertFalse( sourceFolderLibrary.hasClassReference( "a.b.C" ) );
+        assertFalse( sourceFolderLibrary.hasClassReference( "a.B" ) );
+        assertFalse( sourceFolderLibrary.hasClassReference( "B" ) );
+        assertEquals( "a.b.B", sourceFolderLibrary.getJavaClass( "a.b.B" ).getFullyQualifiedName() );
+        assertEquals( "Inner", sourceFolderLibrary.getJavaClass( "a.b.B$Inner" ).getName() );
+        assertNull( sourceFolderLibrary.getJavaClass( "a.b.C" ) );
+    }
+
+    public void testRefresh()
+        throws Exception
+    {
+        assertFalse( sourceFolderLibrary.hasClassReference( "a.b.C" ) );
+        writeSource( "a/b/C.java", "package a.b; public class C {}" );
+        // the directory has already been listed
+        assertFalse( sourceFolderLibrary.hasClassReference( "a.b.C" ) );
+
+        sourceFolderLibrary.refresh();
+        assertTrue( sourceFolderLibrary.hasClassReference( "a.b.C" ) );
+        assertNotNull( sourceFolderLibrary.getJavaClass( "a.b.C" ) );
+    }
+
+    private void writeSource( String path, String content )
+        throws IOException
+    {
+        File file = new File( sourceFolder, path );
+        file.getParentFile().mkdirs();
+        Writer writer = new FileWriter( file );
+        try
+        {
+            writer.write( content );
+        }
+        finally
+        {
+            writer.close();
+        }
+    }
+}
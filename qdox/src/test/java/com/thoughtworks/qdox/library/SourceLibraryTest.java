@@ -7,9 +7,15 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.HashSet;
 
 import junit.framework.TestCase;
 
+import com.thoughtworks.qdox.model.JavaClass;
+import com.thoughtworks.qdox.model.JavaPackage;
 import com.thoughtworks.qdox.model.JavaSource;
 import com.thoughtworks.qdox.parser.ParseException;
 
@@ -104,5 +110,226 @@ public class SourceLibraryTest
         assertEquals("TEST-CHARS: \u00C4\u00D6\u00DC\u00E4\u00F6\u00FC\u00DF", src.getClassByName( "Latin1" ).getComment());
     }
 
-    
+    public void testSnapshot() throws Exception {
+        sourceLibrary = newSnapshotLibrary();
+        addSources( new File( "src/main/java" ) );
+        sourceLibrary.setEncoding( "UTF-8" );
+        sourceLibrary.addSource( new File( "src/test/resources/com/thoughtworks/qdox/testdata/UTF8.java" ) );
+        File enumFile = new File( "target/test-source/x/E.java" );
+        enumFile.getParentFile().mkdirs();
+        Writer writer = new FileWriter( enumFile );
+        writer.write( "package x;\n"
+            + "@Retention(RetentionPolicy.RUNTIME) @interface A { int[] value() default { 1 << 2, -3 }; }\n"
+            + "/** the enum\n * @since 2.0 */\n"
+            + "@A( { 1 + 2 * 3, (4 > 5 ? 6 : 7) } )\n"
+            + "public enum E implements java.util.Comparator<java.util.List<? extends Number>> {\n"
+            + "  ONE( \"one\", 'c' ), TWO( \"two\" + 2, (char) 1 ) { void m() {} };\n"
+            + "  private static final long SIZE = 1L + ~2;\n"
+            + "  static { System.out.println(); }\n"
+            + "  E( String name, char c ) { }\n"
+            + "  public <T extends Object & Comparable<? super T>> T max( @A( value = {} ) T... values ) throws Exception { return null; }\n"
+            + "  class Inner { int[][] matrix; }\n"
+            + "}\n" );
+        writer.close();
+        sourceLibrary.addSource( enumFile );
+        File file = new File( "target/test-source/snapshot.bin" );
+        file.getParentFile().mkdirs();
+        sourceLibrary.saveSnapshot( file );
+
+        SourceLibrary snapshotLibrary = newSnapshotLibrary();
+        snapshotLibrary.addSnapshot( file );
+        assertTrue( snapshotLibrary.hasClassReference( "x.E$Inner" ) );
+        assertFalse( snapshotLibrary.hasClassReference( "x.Missing" ) );
+        for ( JavaClass cls : sourceLibrary.getJavaClasses() )
+        {
+            JavaClass snapshotClass = snapshotLibrary.getJavaClass( cls.getFullyQualifiedName() );
+            assertNotNull( cls.getFullyQualifiedName(), snapshotClass );
+            assertEquals( cls.getCodeBlock(), snapshotClass.getCodeBlock() );
+            assertEquals( cls.getLineNumber(), snapshotClass.getLineNumber() );
+            assertEquals( cls.getAnnotations().toString(), snapshotClass.getAnnotations().toString() );
+            for ( int i = 0; i < cls.getMethods().size(); i++ )
+            {
+                assertEquals( cls.getMethods().get( i ).getLineNumber(),
+                              snapshotClass.getMethods().get( i ).getLineNumber() );
+            }
+        }
+        assertEquals( "TEST-CHARS: \u00DF\u0131\u03A3\u042F\u05D0\u20AC",
+                      snapshotLibrary.getJavaClass( "com.thoughtworks.qdox.testdata.UTF8" ).getComment() );
+        assertEquals( "1L + ~2", snapshotLibrary.getJavaClass( "x.E" ).getFieldByName( "SIZE" ).getInitializationExpression() );
+        assertEquals( sourceLibrary.getJavaPackages().size(), snapshotLibrary.getJavaPackages().size() );
+    }
+
+    public void testSnapshotBuildsPackageOnRequest() throws Exception {
+        sourceLibrary = newSnapshotLibrary();
+        sourceLibrary.addSource( createFile( "target/test-source/a/A.java", "a", "A" ) );
+        sourceLibrary.addSource( createFile( "target/test-source/a/B.java", "a", "B" ) );
+        sourceLibrary.addSource( createFile( "target/test-source/b/C.java", "b", "C extends a.A" ) );
+        File file = new File( "target/test-source/snapshot.bin" );
+        sourceLibrary.saveSnapshot( file );
+
+        SourceLibrary snapshotLibrary = newSnapshotLibrary();
+        snapshotLibrary.addSnapshot( file );
+        JavaPackage a = snapshotLibrary.getJavaPackage( "a" );
+        assertEquals( 2, a.getClasses().size() );
+        assertSame( a, snapshotLibrary.getJavaPackage( "a" ) );
+        assertNotNull( snapshotLibrary.getJavaClass( "a.B" ) );
+        assertEquals( "a.A", snapshotLibrary.getJavaClass( "b.C" ).getSuperClass().getFullyQualifiedName() );
+        // sources of which a class has been requested are returned twice
+        assertEquals( 3, new HashSet<JavaSource>( snapshotLibrary.getJavaSources() ).size() );
+    }
+
+    public void testRemovedSourceOfSnapshotIsNotBuilt() throws Exception {
+        File source = createFile( "target/test-source/com/blah/Thing.java", "com.blah", "Thing" );
+        sourceLibrary.addSource( source );
+        File file = new File( "target/test-source/snapshot.bin" );
+        sourceLibrary.saveSnapshot( file );
+
+        SourceLibrary snapshotLibrary = newSnapshotLibrary();
+        snapshotLibrary.addSnapshot( file );
+        snapshotLibrary.removeSource( source.toURI().toURL() );
+        assertNull( snapshotLibrary.getJavaClass( "com.blah.Thing" ) );
+    }
+
+    public void testTypeNamesOfRemovedSource() throws Exception {
+        File source = createFile( "target/test-source/com/blah/Thing.java", "com.blah", "Thing" );
+        sourceLibrary.addSource( source );
+        sourceLibrary.addSource( new StringReader( "package com.blah; public class Other {}" ) );
+        assertTrue( sourceLibrary.getTypeNames( "com.blah" ).contains( "Thing" ) );
+
+        sourceLibrary.removeSource( source.toURI().toURL() );
+        assertFalse( sourceLibrary.getTypeNames( "com.blah" ).contains( "Thing" ) );
+        assertTrue( sourceLibrary.getTypeNames( "com.blah" ).contains( "Other" ) );
+    }
+
+    public void testSnapshotOfSourceWithoutUrl() throws Exception {
+        sourceLibrary.addSource( new StringReader( "package a; public class A {}" ) );
+        try {
+            sourceLibrary.saveSnapshot( new File( "target/test-source/snapshot.bin" ) );
+            fail( "A source without URL can't be parsed again" );
+        }
+        catch ( IOException e ) {
+        }
+    }
+
+    public void testAddSnapshotOfOtherFile() throws Exception {
+        File file = createFile( "target/test-source/com/blah/Thing.java", "com.blah", "Thing" );
+        try {
+            sourceLibrary.addSnapshot( file );
+            fail( "Should not accept a java file as snapshot" );
+        }
+        catch ( IOException e ) {
+        }
+    }
+
+    public void testCacheDirectory() throws Exception {
+        File cacheDirectory = new File( "target/test-source/cache" );
+        File thing = createFile( "target/test-source/com/blah/Thing.java", "com.blah", "Thing" );
+        sourceLibrary.setCacheDirectory( cacheDirectory );
+        JavaSource parsed = sourceLibrary.addSource( thing );
+        assertEquals( 1, cacheDirectory.listFiles().length );
+
+        SourceLibrary cachedLibrary = new SourceLibrary( null );
+        cachedLibrary.setCacheDirectory( cacheDirectory );
+        JavaSource cached = cachedLibrary.addSource( thing );
+        assertEquals( parsed.getClasses().get( 0 ).getFullyQualifiedName(),
+                      cached.getClasses().get( 0 ).getFullyQualifiedName() );
+        assertEquals( thing.toURI().toURL(), cached.getURL() );
+        assertEquals( 1, cacheDirectory.listFiles().length );
+
+        // a changed file gets its own record
+        createFile( "target/test-source/com/blah/Thing.java", "com.blah", "Thing extends Object" );
+        cachedLibrary.updateSource( thing );
+        assertEquals( 2, cacheDirectory.listFiles().length );
+    }
+
+    public void testCachedSourceIsNotParsed() throws Exception {
+        File cacheDirectory = new File( "target/test-source/cache" );
+        sourceLibrary.setCacheDirectory( cacheDirectory );
+        File thing = createFile( "target/test-source/com/blah/Thing.java", "com.blah", "Thing" );
+        sourceLibrary.addSource( thing );
+        File thingRecord = cacheDirectory.listFiles()[0];
+        File other = createFile( "target/test-source/com/blah/Other.java", "com.blah", "Other" );
+        sourceLibrary.addSource( other );
+        File otherRecord = cacheDirectory.listFiles()[0].equals( thingRecord ) ? cacheDirectory.listFiles()[1]
+                        : cacheDirectory.listFiles()[0];
+        thingRecord.delete();
+        assertTrue( otherRecord.renameTo( thingRecord ) );
+
+        SourceLibrary cachedLibrary = new SourceLibrary( null );
+        cachedLibrary.setCacheDirectory( cacheDirectory );
+        assertEquals( "Other", cachedLibrary.addSource( thing ).getClasses().get( 0 ).getName() );
+    }
+
+    public void testCorruptCacheRecordIsParsedAgain() throws Exception {
+        File cacheDirectory = new File( "target/test-source/cache" );
+        sourceLibrary.setCacheDirectory( cacheDirectory );
+        File thing = createFile( "target/test-source/com/blah/Thing.java", "com.blah", "Thing" );
+        sourceLibrary.addSource( thing );
+        Writer writer = new FileWriter( cacheDirectory.listFiles()[0] );
+        writer.write( "corrupt" );
+        writer.close();
+
+        SourceLibrary cachedLibrary = new SourceLibrary( null );
+        cachedLibrary.setCacheDirectory( cacheDirectory );
+        assertEquals( "Thing", cachedLibrary.addSource( thing ).getClasses().get( 0 ).getName() );
+    }
+
+    public void testCacheWithLazyCodeBlocks() throws Exception {
+        File cacheDirectory = new File( "target/test-source/cache" );
+        File file = new File( "target/test-source/com/blah/Thing.java" );
+        file.getParentFile().mkdirs();
+        Writer writer = new FileWriter( file );
+        writer.write( "package com.blah; public class Thing { int i = 1 + 2; void m() { i++; } }" );
+        writer.close();
+        sourceLibrary.setCacheDirectory( cacheDirectory );
+        sourceLibrary.setLazyCodeBlocks( true );
+        sourceLibrary.addSource( file );
+
+        SourceLibrary cachedLibrary = new SourceLibrary( null );
+        cachedLibrary.setCacheDirectory( cacheDirectory );
+        cachedLibrary.setLazyCodeBlocks( true );
+        JavaClass thing = cachedLibrary.addSource( file ).getClasses().get( 0 );
+        assertEquals( "1 + 2", thing.getFieldByName( "i" ).getInitializationExpression() );
+        assertEquals( " i++; ", thing.getMethods().get( 0 ).getSourceCode() );
+    }
+
+    public void testLazyCodeBlocksOfChangedFile() throws Exception {
+        File file = new File( "target/test-source/com/blah/Changed.java" );
+        file.getParentFile().mkdirs();
+        Writer writer = new FileWriter( file );
+        writer.write( "package com.blah; public class Changed { void m() { m(); } }" );
+        writer.close();
+        sourceLibrary.setLazyCodeBlocks( true );
+        JavaClass changed = sourceLibrary.addSource( file ).getClasses().get( 0 );
+
+        writer = new FileWriter( file );
+        writer.write( "package com.blah; public class Changed { void method() { method(); } }" );
+        writer.close();
+        try {
+            changed.getMethods().get( 0 ).getSourceCode();
+            fail( "The offsets of the codeblock don't match the changed file" );
+        }
+        catch ( SourceContentException e ) {
+            // expected
+        }
+    }
+
+    private SourceLibrary newSnapshotLibrary() {
+        ClassLoaderLibrary classLoaderLibrary = new ClassLoaderLibrary( null );
+        classLoaderLibrary.addDefaultLoader();
+        return new SourceLibrary( classLoaderLibrary );
+    }
+
+    private void addSources( File dir ) throws Exception {
+        File[] files = dir.listFiles();
+        Arrays.sort( files );
+        for ( File file : files ) {
+            if ( file.isDirectory() ) {
+                addSources( file );
+            }
+            else if ( file.getName().endsWith( ".java" ) ) {
+                sourceLibrary.addSource( file );
+            }
+        }
+    }
 }
@@ -0,0 +1,123 @@
+package com.thoughtworks.qdox.library;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.thoughtworks.qdox.JavaProjectBuilder;
+import com.thoughtworks.qdox.model.JavaClass;
+import com.thoughtworks.qdox.model.impl.DefaultJavaClass;
+import com.thoughtworks.qdox.model.impl.DefaultJavaPackage;
+import com.thoughtworks.qdox.model.impl.DefaultJavaSource;
+
+public class TypeHierarchyTest
+    extends TestCase
+{
+    private JavaProjectBuilder builder;
+
+    protected void setUp()
+        throws Exception
+    {
+        builder = new JavaProjectBuilder();
+        builder.addSource( new StringReader( "package p; public interface Shape {}" ) );
+        builder.addSource( new StringReader( "package p; public abstract class Polygon implements Shape {}" ) );
+        builder.addSource( new StringReader( "package p; public class Square extends Polygon implements java.io.Serializable {}" ) );
+        builder.addSource( new StringReader( "package p; public class Circle implements Shape {}" ) );
+    }
+
+    public void testIsA()
+    {
+        JavaClass square = builder.getClassByName( "p.Square" );
+        assertTrue( square.isA( "p.Square" ) );
+        assertTrue( square.isA( "p.Polygon" ) );
+        assertTrue( square.isA( "p.Shape" ) );
+        assertTrue( square.isA( "java.io.Serializable" ) );
+        assertTrue( square.isA( "java.lang.Object" ) );
+        assertTrue( square.isA( builder.getClassByName( "p.Shape" ) ) );
+        assertFalse( square.isA( "p.Circle" ) );
+        assertFalse( square.isA( builder.getClassByName( "p.Circle" ) ) );
+        assertFalse( builder.getClassByName( "p.Shape" ).isA( "p.Polygon" ) );
+    }
+
+    public void testDerivedClasses()
+    {
+        List<JavaClass> derived = builder.getClassByName( "p.Shape" ).getDerivedClasses();
+        assertEquals( 3, derived.size() );
+        assertEquals( "p.Polygon", derived.get( 0 ).getFullyQualifiedName() );
+        assertEquals( "p.Square", derived.get( 1 ).getFullyQualifiedName() );
+        assertEquals( "p.Circle", derived.get( 2 ).getFullyQualifiedName() );
+        assertEquals( 0, builder.getClassByName( "p.Circle" ).getDerivedClasses().size() );
+
+        // the hierarchy follows the library
+        builder.addSource( new StringReader( "package p; public class Disc extends Circle {}" ) );
+        assertEquals( 4, builder.getClassByName( "p.Shape" ).getDerivedClasses().size() );
+        assertEquals( 1, builder.getClassByName( "p.Circle" ).getDerivedClasses().size() );
+        assertTrue( builder.getClassByName( "p.Disc" ).isA( "p.Shape" ) );
+    }
+
+    public void testCyclicHierarchy()
+    {
+        builder.addSource( new StringReader( "package q; public class A extends B {}" ) );
+        builder.addSource( new StringReader( "package q; public class B extends A {}" ) );
+        assertTrue( builder.getClassByName( "q.A" ).isA( "q.B" ) );
+        assertFalse( builder.getClassByName( "q.A" ).isA( "p.Shape" ) );
+        assertEquals( 1, builder.getClassByName( "q.A" ).getDerivedClasses().size() );
+    }
+
+    public void testClassOutsideLibraryDoesNotShareEntry()
+    {
+        JavaClass square = builder.getClassByName( "p.Square" );
+        assertTrue( square.isA( "p.Shape" ) );
+
+        DefaultJavaSource source = new DefaultJavaSource( square.getJavaClassLibrary() );
+        source.setPackage( new DefaultJavaPackage( "p" ) );
+        DefaultJavaClass otherSquare = new DefaultJavaClass( source );
+        otherSquare.setName( "Square" );
+        source.addClass( otherSquare );
+        TypeHierarchy hierarchy = ( (AbstractClassLibrary) square.getJavaClassLibrary() ).getTypeHierarchy();
+        assertTrue( hierarchy.isA( otherSquare, "p.Square" ) );
+        assertFalse( hierarchy.isA( otherSquare, "p.Shape" ) );
+        assertTrue( hierarchy.isA( square, "p.Shape" ) );
+    }
+
+    public void testHierarchyFollowsAddedAndRemovedSources()
+        throws Exception
+    {
+        builder.addSource( new StringReader( "package q; public class Sub extends Base {}" ) );
+        JavaClass sub = builder.getClassByName( "q.Sub" );
+        assertFalse( sub.isA( "p.Shape" ) );
+        assertTrue( builder.getClassByName( "p.Square" ).isA( "p.Shape" ) );
+
+        File base = createFile( "target/test-type-hierarchy/q/Base.java", "package q; public class Base implements p.Shape {}" );
+        builder.addSource( base );
+        assertTrue( sub.isA( "q.Base" ) );
+        assertTrue( sub.isA( "p.Shape" ) );
+        assertTrue( builder.getClassByName( "p.Shape" ).getDerivedClasses().contains( sub ) );
+
+        builder.removeSource( base.toURI().toURL() );
+        assertFalse( sub.isA( "p.Shape" ) );
+        assertFalse( builder.getClassByName( "p.Shape" ).getDerivedClasses().contains( sub ) );
+        assertTrue( builder.getClassByName( "p.Square" ).isA( "p.Shape" ) );
+    }
+
+    private File createFile( String fileName, String content )
+        throws IOException
+    {
+        File file = new File( fileName );
+        file.getParentFile().mkdirs();
+        FileWriter writer = new FileWriter( file );
+        try
+        {
+            writer.write( content );
+        }
+        finally
+        {
+            writer.close();
+        }
+        return file;
+    }
+}
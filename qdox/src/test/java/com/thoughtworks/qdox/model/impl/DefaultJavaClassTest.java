@@ -1,7 +1,11 @@
 package com.thoughtworks.qdox.model.impl;
 
+import static org.junit.Assert.*;
+
 import java.util.List;
 
+import org.junit.Test;
+
 import com.thoughtworks.qdox.library.SortedClassLibraryBuilder;
 import com.thoughtworks.qdox.model.JavaClass;
 import com.thoughtworks.qdox.model.JavaClassTest;
@@ -120,4 +124,58 @@ public class DefaultJavaClassTest
         }
     }
 
+    @Test
+    public void testMemberIndicesFollowAdditions()
+    {
+        DefaultJavaClass clazz = new DefaultJavaClass( "Color" );
+        clazz.setEnum( true );
+        DefaultJavaField red = new DefaultJavaField( "RED" );
+        red.setEnumConstant( true );
+        clazz.addField( red );
+        assertSame( red, clazz.getFieldByName( "RED" ) );
+        assertNull( clazz.getFieldByName( "GREEN" ) );
+        assertEquals( 1, clazz.getEnumConstants().size() );
+
+        DefaultJavaField green = new DefaultJavaField( "GREEN" );
+        green.setEnumConstant( true );
+        clazz.addField( green );
+        clazz.addField( new DefaultJavaField( "RED" ) );
+        assertSame( green, clazz.getEnumConstantByName( "GREEN" ) );
+        assertSame( red, clazz.getFieldByName( "RED" ) );
+        assertNull( clazz.getEnumConstantByName( "BLUE" ) );
+        assertEquals( 2, clazz.getEnumConstants().size() );
+
+        assertNull( clazz.getMethodBySignature( "brighter", null ) );
+        DefaultJavaMethod brighter = new DefaultJavaMethod( "brighter" );
+        clazz.addMethod( brighter );
+        assertSame( brighter, clazz.getMethodBySignature( "brighter", null ) );
+
+        assertNull( clazz.getNestedClassByName( "Shade" ) );
+        DefaultJavaClass shade = new DefaultJavaClass( "Shade" );
+        clazz.addClass( shade );
+        assertSame( shade, clazz.getNestedClassByName( "Shade" ) );
+    }
+
+    @Test
+    public void testFieldWithoutNameIsFoundOnceNamed()
+    {
+        DefaultJavaClass clazz = new DefaultJavaClass( "Color" );
+        DefaultJavaField field = new DefaultJavaField();
+        clazz.addField( field );
+        assertNull( clazz.getFieldByName( "RED" ) );
+        field.setName( "RED" );
+        assertSame( field, clazz.getFieldByName( "RED" ) );
+    }
+
+    @Test
+    public void testEnumConstantsAreCopied()
+    {
+        DefaultJavaClass clazz = new DefaultJavaClass( "Color" );
+        clazz.setEnum( true );
+        DefaultJavaField red = new DefaultJavaField( "RED" );
+        red.setEnumConstant( true );
+        clazz.addField( red );
+        clazz.getEnumConstants().clear();
+        assertEquals( 1, clazz.getEnumConstants().size() );
+    }
 }
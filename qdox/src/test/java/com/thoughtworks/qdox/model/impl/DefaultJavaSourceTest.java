@@ -1,8 +1,19 @@
 package com.thoughtworks.qdox.model.impl;
 
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.StringReader;
+import java.util.ArrayList;
 import java.util.List;
 
 import com.thoughtworks.qdox.library.ClassLibrary;
+import com.thoughtworks.qdox.library.SortedClassLibraryBuilder;
+import com.thoughtworks.qdox.library.SourceLibrary;
 import com.thoughtworks.qdox.model.JavaClass;
 import com.thoughtworks.qdox.model.JavaPackage;
 import com.thoughtworks.qdox.model.JavaSourceTest;
@@ -40,4 +51,73 @@ public class DefaultJavaSourceTest extends JavaSourceTest<DefaultJavaSource>
             source.addImport( imprt );
         }
     }
+
+    public void testResolvedTypesAreInvalidatedByNewClasses()
+    {
+        SourceLibrary library = (SourceLibrary) new SortedClassLibraryBuilder().appendDefaultClassLoaders().getClassLibrary();
+        DefaultJavaSource source = newJavaSource( library );
+        source.setPackage( new DefaultJavaPackage( "baz" ) );
+        source.addImport( "foo.*" );
+        assertNotNull( library.getJavaClass( "foo.Bar" ) );
+        assertEquals( "foo.Bar", source.resolveType( "Bar" ) );
+
+        library.addSource( new StringReader( "package baz; public class Bar {}" ) );
+
+        assertEquals( "baz.Bar", source.resolveType( "Bar" ) );
+    }
+
+    public void testUnresolvedTypesAreCached()
+    {
+        ClassLibrary library = mock( ClassLibrary.class );
+        DefaultJavaSource source = newJavaSource( library );
+        source.addImport( "foo.*" );
+        assertNull( source.resolveType( "Bar" ) );
+        verify( library ).hasClassReference( "foo.Bar" );
+
+        reset( library );
+        assertNull( source.resolveType( "Bar" ) );
+        verify( library, never() ).hasClassReference( anyString() );
+
+        // a new import can make the name resolvable
+        source.addImport( "baz.Bar" );
+        assertEquals( "baz.Bar", source.resolveType( "Bar" ) );
+    }
+
+    public void testWildcardImportsAreSkippedByPackageIndex()
+    {
+        final List<String> requested = new ArrayList<String>();
+        SourceLibrary library = new SourceLibrary( null )
+        {
+            @Override
+            protected boolean containsClassReference( String name )
+            {
+                requested.add( name );
+                return super.containsClassReference( name );
+            }
+        };
+        library.addSource( new StringReader( "package foo; public class Foo {}" ) );
+        library.addSource( new StringReader( "package bar; public class Bar { public class Inner {} }" ) );
+        DefaultJavaSource source = newJavaSource( library );
+        source.addImport( "foo.*" );
+        source.addImport( "bar.*" );
+
+        assertEquals( "bar.Bar$Inner", source.resolveType( "Bar.Inner" ) );
+        for ( String name : requested )
+        {
+            assertFalse( name, name.startsWith( "foo." ) );
+        }
+    }
+
+    public void testWildcardImportsAreTriedWithoutPackageIndex()
+    {
+        // a library which isn't an AbstractClassLibrary can't list the types of a package
+        ClassLibrary library = mock( ClassLibrary.class );
+        when( library.hasClassReference( "bar.Bar$Inner" ) ).thenReturn( true );
+        DefaultJavaSource source = newJavaSource( library );
+        source.addImport( "foo.*" );
+        source.addImport( "bar.*" );
+
+        assertEquals( "bar.Bar$Inner", source.resolveType( "Bar.Inner" ) );
+        verify( library ).hasClassReference( "foo.Bar$Inner" );
+    }
 }
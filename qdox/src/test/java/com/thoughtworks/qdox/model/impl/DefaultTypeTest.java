@@ -1,16 +1,26 @@
 package com.thoughtworks.qdox.model.impl;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
 import java.util.Collections;
 
 import org.junit.Test;
 
 import com.thoughtworks.qdox.library.ClassLibrary;
+import com.thoughtworks.qdox.library.SourceLibrary;
+import com.thoughtworks.qdox.model.JavaClass;
 import com.thoughtworks.qdox.model.JavaSource;
 import com.thoughtworks.qdox.model.JavaTypeTest;
 
@@ -69,4 +79,58 @@ public class DefaultTypeTest
         assertEquals( "Bar", type.getValue() );
         assertEquals( "foo.Bar", type.getFullyQualifiedName() );
     }
+
+    @Test
+    public void testResolvedClassIsCachedUntilLibraryChanges()
+        throws Exception
+    {
+        File file = new File( "target/test-source/foo/Bar.java" );
+        file.getParentFile().mkdirs();
+        writeFile( file, "package foo; public class Bar {}" );
+        SourceLibrary library = new SourceLibrary( null );
+        library.addSource( file );
+        DefaultJavaSource source = new DefaultJavaSource( library );
+        DefaultJavaType type = new DefaultJavaType( "foo.Bar", 0, source );
+
+        JavaClass first = type.resolveRealClass();
+        assertEquals( "foo.Bar", first.getFullyQualifiedName() );
+        assertSame( first, type.resolveRealClass() );
+
+        writeFile( file, "package foo; public class Bar extends Object {}" );
+        library.updateSource( file );
+        JavaClass second = type.resolveRealClass();
+        assertNotSame( first, second );
+        assertEquals( "foo.Bar", second.getFullyQualifiedName() );
+
+        // primitives are shared
+        assertSame( newType( "int" ).resolveRealClass(), new DefaultJavaType( "int", 0, source ).resolveRealClass() );
+    }
+
+    @Test
+    public void testResolvedClassIsNotCachedWithoutModificationCount()
+    {
+        // only the libraries of QDox count their modifications
+        ClassLibrary library = mock( ClassLibrary.class );
+        JavaClass bar = mock( JavaClass.class );
+        when( library.getJavaClass( "foo.Bar", true ) ).thenReturn( bar );
+        DefaultJavaType type = new DefaultJavaType( "foo.Bar", 0, new DefaultJavaSource( library ) );
+
+        assertSame( bar, type.resolveRealClass() );
+        assertSame( bar, type.resolveRealClass() );
+        verify( library, times( 2 ) ).getJavaClass( "foo.Bar", true );
+    }
+
+    private static void writeFile( File file, String content )
+        throws IOException
+    {
+        Writer writer = new FileWriter( file );
+        try
+        {
+            writer.write( content );
+        }
+        finally
+        {
+            writer.close();
+        }
+    }
 }
\ No newline at end of file
@@ -3,13 +3,16 @@ package com.thoughtworks.qdox.parser;
 import java.io.IOException;
 import java.io.StringReader;
 import java.lang.reflect.Field;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import junit.framework.TestCase;
 
 import com.thoughtworks.qdox.parser.impl.JFlexLexer;
 import com.thoughtworks.qdox.parser.impl.Parser;
+import com.thoughtworks.qdox.parser.impl.SymbolTable;
 
 public class LexerTest extends TestCase {
 
@@ -67,6 +70,140 @@ public class LexerTest extends TestCase {
         assertLex(0, lexer);
     }
 
+    public void testCodeBody() throws Exception {
+        String in = ""
+                + "class X { "
+                + " void x() { if( y ) { z( \"}\" ); } /* } */ } "
+                + "} ";
+
+        Lexer lexer = new JFlexLexer(new StringReader(in));
+        assertLex(Parser.CLASS, lexer);
+        assertLex(Parser.IDENTIFIER, "X", lexer);
+        assertLex(Parser.BRACEOPEN, lexer);
+        assertLex(Parser.IDENTIFIER, "void", lexer);
+        assertLex(Parser.IDENTIFIER, "x", lexer);
+        assertLex(Parser.PARENOPEN, lexer);
+        assertLex(Parser.PARENCLOSE, lexer);
+        assertLex(Parser.CODEBLOCK, lexer);
+        assertEquals( " if( y ) { z( \"}\" ); } /* } */ ", lexer.getCodeBody() );
+        assertLex(Parser.BRACECLOSE, lexer);
+        assertLex(0, lexer);
+    }
+
+    public void testSkipCodeBlocks() throws Exception {
+        String in = ""
+                + "class X { "
+                + " int a = 1; "
+                + " void x() { if( y ) { z( \"}\" ); } /* } */ } "
+                + " static { y = '{'; } "
+                + "} ";
+
+        JFlexLexer lexer = new JFlexLexer(new StringReader(in));
+        lexer.setSkipCodeBlocks( true );
+        assertLex(Parser.CLASS, lexer);
+        assertLex(Parser.IDENTIFIER, "X", lexer);
+        assertLex(Parser.BRACEOPEN, lexer);
+        assertLex(Parser.IDENTIFIER, "int", lexer);
+        assertLex(Parser.IDENTIFIER, "a", lexer);
+        assertLex(Parser.SEMI, lexer);
+        assertEquals( "1", lexer.getCodeBody() );
+        assertLex(Parser.IDENTIFIER, "void", lexer);
+        assertLex(Parser.IDENTIFIER, "x", lexer);
+        assertLex(Parser.PARENOPEN, lexer);
+        assertLex(Parser.PARENCLOSE, lexer);
+        assertLex(Parser.CODEBLOCK, lexer);
+        assertNull( lexer.getCodeBody() );
+        assertLex(Parser.STATIC, lexer);
+        assertLex(Parser.CODEBLOCK, lexer);
+        assertNull( lexer.getCodeBody() );
+        assertLex(Parser.BRACECLOSE, lexer);
+        assertLex(0, lexer);
+    }
+
+    public void testCodeBodyOffsets() throws Exception {
+        String in = ""
+                + "class X { "
+                + " int a = 1; "
+                + " void x() { if( y ) { z( \"}\" ); } } "
+                + "} ";
+
+        JFlexLexer lexer = new JFlexLexer(new StringReader(in));
+        lexer.setSkipCodeBlocks( true );
+        lexer.setSkipAssignments( true );
+        assertLex(Parser.CLASS, lexer);
+        assertLex(Parser.IDENTIFIER, "X", lexer);
+        assertLex(Parser.BRACEOPEN, lexer);
+        assertLex(Parser.IDENTIFIER, "int", lexer);
+        assertLex(Parser.IDENTIFIER, "a", lexer);
+        assertLex(Parser.SEMI, lexer);
+        assertNull( lexer.getCodeBody() );
+        assertEquals( "1", in.substring( lexer.getCodeBodyStart(), lexer.getCodeBodyEnd() ) );
+        assertLex(Parser.IDENTIFIER, "void", lexer);
+        assertLex(Parser.IDENTIFIER, "x", lexer);
+        assertLex(Parser.PARENOPEN, lexer);
+        assertLex(Parser.PARENCLOSE, lexer);
+        assertLex(Parser.CODEBLOCK, lexer);
+        assertNull( lexer.getCodeBody() );
+        assertEquals( " if( y ) { z( \"}\" ); } ", in.substring( lexer.getCodeBodyStart(), lexer.getCodeBodyEnd() ) );
+        assertLex(Parser.BRACECLOSE, lexer);
+        assertLex(0, lexer);
+    }
+
+    public void testReset() throws Exception {
+        JFlexLexer lexer = new JFlexLexer(new StringReader("class X { void x() { int a = "));
+        assertLex(Parser.CLASS, lexer);
+        assertLex(Parser.IDENTIFIER, "X", lexer);
+        assertLex(Parser.BRACEOPEN, lexer);
+        assertLex(Parser.IDENTIFIER, "void", lexer);
+
+        lexer.reset(new StringReader("class Y { int b = 2; }"));
+        assertLex(Parser.CLASS, lexer);
+        assertEquals(1, lexer.getLine());
+        assertLex(Parser.IDENTIFIER, "Y", lexer);
+        assertLex(Parser.BRACEOPEN, lexer);
+        assertLex(Parser.IDENTIFIER, "int", lexer);
+        assertLex(Parser.IDENTIFIER, "b", lexer);
+        assertLex(Parser.SEMI, lexer);
+        assertEquals("2", lexer.getCodeBody());
+        assertLex(Parser.BRACECLOSE, lexer);
+        assertLex(0, lexer);
+    }
+
+    public void testSymbolTable() throws Exception {
+        JFlexLexer lexer = new JFlexLexer(new StringReader("class List { List list; }"));
+        lexer.setSymbolTable(new SymbolTable());
+        assertLex(Parser.CLASS, lexer);
+        assertLex(Parser.IDENTIFIER, "List", lexer);
+        String name = lexer.text();
+        assertLex(Parser.BRACEOPEN, lexer);
+        assertLex(Parser.IDENTIFIER, "List", lexer);
+        assertSame(name, lexer.text());
+        assertLex(Parser.IDENTIFIER, "list", lexer);
+        assertLex(Parser.SEMI, lexer);
+        assertLex(Parser.BRACECLOSE, lexer);
+        assertLex(0, lexer);
+    }
+
+    public void testJavaDocAfterAnnotationIsNotInterned() throws Exception {
+        JFlexLexer lexer = new JFlexLexer(new StringReader("@A /** doc */ @B(\"x\") class X {}"));
+        final List<String> comments = new ArrayList<String>();
+        lexer.addCommentHandler(new CommentHandler() {
+            public void onComment(String comment, int line, int column) {
+                comments.add(comment);
+            }
+        });
+        SymbolTable symbolTable = new SymbolTable();
+        lexer.setSymbolTable(symbolTable);
+        for (int token = lexer.lex(); token != 0; token = lexer.lex()) {
+            if (token == Parser.IDENTIFIER) {
+                lexer.text();
+            }
+        }
+        assertEquals(1, comments.size());
+        // A, B, X
+        assertEquals(3, symbolTable.size());
+    }
+
     public void testFieldAssignment() throws Exception {
         checkAssignment("x");
         checkAssignment("(map.isEmpty ? 1 : -1)");
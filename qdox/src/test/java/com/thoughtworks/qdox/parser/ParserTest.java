@@ -7,12 +7,15 @@ import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.LinkedList;
 
 import junit.framework.TestCase;
 
 import org.junit.Assert;
 import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.mockito.stubbing.answers.ReturnsElementsOf;
 
 import com.thoughtworks.qdox.builder.Builder;
@@ -31,6 +34,7 @@ public class ParserTest extends TestCase {
 	private Collection<Integer> lexValues = new LinkedList<Integer>();
     private Collection<String> textValues = new LinkedList<String>();
     private Collection<String> codeBodyValues = new LinkedList<String>();
+    private String currentText;
     
     private JavaLexer lexer;
     private Builder builder;
@@ -71,6 +75,13 @@ public class ParserTest extends TestCase {
         assertEquals( "mypackage", argument.getValue().getName() );
     }
 
+    public void testJavaDocIsParsedForBuilderWithoutCommentHandler() throws Exception {
+        Parser parser = new Parser(lexer, builder);
+        parser.onComment("/** Hello */", 1, 1);
+
+        verify(builder).addJavaDoc("Hello");
+    }
+
     public void testPackageWithMultipleWords() throws Exception {
 
         // setup values
@@ -2844,8 +2855,25 @@ public class ParserTest extends TestCase {
         setupLex( token, null );
         if ( token == 0 )
         {
-            when( lexer.lex() ).thenAnswer( new ReturnsElementsOf( lexValues ) );
-            when( lexer.text() ).thenAnswer( new ReturnsElementsOf( textValues ) );
+            // the parser only asks for the text of some tokens, so return the text of the last token
+            final Iterator<String> texts = textValues.iterator();
+            final ReturnsElementsOf tokens = new ReturnsElementsOf( lexValues );
+            when( lexer.lex() ).thenAnswer( new Answer<Object>()
+            {
+                public Object answer( InvocationOnMock invocation )
+                    throws Throwable
+                {
+                    currentText = texts.hasNext() ? texts.next() : null;
+                    return tokens.answer( invocation );
+                }
+            } );
+            when( lexer.text() ).thenAnswer( new Answer<String>()
+            {
+                public String answer( InvocationOnMock invocation )
+                {
+                    return currentText;
+                }
+            } );
             when( lexer.getCodeBody() ).thenAnswer( new ReturnsElementsOf( codeBodyValues ) );
             when( lexer.getLine() ).thenReturn( -1 );
         }
@@ -0,0 +1,46 @@
+package com.thoughtworks.qdox.parser.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class SymbolTableTest
+{
+    private SymbolTable symbolTable = new SymbolTable();
+
+    @Test
+    public void testInternFromBuffer()
+    {
+        char[] buffer = "java.util.List<java.lang.String>".toCharArray();
+        String java = symbolTable.intern( buffer, 0, 4 );
+        assertEquals( "java", java );
+        assertSame( java, symbolTable.intern( buffer, 15, 4 ) );
+        assertEquals( "List", symbolTable.intern( buffer, 10, 4 ) );
+        assertEquals( 2, symbolTable.size() );
+    }
+
+    @Test
+    public void testInternString()
+    {
+        String name = new String( "name" );
+        String other = new String( "name" );
+        assertNotSame( name, other );
+        assertSame( symbolTable.intern( name ), symbolTable.intern( other ) );
+        assertNull( symbolTable.intern( null ) );
+    }
+
+    @Test
+    public void testGrow()
+    {
+        for ( int i = 0; i < 10000; i++ )
+        {
+            symbolTable.intern( "name" + i );
+        }
+        assertEquals( 10000, symbolTable.size() );
+        String name = symbolTable.intern( "name5000" );
+        assertSame( name, symbolTable.intern( new String( "name5000" ) ) );
+    }
+}